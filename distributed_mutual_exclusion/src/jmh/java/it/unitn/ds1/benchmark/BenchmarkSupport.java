@@ -0,0 +1,102 @@
+package it.unitn.ds1.benchmark;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import it.unitn.ds1.messages.Bootstrap;
+import it.unitn.ds1.network.Graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.Logger;
+
+/**
+ * Helpers shared by the benchmarks: logging setup and bootstrap of a tree of
+ * nodes.
+ */
+final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Removes every handler of the root logger, so that the records produced
+     * by the nodes are still created but never reach the console or a file.
+     */
+    static void silenceLogging() {
+        Logger rootLogger = Logger.getLogger("");
+        for (Handler handler : rootLogger.getHandlers()) {
+            rootLogger.removeHandler(handler);
+        }
+    }
+
+    /**
+     * Sends the bootstrap messages to the nodes, as done by the main routine.
+     *
+     * @param g The topology of the network.
+     * @param nodes The actors representing the nodes of the network.
+     * @param starterId The id of the initial privileged node, which is
+     * bootstrapped last.
+     */
+    static void bootstrap(Graph g, List<ActorRef> nodes, int starterId) {
+        bootstrap(g, nodes, starterId, null, 0);
+    }
+
+    /**
+     * Sends the bootstrap messages to the nodes, adding an actor outside the
+     * tree to the neighbors of every node.
+     *
+     * @param g The topology of the network.
+     * @param nodes The actors representing the nodes of the network.
+     * @param starterId The id of the initial privileged node, which is
+     * bootstrapped last.
+     * @param extra The actor outside the tree, or null.
+     * @param extraId The id of the actor outside the tree.
+     */
+    static void bootstrap(Graph g, List<ActorRef> nodes, int starterId, ActorRef extra, int extraId) {
+        for (int i = 1; i <= nodes.size(); i++) {
+            int nodeId = (starterId + i) % nodes.size();
+            int[] neighborIds = g.getNeighbors(nodeId);
+            List<ActorRef> neighbors = new ArrayList<>();
+            for (int neighborId : neighborIds) {
+                neighbors.add(nodes.get(neighborId));
+            }
+            if (extra != null) {
+                neighborIds = Arrays.copyOf(neighborIds, neighborIds.length + 1);
+                neighborIds[neighborIds.length - 1] = extraId;
+                neighbors.add(extra);
+            }
+            nodes.get(nodeId).tell(new Bootstrap(neighbors, neighborIds, nodeId == starterId), ActorRef.noSender());
+        }
+    }
+
+    /**
+     * Terminates the actor system and waits for its termination.
+     *
+     * @param system The actor system to terminate.
+     */
+    static void shutdown(ActorSystem system) {
+        system.terminate();
+        system.getWhenTerminated().toCompletableFuture().join();
+    }
+
+    /**
+     * An actor that discards every message it receives. Used in place of the
+     * neighbors of a node benchmarked in isolation.
+     */
+    static class Sink extends AbstractActor {
+
+        static Props props() {
+            return Props.create(Sink.class, Sink::new);
+        }
+
+        @Override
+        public Receive createReceive() {
+            return receiveBuilder().matchAny(msg -> {
+            }).build();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package it.unitn.ds1.benchmark;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import it.unitn.ds1.DistributedMutualExclusion;
+import it.unitn.ds1.Settings;
+import it.unitn.ds1.lock.DistributedLock;
+import it.unitn.ds1.network.Graph;
+import it.unitn.ds1.network.Node;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many critical sections per second the nodes of a tree can grant
+ * to clients of the {@link DistributedLock}. Each operation acquires the lock
+ * through a random node and releases it as soon as it is granted, so the
+ * critical section lasts only as long as the client needs it.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DistributedLockBenchmark {
+
+    @Param({"tree1", "line"})
+    public String topology;
+
+    private ActorSystem system;
+    private List<ActorRef> nodes;
+    private DistributedLock lock;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, InterruptedException {
+        BenchmarkSupport.silenceLogging();
+        system = ActorSystem.create("benchmark");
+
+        Settings settings = Settings.load(new String[]{"--topology=" + topology, "--protocol-tracing=off"});
+        Graph g = DistributedMutualExclusion.createStructure(settings);
+        nodes = new ArrayList<>();
+        for (int i = 0; i < g.getNumberOfNodes(); i++) {
+            nodes.add(system.actorOf(Node.props(i, settings), "node" + i));
+        }
+        lock = new DistributedLock(nodes, system);
+
+        BenchmarkSupport.bootstrap(g, nodes, settings.getStarterId());
+        // Wait for the INITIALIZE messages to reach every node
+        Thread.sleep(settings.getBootstrapDelay() + 500);
+        random = new SplittableRandom(42);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkSupport.shutdown(system);
+    }
+
+    @Benchmark
+    public void acquireAndRelease() {
+        lock.acquire(random.nextInt(nodes.size()))
+                .thenAccept(lease -> lease.release())
+                .toCompletableFuture()
+                .join();
+    }
+}
@@ -0,0 +1,108 @@
+package it.unitn.ds1.benchmark;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import it.unitn.ds1.DistributedMutualExclusion;
+import it.unitn.ds1.Settings;
+import it.unitn.ds1.messages.UserInput;
+import it.unitn.ds1.metrics.LatencyReport;
+import it.unitn.ds1.metrics.MetricsRegistry;
+import it.unitn.ds1.network.Graph;
+import it.unitn.ds1.network.Node;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static it.unitn.ds1.DistributedMutualExclusion.REQUEST_COMMAND;
+
+/**
+ * Compares the time the nodes wait to enter the critical section on different
+ * topologies. For each topology the nodes run on an actor system as in the
+ * application and receive REQUEST commands in rounds: in each round a few
+ * random nodes ask for the privilege at once, and the next round starts when
+ * all of them have entered the critical section. The percentiles of the
+ * latencies of the whole cluster are printed in CSV.
+ *
+ * Usage: LatencyByTopology [rounds] [concurrency] [topology...]
+ */
+public class LatencyByTopology {
+
+    private static final int WARMUP_ROUNDS = 200;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        List<String> topologies = args.length > 2
+                ? Arrays.asList(args).subList(2, args.length)
+                : Arrays.asList("tree1", "tree2", "tree3", "line");
+
+        BenchmarkSupport.silenceLogging();
+        System.out.println(LatencyReport.CSV_HEADER);
+        for (String topology : topologies) {
+            System.out.println(run(topology, rounds, concurrency).toCsv());
+        }
+    }
+
+    /**
+     * Runs the protocol on a topology and measures the latencies.
+     *
+     * @param topology The name of the topology.
+     * @param rounds The number of measured rounds of requests.
+     * @param concurrency The number of requests in each round.
+     * @return The latency report of the cluster.
+     */
+    private static LatencyReport run(String topology, int rounds, int concurrency)
+            throws IOException, InterruptedException {
+        Settings settings = Settings.load(new String[]{
+                "--topology=" + topology,
+                "--protocol-tracing=off",
+                "--bootstrap-delay=200ms",
+                "--critical-section-time=0ms"});
+        Graph g = DistributedMutualExclusion.createStructure(settings);
+        MetricsRegistry registry = MetricsRegistry.getInstance();
+        registry.clear();
+
+        ActorSystem system = ActorSystem.create("latency");
+        List<ActorRef> nodes = new ArrayList<>();
+        for (int i = 0; i < g.getNumberOfNodes(); i++) {
+            nodes.add(system.actorOf(Node.props(i, settings), "node" + i));
+        }
+        BenchmarkSupport.bootstrap(g, nodes, settings.getStarterId());
+        Thread.sleep(settings.getBootstrapDelay() + 500);
+
+        SplittableRandom random = new SplittableRandom(settings.getSeed());
+        requestRounds(registry, nodes, random, WARMUP_ROUNDS, concurrency);
+        // Discard the latencies of the warmup
+        for (int i = 0; i < nodes.size(); i++) {
+            registry.get(i).getAcquisitionLatency().reset();
+        }
+        requestRounds(registry, nodes, random, rounds, concurrency);
+        LatencyReport report = registry.getLatencyReport(topology);
+
+        BenchmarkSupport.shutdown(system);
+        registry.clear();
+        return report;
+    }
+
+    /**
+     * Sends REQUEST commands to random nodes in rounds, waiting for the end of
+     * each round.
+     */
+    private static void requestRounds(MetricsRegistry registry, List<ActorRef> nodes, SplittableRandom random,
+                                      int rounds, int concurrency) throws InterruptedException {
+        UserInput request = new UserInput(REQUEST_COMMAND);
+        long entries = registry.getCriticalSectionEntries();
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < concurrency; i++) {
+                nodes.get(random.nextInt(nodes.size())).tell(request, ActorRef.noSender());
+            }
+            entries += concurrency;
+            while (registry.getCriticalSectionEntries() < entries) {
+                Thread.sleep(0, 100_000);
+            }
+        }
+    }
+}
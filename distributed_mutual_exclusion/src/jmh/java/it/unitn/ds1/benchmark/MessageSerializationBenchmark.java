@@ -0,0 +1,102 @@
+package it.unitn.ds1.benchmark;
+
+import akka.actor.ActorSystem;
+import akka.actor.ExtendedActorSystem;
+import akka.serialization.JavaSerializer;
+import akka.serialization.SerializationExtension;
+import akka.serialization.Serializer;
+import akka.serialization.SerializerWithStringManifest;
+import it.unitn.ds1.messages.AdviseMessage;
+import it.unitn.ds1.messages.InitializeMessage;
+import it.unitn.ds1.messages.MessageSerializer;
+import it.unitn.ds1.messages.PrivilegeMessage;
+import it.unitn.ds1.messages.RequestMessage;
+import it.unitn.ds1.messages.RestartMessage;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the compact serializer of the protocol messages with Java
+ * serialization, as Akka uses them when a message leaves the JVM. The size of
+ * each encoded message is printed at the start of the trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageSerializationBenchmark {
+
+    /**
+     * The id of the sender, which takes two bytes in the compact format.
+     */
+    private static final int SENDER_ID = 1000;
+
+    @Param({"request", "privilege", "initialize", "restart", "advise"})
+    public String message;
+
+    @Param({"compact", "java"})
+    public String serializer;
+
+    private ActorSystem system;
+    private Serializer s;
+    private Object msg;
+    private String manifest;
+    private byte[] bytes;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkSupport.silenceLogging();
+        system = ActorSystem.create("benchmark");
+        switch (message) {
+            case "request":
+                msg = new RequestMessage(SENDER_ID);
+                break;
+            case "privilege":
+                msg = new PrivilegeMessage(SENDER_ID);
+                break;
+            case "initialize":
+                msg = new InitializeMessage(SENDER_ID);
+                break;
+            case "restart":
+                msg = new RestartMessage(SENDER_ID);
+                break;
+            case "advise":
+                msg = new AdviseMessage(SENDER_ID, false, true, true);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown message " + message);
+        }
+        if (serializer.equals("compact")) {
+            s = SerializationExtension.get(system).findSerializerFor(msg);
+            if (!(s instanceof MessageSerializer)) {
+                throw new IllegalStateException("The compact serializer is not bound to " + message);
+            }
+            manifest = ((SerializerWithStringManifest) s).manifest(msg);
+        } else {
+            s = new JavaSerializer((ExtendedActorSystem) system);
+        }
+        bytes = s.toBinary(msg);
+        System.out.println(message + " (" + serializer + "): " + bytes.length + " bytes");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkSupport.shutdown(system);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return s.toBinary(msg);
+    }
+
+    @Benchmark
+    public Object deserialize() throws Exception {
+        if (manifest != null) {
+            return ((SerializerWithStringManifest) s).fromBinary(bytes, manifest);
+        }
+        return s.fromBinary(bytes);
+    }
+}
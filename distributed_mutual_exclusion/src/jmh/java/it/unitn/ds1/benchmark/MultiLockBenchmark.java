@@ -0,0 +1,84 @@
+package it.unitn.ds1.benchmark;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import it.unitn.ds1.DistributedMutualExclusion;
+import it.unitn.ds1.Settings;
+import it.unitn.ds1.lock.DistributedLock;
+import it.unitn.ds1.network.Graph;
+import it.unitn.ds1.network.MultiLockNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many critical sections per second the nodes of a tree grant
+ * when many locks share it. Each invocation asks random nodes for random locks
+ * at the same time and waits for every lease to be released: the more locks,
+ * the fewer acquisitions wait for the same privilege.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MultiLockBenchmark {
+
+    /**
+     * The number of acquisitions of an invocation.
+     */
+    private static final int BATCH = 64;
+
+    @Param({"tree1"})
+    public String topology;
+
+    @Param({"1", "16", "256", "4096"})
+    public int nLocks;
+
+    private ActorSystem system;
+    private List<ActorRef> nodes;
+    private DistributedLock lock;
+    private SplittableRandom random;
+    private final CompletableFuture<?>[] batch = new CompletableFuture<?>[BATCH];
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, InterruptedException {
+        BenchmarkSupport.silenceLogging();
+        system = ActorSystem.create("benchmark");
+
+        Settings settings = Settings.load(new String[]{"--topology=" + topology, "--protocol-tracing=off"});
+        Graph g = DistributedMutualExclusion.createStructure(settings);
+        nodes = new ArrayList<>();
+        for (int i = 0; i < g.getNumberOfNodes(); i++) {
+            nodes.add(system.actorOf(MultiLockNode.props(i, settings), "node" + i));
+        }
+        lock = new DistributedLock(nodes, system);
+
+        BenchmarkSupport.bootstrap(g, nodes, settings.getStarterId());
+        // Wait for the INITIALIZE messages to reach every node
+        Thread.sleep(settings.getBootstrapDelay() + 500);
+        random = new SplittableRandom(42);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkSupport.shutdown(system);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void acquireAndRelease() {
+        for (int i = 0; i < BATCH; i++) {
+            batch[i] = lock.acquire(random.nextInt(nodes.size()), random.nextInt(nLocks))
+                    .thenAccept(lease -> lease.release())
+                    .toCompletableFuture();
+        }
+        CompletableFuture.allOf(batch).join();
+    }
+}
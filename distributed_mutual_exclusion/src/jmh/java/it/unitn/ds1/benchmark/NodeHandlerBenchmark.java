@@ -0,0 +1,162 @@
+package it.unitn.ds1.benchmark;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.testkit.TestActorRef;
+import it.unitn.ds1.Settings;
+import it.unitn.ds1.lock.DistributedLock;
+import it.unitn.ds1.messages.AdviseMessage;
+import it.unitn.ds1.messages.Bootstrap;
+import it.unitn.ds1.messages.CancelAcquire;
+import it.unitn.ds1.messages.InitializeMessage;
+import it.unitn.ds1.messages.PrivilegeMessage;
+import it.unitn.ds1.messages.RequestMessage;
+import it.unitn.ds1.network.Node;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of the message handlers of a single node, without the
+ * mailbox and the dispatcher. The node is a TestActorRef whose handlers run on
+ * the benchmark thread, and its two neighbors are sinks.
+ *
+ * Run with -prof gc: the bytes allocated per operation by requestAndPrivilege
+ * and by akkaBaseline are the same, because the node itself allocates nothing
+ * and all the allocations are Akka's envelopes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NodeHandlerBenchmark {
+
+    private static final int NODE_ID = 0;
+    private static final int A_ID = 1;
+    private static final int B_ID = 2;
+
+    /**
+     * A node with neighbors A and B, whose holder is initially A.
+     */
+    @State(Scope.Thread)
+    public static class RelayState {
+
+        @Param({"on", "off"})
+        public String tracing;
+
+        ActorSystem system;
+        TestActorRef<Node> node;
+        ActorRef a;
+        ActorRef b;
+        /**
+         * The neighbor holding the privilege and the one asking for it.
+         */
+        ActorRef holder;
+        ActorRef requester;
+        RequestMessage requestFromA = new RequestMessage(A_ID);
+        RequestMessage requestFromB = new RequestMessage(B_ID);
+        PrivilegeMessage privilegeFromA = new PrivilegeMessage(A_ID);
+        PrivilegeMessage privilegeFromB = new PrivilegeMessage(B_ID);
+        /**
+         * A message that the node handles without doing anything, because the
+         * acquisition is not pending.
+         */
+        CancelAcquire noOp = new CancelAcquire(DistributedLock.DEFAULT_LOCK, new CompletableFuture<>());
+
+        @Setup(Level.Trial)
+        public void setup() {
+            BenchmarkSupport.silenceLogging();
+            system = ActorSystem.create("benchmark");
+            a = system.actorOf(BenchmarkSupport.Sink.props(), "a");
+            b = system.actorOf(BenchmarkSupport.Sink.props(), "b");
+            node = TestActorRef.create(system, Node.props(NODE_ID, Settings.load(new String[]{"--protocol-tracing=" + tracing})), "node");
+            node.receive(new Bootstrap(Arrays.asList(a, b), new int[]{A_ID, B_ID}, false), ActorRef.noSender());
+            node.receive(new InitializeMessage(A_ID), a);
+            holder = a;
+            requester = b;
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            BenchmarkSupport.shutdown(system);
+        }
+    }
+
+    /**
+     * A node with neighbors A and B that holds the privilege.
+     */
+    @State(Scope.Thread)
+    public static class RootState {
+
+        @Param({"on", "off"})
+        public String tracing;
+
+        ActorSystem system;
+        TestActorRef<Node> node;
+        ActorRef a;
+        ActorRef b;
+        AdviseMessage adviseFromA = new AdviseMessage(A_ID, true, false, false);
+        AdviseMessage adviseFromB = new AdviseMessage(B_ID, true, false, false);
+
+        @Setup(Level.Trial)
+        public void setup() {
+            BenchmarkSupport.silenceLogging();
+            system = ActorSystem.create("benchmark");
+            a = system.actorOf(BenchmarkSupport.Sink.props(), "a");
+            b = system.actorOf(BenchmarkSupport.Sink.props(), "b");
+            node = TestActorRef.create(system, Node.props(NODE_ID, Settings.load(new String[]{"--protocol-tracing=" + tracing})), "node");
+            node.receive(new Bootstrap(Arrays.asList(a, b), new int[]{A_ID, B_ID}, false), ActorRef.noSender());
+            node.receive(new InitializeMessage(NODE_ID), node);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            BenchmarkSupport.shutdown(system);
+        }
+    }
+
+    /**
+     * A REQUEST message from a neighbor, which is enqueued and forwarded to the
+     * holder (onRequestMessage, makeRequest), followed by the PRIVILEGE message
+     * from the holder, which is relayed to the requesting neighbor
+     * (onPrivilegeMessage, assignPrivilege). The roles of the two neighbors
+     * are swapped at every invocation, so the node always returns to the same
+     * state.
+     */
+    @Benchmark
+    public void requestAndPrivilege(RelayState s) {
+        boolean fromB = s.requester == s.b;
+        s.node.receive(fromB ? s.requestFromB : s.requestFromA, s.requester);
+        s.node.receive(fromB ? s.privilegeFromA : s.privilegeFromB, s.holder);
+
+        ActorRef tmp = s.holder;
+        s.holder = s.requester;
+        s.requester = tmp;
+    }
+
+    /**
+     * The work of Akka in requestAndPrivilege without the protocol: two
+     * messages received by the node, which ignores them, and two messages
+     * sent to the neighbors.
+     */
+    @Benchmark
+    public void akkaBaseline(RelayState s) {
+        s.node.receive(s.noOp, s.requester);
+        s.a.tell(s.requestFromB, s.node);
+        s.node.receive(s.noOp, s.holder);
+        s.b.tell(s.privilegeFromA, s.node);
+    }
+
+    /**
+     * The ADVISE messages of both neighbors, which make the node complete a
+     * recovery (onAdviseMessage, assignPrivilege, makeRequest).
+     */
+    @Benchmark
+    public void adviseRound(RootState s) {
+        s.node.receive(s.adviseFromA, s.a);
+        s.node.receive(s.adviseFromB, s.b);
+    }
+}
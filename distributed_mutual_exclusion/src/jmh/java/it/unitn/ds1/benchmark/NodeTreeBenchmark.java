@@ -0,0 +1,88 @@
+package it.unitn.ds1.benchmark;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.testkit.TestActorRef;
+import it.unitn.ds1.DistributedMutualExclusion;
+import it.unitn.ds1.Settings;
+import it.unitn.ds1.network.Graph;
+import it.unitn.ds1.network.Node;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many times per second the privilege can be moved to a random
+ * node of a whole tree. Each operation is a REQUEST message sent by a
+ * {@link Requester} to a node and travelling up to the current position of the
+ * privilege, followed by the PRIVILEGE messages travelling back.
+ *
+ * In "synchronous" mode every actor is a TestActorRef, so the messages are
+ * processed on the benchmark thread and only the handlers are measured. In
+ * "actorSystem" mode the nodes run on the default dispatcher as in the
+ * application.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NodeTreeBenchmark {
+
+    @Param({"tree1", "tree2", "tree3", "line"})
+    public String topology;
+
+    @Param({"synchronous", "actorSystem"})
+    public String mode;
+
+    @Param({"on", "off"})
+    public String tracing;
+
+    private ActorSystem system;
+    private List<ActorRef> nodes;
+    private ActorRef requester;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, InterruptedException {
+        BenchmarkSupport.silenceLogging();
+        system = ActorSystem.create("benchmark");
+        boolean synchronous = mode.equals("synchronous");
+
+        Settings settings = Settings.load(new String[]{"--topology=" + topology, "--protocol-tracing=" + tracing});
+        Graph g = DistributedMutualExclusion.createStructure(settings);
+        nodes = new ArrayList<>();
+        for (int i = 0; i < g.getNumberOfNodes(); i++) {
+            nodes.add(synchronous
+                    ? TestActorRef.create(system, Node.props(i, settings), "node" + i)
+                    : system.actorOf(Node.props(i, settings), "node" + i));
+        }
+        requester = synchronous
+                ? TestActorRef.create(system, Requester.props(), "requester")
+                : system.actorOf(Requester.props(), "requester");
+
+        BenchmarkSupport.bootstrap(g, nodes, settings.getStarterId(), requester, Requester.REQUESTER_ID);
+        // Wait for the INITIALIZE messages to reach every node
+        Thread.sleep(settings.getBootstrapDelay() + 500);
+        random = new SplittableRandom(42);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkSupport.shutdown(system);
+    }
+
+    @Benchmark
+    public void acquire() {
+        ActorRef target = nodes.get(random.nextInt(nodes.size()));
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        requester.tell(new Requester.Acquire(target, done), ActorRef.noSender());
+        done.join();
+    }
+}
@@ -0,0 +1,191 @@
+package it.unitn.ds1.benchmark;
+
+import it.unitn.ds1.protocol.ProtocolEffects;
+import it.unitn.ds1.protocol.RaymondStateMachine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of the protocol logic of a single node, without the actor
+ * around it. The scenarios are the ones of {@link NodeHandlerBenchmark}, so
+ * the difference between the two is the cost of the actor, of the messages and
+ * of the metrics.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RaymondStateMachineBenchmark {
+
+    private static final int NODE_ID = 0;
+    private static final int A_ID = 1;
+    private static final int B_ID = 2;
+
+    /**
+     * Effects that only count the messages, so that they are not optimized
+     * away.
+     */
+    static class CountingEffects implements ProtocolEffects {
+
+        long messages = 0;
+
+        @Override
+        public void sendRequest(int from, int to) {
+            messages++;
+        }
+
+        @Override
+        public void sendPrivilege(int from, int to) {
+            messages++;
+        }
+
+        @Override
+        public void sendInitialize(int from, int to) {
+            messages++;
+        }
+
+        @Override
+        public void sendRestart(int from, int to) {
+            messages++;
+        }
+
+        @Override
+        public void sendAdvise(int from, int to, int flags) {
+            messages++;
+        }
+
+        @Override
+        public void sendCancel(int from, int to) {
+            messages++;
+        }
+
+        @Override
+        public void enterCriticalSection(int node) {
+        }
+
+        @Override
+        public void recoveryCompleted(int node, int holder) {
+        }
+    }
+
+    /**
+     * A node with neighbors A and B, whose holder is initially A.
+     */
+    @State(Scope.Thread)
+    public static class RelayState {
+
+        CountingEffects effects;
+        RaymondStateMachine node;
+        /**
+         * The neighbor holding the privilege and the one asking for it.
+         */
+        int holder;
+        int requester;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            effects = new CountingEffects();
+            node = new RaymondStateMachine(NODE_ID, new int[]{A_ID, B_ID}, effects);
+            node.onInitialize(A_ID);
+            holder = A_ID;
+            requester = B_ID;
+        }
+    }
+
+    /**
+     * A node with neighbors A and B that holds the privilege.
+     */
+    @State(Scope.Thread)
+    public static class RootState {
+
+        CountingEffects effects;
+        RaymondStateMachine node;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            effects = new CountingEffects();
+            node = new RaymondStateMachine(NODE_ID, new int[]{A_ID, B_ID}, effects);
+            node.onInitialize(NODE_ID);
+        }
+    }
+
+    /**
+     * A node with many neighbors, all of them waiting in its request queue
+     * for the privilege, which is held by the first neighbor.
+     */
+    @State(Scope.Thread)
+    public static class HubState {
+
+        @Param({"1000"})
+        public int degree;
+
+        CountingEffects effects;
+        RaymondStateMachine node;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            int[] neighbors = new int[degree];
+            for (int i = 0; i < degree; i++) {
+                neighbors[i] = i + 1;
+            }
+            effects = new CountingEffects();
+            node = new RaymondStateMachine(NODE_ID, neighbors, effects);
+            node.onInitialize(1);
+            for (int i = 2; i <= degree; i++) {
+                node.onRequest(i);
+            }
+        }
+    }
+
+    /**
+     * A REQUEST message from a neighbor, which is enqueued and forwarded to the
+     * holder, followed by the PRIVILEGE message from the holder, which is
+     * relayed to the requesting neighbor. The roles of the two neighbors are
+     * swapped at every invocation, so the node always returns to the same
+     * state.
+     */
+    @Benchmark
+    public long requestAndPrivilege(RelayState s) {
+        s.node.onRequest(s.requester);
+        s.node.onPrivilege(s.holder);
+
+        int tmp = s.holder;
+        s.holder = s.requester;
+        s.requester = tmp;
+        return s.effects.messages;
+    }
+
+    /**
+     * The ADVISE messages of both neighbors, which make the node complete a
+     * recovery.
+     */
+    @Benchmark
+    public long adviseRound(RootState s) {
+        s.node.onAdvise(A_ID, RaymondStateMachine.X_HOLDER);
+        s.node.onAdvise(B_ID, RaymondStateMachine.X_HOLDER);
+        return s.effects.messages;
+    }
+
+    /**
+     * A RESTART message from the neighbor at the end of the request queue of
+     * a hub, which checks whether the neighbor is in the queue.
+     */
+    @Benchmark
+    public long restartFromQueuedNeighbor(HubState s) {
+        s.node.onRestart(s.degree);
+        return s.effects.messages;
+    }
+
+    /**
+     * A local request served by the node holding the privilege, and the exit
+     * from the critical section.
+     */
+    @Benchmark
+    public long localCriticalSection(RootState s) {
+        s.node.onLocalRequest();
+        s.node.onExitCriticalSection();
+        return s.effects.messages;
+    }
+}
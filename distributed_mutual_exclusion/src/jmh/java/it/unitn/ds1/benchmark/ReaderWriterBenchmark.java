@@ -0,0 +1,104 @@
+package it.unitn.ds1.benchmark;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import it.unitn.ds1.DistributedMutualExclusion;
+import it.unitn.ds1.Settings;
+import it.unitn.ds1.lock.DistributedLock;
+import it.unitn.ds1.lock.LockLease;
+import it.unitn.ds1.network.Graph;
+import it.unitn.ds1.network.ReaderWriterNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many critical sections per second the reader-writer nodes grant
+ * as the fraction of shared acquisitions grows. Each invocation asks random
+ * nodes for the critical section at the same time, and each client keeps it
+ * for a millisecond, so the readers gain from being in it together.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ReaderWriterBenchmark {
+
+    /**
+     * The number of acquisitions of an invocation.
+     */
+    private static final int BATCH = 64;
+    /**
+     * Number of microseconds a client keeps the critical section.
+     */
+    private static final long HOLD_TIME = 1000;
+
+    @Param({"tree1"})
+    public String topology;
+
+    @Param({"0", "0.5", "0.9", "1"})
+    public double readFraction;
+
+    private ActorSystem system;
+    private List<ActorRef> nodes;
+    private DistributedLock lock;
+    private ScheduledExecutorService timer;
+    private SplittableRandom random;
+    private final CompletableFuture<?>[] batch = new CompletableFuture<?>[BATCH];
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, InterruptedException {
+        BenchmarkSupport.silenceLogging();
+        system = ActorSystem.create("benchmark");
+        timer = Executors.newSingleThreadScheduledExecutor();
+
+        Settings settings = Settings.load(new String[]{"--topology=" + topology, "--protocol-tracing=off"});
+        Graph g = DistributedMutualExclusion.createStructure(settings);
+        nodes = new ArrayList<>();
+        for (int i = 0; i < g.getNumberOfNodes(); i++) {
+            nodes.add(system.actorOf(ReaderWriterNode.props(i, settings), "node" + i));
+        }
+        lock = new DistributedLock(nodes, system);
+
+        BenchmarkSupport.bootstrap(g, nodes, settings.getStarterId());
+        // Wait for the INITIALIZE messages to reach every node
+        Thread.sleep(settings.getBootstrapDelay() + 500);
+        random = new SplittableRandom(42);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        timer.shutdown();
+        BenchmarkSupport.shutdown(system);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void acquireAndRelease() {
+        for (int i = 0; i < BATCH; i++) {
+            int nodeId = random.nextInt(nodes.size());
+            CompletionStage<LockLease> granted = random.nextDouble() < readFraction
+                    ? lock.acquireShared(nodeId)
+                    : lock.acquire(nodeId);
+            batch[i] = granted.thenCompose(lease -> {
+                CompletableFuture<Void> released = new CompletableFuture<>();
+                timer.schedule(() -> {
+                    lease.release();
+                    released.complete(null);
+                }, HOLD_TIME, TimeUnit.MICROSECONDS);
+                return released;
+            }).toCompletableFuture();
+        }
+        CompletableFuture.allOf(batch).join();
+    }
+}
@@ -0,0 +1,81 @@
+package it.unitn.ds1.benchmark;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.Props;
+import it.unitn.ds1.messages.InitializeMessage;
+import it.unitn.ds1.messages.PrivilegeMessage;
+import it.unitn.ds1.messages.RequestMessage;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Represents a client that is attached to the tree from the outside: it is a
+ * neighbor of every node and behaves as a leaf of whatever node it is asking
+ * the privilege to. It sends a
+ * REQUEST message to the target node and completes the pending acquisition as
+ * soon as the PRIVILEGE message arrives; the privilege is kept until a node
+ * asks it back with a REQUEST message.
+ */
+class Requester extends AbstractActor {
+
+    /**
+     * The id used as sender id of the messages of the requester. It does not
+     * clash with the id of any node.
+     */
+    static final int REQUESTER_ID = Integer.MAX_VALUE;
+
+    private static final RequestMessage REQUEST = new RequestMessage(REQUESTER_ID);
+    private static final PrivilegeMessage PRIVILEGE = new PrivilegeMessage(REQUESTER_ID);
+
+    /**
+     * The acquisition that is waiting for the privilege.
+     */
+    private CompletableFuture<Void> pending = null;
+
+    static Props props() {
+        return Props.create(Requester.class, Requester::new);
+    }
+
+    @Override
+    public Receive createReceive() {
+        return receiveBuilder()
+                .match(Acquire.class, this::onAcquire)
+                // The requester never holds the privilege at the start
+                .match(InitializeMessage.class, msg -> {
+                })
+                .match(RequestMessage.class, this::onRequestMessage)
+                .match(PrivilegeMessage.class, this::onPrivilegeMessage)
+                .build();
+    }
+
+    private void onAcquire(Acquire msg) {
+        pending = msg.done;
+        msg.target.tell(REQUEST, getSelf());
+    }
+
+    private void onRequestMessage(RequestMessage msg) {
+        // A node wants the privilege back: the requester is its holder
+        getSender().tell(PRIVILEGE, getSelf());
+    }
+
+    private void onPrivilegeMessage(PrivilegeMessage msg) {
+        CompletableFuture<Void> done = pending;
+        pending = null;
+        done.complete(null);
+    }
+
+    /**
+     * Asks the requester to acquire the privilege through a given node.
+     */
+    static class Acquire {
+
+        private final ActorRef target;
+        private final CompletableFuture<Void> done;
+
+        Acquire(ActorRef target, CompletableFuture<Void> done) {
+            this.target = target;
+            this.done = done;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package it.unitn.ds1.benchmark;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import it.unitn.ds1.DistributedMutualExclusion;
+import it.unitn.ds1.Settings;
+import it.unitn.ds1.lock.DistributedLock;
+import it.unitn.ds1.lock.LockLease;
+import it.unitn.ds1.lock.ShardedLock;
+import it.unitn.ds1.network.Graph;
+import it.unitn.ds1.network.MultiLockNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the aggregate critical sections per second of a {@link ShardedLock}
+ * as the number of shards grows. Each invocation asks random nodes for random
+ * names at the same time and waits for every lease to be released. With
+ * roots=starter every shard starts at the starter, as a single token tree
+ * would, while with roots=spread the shards start at the roots chosen by
+ * {@link ShardedLock#roots}.
+ *
+ * With holdTime=0 the clients release the lease at once, so the throughput is
+ * bound by the messages the nodes handle, and a shard serves fewer queued
+ * requests per trip of its privilege as the shards grow. With a hold time the
+ * throughput is bound by the critical sections, which the shards run in
+ * parallel.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ShardedLockBenchmark {
+
+    /**
+     * The number of acquisitions of an invocation.
+     */
+    private static final int BATCH = 256;
+    private static final int N_NAMES = 4096;
+
+    @Param({"1", "4", "16", "64"})
+    public int shards;
+
+    @Param({"spread", "starter"})
+    public String roots;
+
+    /**
+     * Number of microseconds a client keeps the critical section.
+     */
+    @Param({"0", "1000"})
+    public long holdTime;
+
+    private ActorSystem system;
+    private List<ActorRef> nodes;
+    private ShardedLock lock;
+    private ScheduledExecutorService timer;
+    private SplittableRandom random;
+    private final String[] names = new String[N_NAMES];
+    private final CompletableFuture<?>[] batch = new CompletableFuture<?>[BATCH];
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, InterruptedException {
+        BenchmarkSupport.silenceLogging();
+        system = ActorSystem.create("benchmark");
+        timer = Executors.newSingleThreadScheduledExecutor();
+
+        Settings settings = Settings.load(new String[]{"--topology=kary", "--n-nodes=1023",
+                "--protocol-tracing=off"});
+        Graph g = DistributedMutualExclusion.createStructure(settings);
+        int[] shardRoots = ShardedLock.roots(g, shards, settings.getStarterId());
+        if (roots.equals("starter")) {
+            Arrays.fill(shardRoots, settings.getStarterId());
+        }
+        nodes = new ArrayList<>();
+        for (int i = 0; i < g.getNumberOfNodes(); i++) {
+            nodes.add(system.actorOf(MultiLockNode.props(i, settings, shardRoots), "node" + i));
+        }
+        lock = new ShardedLock(new DistributedLock(nodes, system), shards);
+
+        BenchmarkSupport.bootstrap(g, nodes, settings.getStarterId());
+        // Wait for the INITIALIZE messages of every shard to reach every node
+        Thread.sleep(settings.getBootstrapDelay() + 500 + 10L * shards);
+        random = new SplittableRandom(42);
+        for (int i = 0; i < N_NAMES; i++) {
+            names[i] = "lock-" + i;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        timer.shutdown();
+        BenchmarkSupport.shutdown(system);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void acquireAndRelease() {
+        for (int i = 0; i < BATCH; i++) {
+            CompletionStage<LockLease> granted = lock.acquire(random.nextInt(nodes.size()),
+                    names[random.nextInt(N_NAMES)]);
+            if (holdTime == 0) {
+                batch[i] = granted.thenAccept(lease -> lease.release()).toCompletableFuture();
+            } else {
+                batch[i] = granted.thenCompose(lease -> {
+                    CompletableFuture<Void> released = new CompletableFuture<>();
+                    timer.schedule(() -> {
+                        lease.release();
+                        released.complete(null);
+                    }, holdTime, TimeUnit.MICROSECONDS);
+                    return released;
+                }).toCompletableFuture();
+            }
+        }
+        CompletableFuture.allOf(batch).join();
+    }
+}
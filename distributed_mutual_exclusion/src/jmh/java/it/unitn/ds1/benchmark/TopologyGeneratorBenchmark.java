@@ -0,0 +1,41 @@
+package it.unitn.ds1.benchmark;
+
+import it.unitn.ds1.DistributedMutualExclusion;
+import it.unitn.ds1.Settings;
+import it.unitn.ds1.network.Graph;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time needed to generate the topology of a large network and to
+ * compact it in the form read by the bootstrap.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+@State(Scope.Thread)
+public class TopologyGeneratorBenchmark {
+
+    @Param({"line", "kary", "random", "star", "caterpillar", "low-diameter"})
+    public String topology;
+
+    @Param({"1000000"})
+    public int nNodes;
+
+    private Settings settings;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        settings = Settings.load(new String[]{"--topology=" + topology, "--n-nodes=" + nNodes});
+    }
+
+    @Benchmark
+    public int[] generate() throws IOException {
+        Graph g = DistributedMutualExclusion.createStructure(settings);
+        return g.getTargets();
+    }
+}
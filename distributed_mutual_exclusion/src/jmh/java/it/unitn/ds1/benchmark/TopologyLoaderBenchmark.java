@@ -0,0 +1,55 @@
+package it.unitn.ds1.benchmark;
+
+import it.unitn.ds1.network.Graph;
+import it.unitn.ds1.network.TopologyGenerator;
+import it.unitn.ds1.network.TopologyLoader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time needed to load a large topology from an edge list file and
+ * to validate it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+@State(Scope.Thread)
+public class TopologyLoaderBenchmark {
+
+    @Param({"1000000"})
+    public int nNodes;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Graph g = TopologyGenerator.randomRecursiveTree(nNodes, 42);
+        file = Files.createTempFile("topology", ".txt");
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            for (int u = 0; u < nNodes; u++) {
+                for (int v : g.getNeighbors(u)) {
+                    if (u < v) {
+                        out.write(u + " " + v + "\n");
+                    }
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public Graph load() throws IOException {
+        return TopologyLoader.load(file);
+    }
+}
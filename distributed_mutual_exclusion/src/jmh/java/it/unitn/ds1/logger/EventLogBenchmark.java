@@ -0,0 +1,42 @@
+package it.unitn.ds1.logger;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many events per second the nodes can append to the binary
+ * event log, from several threads at once.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class EventLogBenchmark {
+
+    private Path file;
+    private BinaryEventLog events;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        file = Files.createTempFile("events", ".bin");
+        events = new BinaryEventLog(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        events.close();
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public void append() {
+        events.append(EventType.REQUEST_RECEIVED, 42, 7, 3);
+    }
+}
@@ -0,0 +1,37 @@
+package it.unitn.ds1.logger;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Formatter;
+import java.util.logging.LogRecord;
+
+/**
+ * Measures how many records per second the HTML formatter formats, comparing
+ * the current MyHtmlFormatter with the first implementation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HtmlFormatterBenchmark {
+
+    @Param({"legacy", "current"})
+    public String formatter;
+
+    private Formatter htmlFormatter;
+    private LogRecord record;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        htmlFormatter = formatter.equals("legacy") ? new LegacyHtmlFormatter() : new MyHtmlFormatter();
+        record = new LogRecord(java.util.logging.Level.INFO, "REQUEST message received by node 42 from node 7");
+    }
+
+    @Benchmark
+    public String format() {
+        return htmlFormatter.format(record);
+    }
+}
@@ -0,0 +1,48 @@
+package it.unitn.ds1.logger;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * The first implementation of MyHtmlFormatter.format, kept as the baseline of
+ * HtmlFormatterBenchmark.
+ */
+class LegacyHtmlFormatter extends Formatter {
+
+    @Override
+    public String format(LogRecord record) {
+        StringBuffer buf = new StringBuffer(1000);
+        buf.append("<tr>\n");
+
+        // colorize any levels >= WARNING in red
+        if (record.getLevel().intValue() >= Level.WARNING.intValue()) {
+            buf.append("\t<td style=\"color:red\">");
+            buf.append("<b>");
+            buf.append(record.getLevel());
+            buf.append("</b>");
+        } else {
+            buf.append("\t<td>");
+            buf.append(record.getLevel());
+        }
+
+        buf.append("</td>\n");
+        buf.append("\t<td>");
+        buf.append(calcDate(record.getMillis()));
+        buf.append("</td>\n");
+        buf.append("\t<td>");
+        buf.append(formatMessage(record));
+        buf.append("</td>\n");
+        buf.append("</tr>\n");
+
+        return buf.toString();
+    }
+
+    private String calcDate(long millisecs) {
+        SimpleDateFormat date_format = new SimpleDateFormat("MMM dd,yyyy HH:mm");
+        Date resultdate = new Date(millisecs);
+        return date_format.format(resultdate);
+    }
+}
@@ -2,16 +2,25 @@ package it.unitn.ds1;
 
 import akka.actor.ActorRef;
 import akka.actor.ActorSystem;
+import akka.actor.Cancellable;
+import scala.concurrent.duration.Duration;
 
 import java.io.*;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import it.unitn.ds1.messages.Bootstrap;
 import it.unitn.ds1.messages.UserInput;
 import it.unitn.ds1.network.Graph;
 import it.unitn.ds1.network.Node;
+import it.unitn.ds1.network.TopologyGenerator;
+import it.unitn.ds1.network.TopologyLoader;
+import it.unitn.ds1.load.LoadGenerator;
+import it.unitn.ds1.lock.DistributedLock;
 import it.unitn.ds1.logger.MyLogger;
+import it.unitn.ds1.metrics.MetricsRegistry;
 
 /**
  * Represents the class where the actor system is created and the user interface
@@ -20,13 +29,9 @@ import it.unitn.ds1.logger.MyLogger;
 public class DistributedMutualExclusion {
 
     /**
-     * The number of nodes in the network.
+     * The number of nodes of the predefined topologies Tree1, Tree2, Tree3.
      */
-    public final static int N_NODES = 10;
-    /**
-     * The identifier of the node chosen as the initial privileged
-     */
-    public static final int INITIAL_PRIVILEGED_NODE_ID = 0;
+    public final static int STRUCTURE_N_NODES = 10;
     /**
      * The identifier of the command to issue a request to a node.
      */
@@ -35,19 +40,6 @@ public class DistributedMutualExclusion {
      * The identifier of the command to issue a crash to a node.
      */
     public final static int CRASH_COMMAND = 1;
-    /**
-     * Number of milliseconds the starter has to wait before beginning the
-     * initialization of the protocol.
-     */
-    public final static int BOOTSTRAP_DELAY = 200 * N_NODES;
-    /**
-     * Number of milliseconds a node is within the critical section.
-     */
-    public final static int CRITICAL_SECTION_TIME = 15000;
-    /**
-     * Number of milliseconds between the crash and the recovery.
-     */
-    public final static int CRASH_TIME = 15000;
     /**
      * The file path containing the commands to be executed.
      */
@@ -57,8 +49,8 @@ public class DistributedMutualExclusion {
      * Creates a tree topology of the network. (See image Tree1)
      */
     public static Graph createStructureTree1() {
-        // Creating graph with N_NODES vertices
-        Graph g = new Graph(N_NODES);
+        // Creating graph with STRUCTURE_N_NODES vertices
+        Graph g = new Graph(STRUCTURE_N_NODES);
 
         // Adding edges one by one
         g.addEdge(0, 1);
@@ -76,21 +68,17 @@ public class DistributedMutualExclusion {
 
     /**
      * Creates a line topology (see image Line)
+     *
+     * @param nNodes The number of nodes in the network.
      */
-    public static Graph createStructureLine() {
-        // Creating graph with N_NODES vertices
-        Graph g = new Graph(N_NODES);
+    public static Graph createStructureLine(int nNodes) {
+        // Creating graph with nNodes vertices
+        Graph g = new Graph(nNodes);
 
         // Adding edges one by one
-        g.addEdge(0, 1);
-        g.addEdge(1, 2);
-        g.addEdge(2, 3);
-        g.addEdge(3, 4);
-        g.addEdge(4, 5);
-        g.addEdge(5, 6);
-        g.addEdge(6, 7);
-        g.addEdge(7, 8);
-        g.addEdge(8, 9);
+        for (int i = 1; i < nNodes; i++) {
+            g.addEdge(i - 1, i);
+        }
 
         return g;
     }
@@ -99,8 +87,8 @@ public class DistributedMutualExclusion {
      * Creates a (binary) tree topology (see image Tree2)
      */
     public static Graph createStructureTree2() {
-        // Creating graph with N_NODES vertices
-        Graph g = new Graph(N_NODES);
+        // Creating graph with STRUCTURE_N_NODES vertices
+        Graph g = new Graph(STRUCTURE_N_NODES);
 
         // Adding edges one by one
         g.addEdge(0, 1);
@@ -120,8 +108,8 @@ public class DistributedMutualExclusion {
      * Creates a unbalanced tree topology (see image Tree3)
      */
     public static Graph createStructureTree3() {
-        // Creating graph with N_NODES vertices
-        Graph g = new Graph(N_NODES);
+        // Creating graph with STRUCTURE_N_NODES vertices
+        Graph g = new Graph(STRUCTURE_N_NODES);
 
         // Adding edges one by one
         g.addEdge(0, 1);
@@ -137,14 +125,58 @@ public class DistributedMutualExclusion {
         return g;
     }
 
+    /**
+     * Creates the topology of the network described by the settings.
+     *
+     * @param settings The settings of the application.
+     * @return The graph describing the topology.
+     * @throws IOException If the topology file cannot be read.
+     * @throws IllegalArgumentException If the topology is not known or it
+     * does not support the given number of nodes.
+     */
+    public static Graph createStructure(Settings settings) throws IOException, IllegalArgumentException {
+        String topology = settings.getTopology();
+        int nNodes = settings.getNumberOfNodes();
+        switch (topology) {
+            case "line":
+                return createStructureLine(nNodes);
+            case "kary":
+                return TopologyGenerator.karyTree(nNodes, settings.getBranchingFactor());
+            case "random":
+                return TopologyGenerator.randomRecursiveTree(nNodes, settings.getSeed());
+            case "star":
+                return TopologyGenerator.star(nNodes);
+            case "caterpillar":
+                return TopologyGenerator.caterpillar(nNodes, settings.getSpineLength());
+            case "low-diameter":
+                return TopologyGenerator.lowDiameterSpanningTree(nNodes, settings.getRandomGraphDegree(), settings.getSeed());
+            case "file":
+                return TopologyLoader.load(Paths.get(settings.getTopologyFile()));
+        }
+        if (nNodes != STRUCTURE_N_NODES) {
+            throw new IllegalArgumentException("Topology " + topology + " requires " + STRUCTURE_N_NODES + " nodes");
+        }
+        switch (topology) {
+            case "tree1":
+                return createStructureTree1();
+            case "tree2":
+                return createStructureTree2();
+            case "tree3":
+                return createStructureTree3();
+            default:
+                throw new IllegalArgumentException("Unknown topology " + topology);
+        }
+    }
+
     /**
      * Checks if the identifier of the node is valid.
      *
      * @param nodeId The identifier of the node.
+     * @param nNodes The number of nodes in the network.
      * @throws IllegalArgumentException If the identifier of the node is not valid.
      */
-    public static void checkId(int nodeId) throws IllegalArgumentException {
-        if (!(nodeId < N_NODES & nodeId >= 0)) {
+    public static void checkId(int nodeId, int nNodes) throws IllegalArgumentException {
+        if (!(nodeId < nNodes & nodeId >= 0)) {
             throw new IllegalArgumentException();
         }
     }
@@ -187,9 +219,10 @@ public class DistributedMutualExclusion {
      * Displays the user interface.
      *
      * @param nodes List of actors representing the nodes of the network
+     * @param topology The name of the topology of the network
      * @throws IOException
      */
-    public static void userInterface(List<ActorRef> nodes) throws IOException {
+    public static void userInterface(List<ActorRef> nodes, String topology) throws IOException {
         // Handle command line input
         BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
         boolean close = false;
@@ -197,6 +230,7 @@ public class DistributedMutualExclusion {
                 + "- 'r' to send a request\n"
                 + "- 'c' to crash a node\n"
                 + "- 'f' to issue commands from a file\n"
+                + "- 'l' to print the critical section latency\n"
                 + "- 'q' to quit\n"
                 + "Your choice:";
 
@@ -213,7 +247,7 @@ public class DistributedMutualExclusion {
                 while (!readValidNumber) {
                     try {
                         int nodeId = Integer.parseInt(in.readLine());
-                        checkId(nodeId);
+                        checkId(nodeId, nodes.size());
                         readValidNumber = true;
 
                         try {
@@ -225,9 +259,11 @@ public class DistributedMutualExclusion {
                             System.out.println("Unknown command");
                         }
                     } catch (IllegalArgumentException ex) {
-                        System.out.println("Incorrect ID number. Please enter an integer value between 0 and " + (N_NODES - 1));
+                        System.out.println("Incorrect ID number. Please enter an integer value between 0 and " + (nodes.size() - 1));
                     }
                 }
+            } else if (userInput.equals("l")) {
+                System.out.println(MetricsRegistry.getInstance().getLatencyReport(topology));
             } else if (userInput.equals("f")) {
                 File file = new File(COMMANDS_FILENAME);
                 BufferedReader br = new BufferedReader(new FileReader(file));
@@ -238,7 +274,7 @@ public class DistributedMutualExclusion {
                         String[] split = line.split("\\s+");
                         String command = split[0];
                         int nodeId = Integer.parseInt(split[1]);
-                        checkId(nodeId);
+                        checkId(nodeId, nodes.size());
 
                         try {
                             UserInput msg = getCommand(command);
@@ -255,65 +291,133 @@ public class DistributedMutualExclusion {
                 System.out.println("Unknown command. Please try again");
             }
         } while (!close);
+        System.out.println(MetricsRegistry.getInstance().getLatencyReport(topology));
         System.out.println("Closing application...");
         in.close();
     }
 
+    /**
+     * Sends the bootstrap messages to the nodes to inform them of their
+     * neighbors. The starter is the last one, so that every node knows its
+     * neighbors before the INITIALIZE message reaches it.
+     *
+     * @param g The graph describing the topology.
+     * @param nodes The actors representing the nodes, indexed by id.
+     * @param starterId The id of the initial privileged node.
+     */
+    public static void bootstrap(Graph g, List<ActorRef> nodes, int starterId) {
+        int nNodes = nodes.size();
+        for (int i = 1; i <= nNodes; i++) {
+            int nodeId = (starterId + i) % nNodes;
+
+            // Get the identifiers of the neighbors
+            int[] neighborsId = g.getNeighbors(nodeId);                          // Array of neighbors ID
+            List<ActorRef> neighbors = new ArrayList<>(neighborsId.length);     // List of neighbors ActorRef
+
+            for (int neighborId : neighborsId) {
+                ActorRef neighbor = nodes.get(neighborId);
+                neighbors.add(neighbor);
+            }
+
+            // Create a bootstrap message containing the neighbors and a flag used to
+            // inform the initial privileged node
+            Bootstrap start = new Bootstrap(neighbors, neighborsId, nodeId == starterId);
+            // Send the bootstrap message
+            nodes.get(nodeId).tell(start, null);
+        }
+    }
+
+    /**
+     * Writes a snapshot of the metrics of the nodes.
+     *
+     * @param out The writer of the metrics file.
+     */
+    private static void writeMetrics(Writer out) {
+        // A scheduled snapshot may still be running when the last one is written
+        synchronized (out) {
+            try {
+                MetricsRegistry.getInstance().writeSnapshot(out, System.currentTimeMillis());
+                out.flush();
+            } catch (IOException e) {
+                System.err.println("WARNING: cannot write the metrics: " + e.getMessage());
+            }
+        }
+    }
+
     /**
      * Creates the actor system representing a computer network of nodes
      *
-     * @param args
+     * @param args Flags of the form --key=value overriding the settings in
+     * application.conf
      */
-    public static void main(String[] args) throws IOException {
+    public static void main(String[] args) throws IOException, InterruptedException {
+
+        Settings settings = Settings.load(args);
 
         try {
-            MyLogger.setup();
+            MyLogger.setup(settings);
         } catch (IOException e) {
             e.printStackTrace();
             throw new RuntimeException("Problems with creating the log files");
         }
 
+        // Define the tree topology
+        Graph g = createStructure(settings);
+        if (settings.isPrintTopology()) {
+            g.printAdjacencyList();
+        }
+        System.out.println("Topology " + settings.getTopology() + " with " + g.getNumberOfNodes()
+                + " nodes and diameter " + g.getDiameter());
+
         // Create the actor system
         final ActorSystem system = ActorSystem.create("helloakka");
+        MetricsRegistry.getInstance().setJmxNodeLimit(settings.getMetricsJmxNodeLimit());
 
-        // Create nodes
-        List<ActorRef> nodes = new ArrayList<>();
-        for (int i = 0; i < N_NODES; i++) {
-            nodes.add(system.actorOf(Node.props(i), "node" + i));
+        // Create nodes. The topology file determines the number of nodes
+        int nNodes = g.getNumberOfNodes();
+        List<ActorRef> nodes = new ArrayList<>(nNodes);
+        for (int i = 0; i < nNodes; i++) {
+            nodes.add(system.actorOf(Node.props(i, settings), "node" + i));
         }
 
-        // Define the tree topology
-        Graph g = createStructureTree1();
-        // Graph g = createStructureLine();
-        // Graph g = createStructureTree2();
-        // Graph g = createStructureTree3();
-        g.printAdjacencyList();
-
-        // Send boostrap messages to the nodes to inform them of their neighbors
-        for (int nodeId = 0; nodeId < N_NODES; nodeId++) {
-            // Get the identifiers of the neighbors
-            ArrayList<Integer> neighborsId = g.getAdjacencyList(nodeId);    // List of neighbors ID
-            List<ActorRef> neighbors = new ArrayList<>();                   // List of neighbors ActorRef
+        int starterId = settings.getStarterId();
+        checkId(starterId, nNodes);
+        // Inform the nodes of their neighbors
+        bootstrap(g, nodes, starterId);
+
+        // Write the metrics of the nodes periodically
+        Writer metricsOut = null;
+        Cancellable metricsDump = null;
+        long dumpInterval = settings.getMetricsDumpInterval();
+        if (dumpInterval > 0) {
+            metricsOut = new BufferedWriter(new FileWriter(settings.getMetricsDumpFile()));
+            metricsOut.write(MetricsRegistry.CSV_HEADER + "\n");
+            final Writer out = metricsOut;
+            metricsDump = system.scheduler().schedule(
+                    Duration.create(dumpInterval, TimeUnit.MILLISECONDS),
+                    Duration.create(dumpInterval, TimeUnit.MILLISECONDS),
+                    () -> writeMetrics(out),
+                    system.dispatcher()
+            );
+        }
 
-            for (int neighborId : neighborsId) {
-                ActorRef neighbor = nodes.get(neighborId);
-                neighbors.add(neighbor);
-            }
+        if (settings.getLoadMode() == LoadGenerator.Mode.OFF) {
+            userInterface(nodes, settings.getTopology());
+        } else {
+            // Wait for the INITIALIZE messages to reach every node
+            Thread.sleep(settings.getBootstrapDelay() + 1000);
+            DistributedLock lock = new DistributedLock(nodes, system);
+            LoadGenerator generator = new LoadGenerator(lock, settings.getTopology(), nNodes, settings);
+            System.out.println(generator.run());
+        }
 
-            // Check if current node is the initial privileged node
-            boolean isStarter = false;
-            if (nodeId == INITIAL_PRIVILEGED_NODE_ID) {
-                isStarter = true;
+        if (metricsOut != null) {
+            metricsDump.cancel();
+            writeMetrics(metricsOut);
+            synchronized (metricsOut) {
+                metricsOut.close();
             }
-
-            // Create a bootstrap message containing the neighbors and a flag used to
-            // inform the initial privileged node
-            Bootstrap start = new Bootstrap(neighbors, isStarter);
-            // Send the bootstrap message
-            nodes.get(nodeId).tell(start, null);
         }
-
-        userInterface(nodes);
         system.terminate();
     }
 }
@@ -0,0 +1,639 @@
+package it.unitn.ds1;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import it.unitn.ds1.load.LoadGenerator;
+import it.unitn.ds1.logger.AsyncFileHandler;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents the settings of the application, read from the
+ * "distributed-mutual-exclusion" block of application.conf and optionally
+ * overridden by command line flags of the form --key=value.
+ */
+public class Settings {
+
+    /**
+     * The path of the block containing the settings in the configuration.
+     */
+    public static final String CONFIG_PATH = "distributed-mutual-exclusion";
+
+    /**
+     * The number of nodes in the network.
+     */
+    private final int nNodes;
+    /**
+     * The name of the tree topology of the network.
+     */
+    private final String topology;
+    /**
+     * The path of the file read by the file topology.
+     */
+    private final String topologyFile;
+    /**
+     * The number of children of each internal node of the kary topology.
+     */
+    private final int branchingFactor;
+    /**
+     * The number of nodes of the spine of the caterpillar topology.
+     */
+    private final int spineLength;
+    /**
+     * The average degree of the random graph of the low-diameter topology.
+     */
+    private final int randomGraphDegree;
+    /**
+     * The seed of the random topologies.
+     */
+    private final long seed;
+    /**
+     * The identifier of the node chosen as the initial privileged.
+     */
+    private final int starterId;
+    /**
+     * Number of milliseconds the starter has to wait before beginning the
+     * initialization of the protocol.
+     */
+    private final long bootstrapDelay;
+    /**
+     * Number of milliseconds a node is within the critical section.
+     */
+    private final long criticalSectionTime;
+    /**
+     * Number of milliseconds between the crash and the recovery.
+     */
+    private final long crashTime;
+    /**
+     * True if the adjacency list of the network is printed at startup.
+     */
+    private final boolean printTopology;
+    /**
+     * True if the nodes log every message they receive.
+     */
+    private final boolean protocolTracing;
+    /**
+     * The maximum number of log records waiting to be written to a file.
+     */
+    private final int logQueueCapacity;
+    /**
+     * The maximum number of log records written at once.
+     */
+    private final int logBatchSize;
+    /**
+     * Maximum number of milliseconds a log record waits before being flushed.
+     */
+    private final long logFlushInterval;
+    /**
+     * What to do with a log record when the queue is full.
+     */
+    private final AsyncFileHandler.OverflowPolicy logOverflowPolicy;
+    /**
+     * The path of the binary event log, empty if it is disabled.
+     */
+    private final String eventLog;
+    /**
+     * Number of milliseconds between two snapshots of the metrics, 0 if they
+     * are disabled.
+     */
+    private final long metricsDumpInterval;
+    /**
+     * The path of the file of the metrics snapshots.
+     */
+    private final String metricsDumpFile;
+    /**
+     * Number of nodes whose metrics are registered as MBeans.
+     */
+    private final int metricsJmxNodeLimit;
+    /**
+     * How the load generator issues the requests, OFF to use the user
+     * interface.
+     */
+    private final LoadGenerator.Mode loadMode;
+    /**
+     * Number of milliseconds the load generator runs.
+     */
+    private final long loadDuration;
+    /**
+     * Requests per second issued by the open-loop load generator.
+     */
+    private final double loadRate;
+    /**
+     * Number of clients of the closed-loop load generator.
+     */
+    private final int loadClients;
+    /**
+     * Mean number of microseconds a closed-loop client waits between a
+     * release and the next request.
+     */
+    private final long loadThinkTime;
+    /**
+     * Number of microseconds a client of the load generator stays in the
+     * critical section.
+     */
+    private final long loadCriticalSectionTime;
+    /**
+     * Number of nodes receiving most of the requests, 0 for uniform load.
+     */
+    private final int loadHotspotNodes;
+    /**
+     * Probability that a request goes to one of the hotspot nodes.
+     */
+    private final double loadHotspotProbability;
+    /**
+     * Number of critical section entries of a simulation.
+     */
+    private final long simulationEntries;
+    /**
+     * Minimum number of microseconds a simulated message takes.
+     */
+    private final long simulationMessageDelay;
+    /**
+     * Mean number of microseconds a simulated message takes in addition to
+     * the minimum.
+     */
+    private final long simulationMessageJitter;
+    /**
+     * Mean number of milliseconds between two simulated crashes, 0 if the
+     * nodes do not crash.
+     */
+    private final long simulationCrashInterval;
+    /**
+     * Number of JVMs the nodes are deployed on by the multi-JVM launcher.
+     */
+    private final int deploymentProcesses;
+    /**
+     * How the nodes are assigned to the JVMs.
+     */
+    private final String deploymentPartitioning;
+    /**
+     * The host the actor systems of the JVMs listen on.
+     */
+    private final String deploymentHost;
+    /**
+     * The port of the first JVM; JVM i listens on the port base + i.
+     */
+    private final int deploymentBasePort;
+    /**
+     * The index of this JVM, 0 for the one that launches the others.
+     */
+    private final int deploymentProcess;
+
+    /**
+     * Creates the Settings from a configuration.
+     *
+     * @param config The configuration containing the settings block.
+     * @throws IllegalArgumentException If the settings are not valid.
+     */
+    public Settings(Config config) throws IllegalArgumentException {
+        Config c = config.getConfig(CONFIG_PATH);
+        this.nNodes = c.getInt("n-nodes");
+        this.topology = c.getString("topology");
+        this.topologyFile = c.getString("topology-file");
+        this.branchingFactor = c.getInt("branching-factor");
+        this.spineLength = c.getInt("spine-length");
+        this.randomGraphDegree = c.getInt("random-graph-degree");
+        this.seed = c.getLong("seed");
+        this.starterId = c.getInt("starter-id");
+        this.bootstrapDelay = c.getDuration("bootstrap-delay", TimeUnit.MILLISECONDS);
+        this.criticalSectionTime = c.getDuration("critical-section-time", TimeUnit.MILLISECONDS);
+        this.crashTime = c.getDuration("crash-time", TimeUnit.MILLISECONDS);
+        this.printTopology = c.getBoolean("print-topology");
+        this.protocolTracing = c.getBoolean("protocol-tracing");
+        this.logQueueCapacity = c.getInt("log-queue-capacity");
+        this.logBatchSize = c.getInt("log-batch-size");
+        this.logFlushInterval = c.getDuration("log-flush-interval", TimeUnit.MILLISECONDS);
+        this.logOverflowPolicy = AsyncFileHandler.OverflowPolicy.valueOf(c.getString("log-overflow-policy").toUpperCase());
+        this.eventLog = c.getString("event-log");
+        this.metricsDumpInterval = c.getDuration("metrics-dump-interval", TimeUnit.MILLISECONDS);
+        this.metricsDumpFile = c.getString("metrics-dump-file");
+        this.metricsJmxNodeLimit = c.getInt("metrics-jmx-node-limit");
+        this.loadMode = LoadGenerator.Mode.valueOf(c.getString("load-mode").toUpperCase());
+        this.loadDuration = c.getDuration("load-duration", TimeUnit.MILLISECONDS);
+        this.loadRate = c.getDouble("load-rate");
+        this.loadClients = c.getInt("load-clients");
+        this.loadThinkTime = c.getDuration("load-think-time", TimeUnit.MICROSECONDS);
+        this.loadCriticalSectionTime = c.getDuration("load-critical-section-time", TimeUnit.MICROSECONDS);
+        this.loadHotspotNodes = c.getInt("load-hotspot-nodes");
+        this.loadHotspotProbability = c.getDouble("load-hotspot-probability");
+        this.simulationEntries = c.getLong("simulation-entries");
+        this.simulationMessageDelay = c.getDuration("simulation-message-delay", TimeUnit.MICROSECONDS);
+        this.simulationMessageJitter = c.getDuration("simulation-message-jitter", TimeUnit.MICROSECONDS);
+        this.simulationCrashInterval = c.getDuration("simulation-crash-interval", TimeUnit.MILLISECONDS);
+        this.deploymentProcesses = c.getInt("deployment-processes");
+        this.deploymentPartitioning = c.getString("deployment-partitioning");
+        this.deploymentHost = c.getString("deployment-host");
+        this.deploymentBasePort = c.getInt("deployment-base-port");
+        this.deploymentProcess = c.getInt("deployment-process");
+
+        if (nNodes <= 0) {
+            throw new IllegalArgumentException("The number of nodes must be positive");
+        }
+        if (starterId < 0 || starterId >= nNodes) {
+            throw new IllegalArgumentException("The starter must be a node between 0 and " + (nNodes - 1));
+        }
+        if (metricsDumpInterval < 0) {
+            throw new IllegalArgumentException("The metrics dump interval cannot be negative");
+        }
+        if (loadRate <= 0 || loadClients <= 0) {
+            throw new IllegalArgumentException("The load rate and the number of load clients must be positive");
+        }
+        if (loadHotspotNodes < 0 || loadHotspotProbability < 0 || loadHotspotProbability > 1) {
+            throw new IllegalArgumentException("Invalid hotspot: the number of nodes cannot be negative and the "
+                    + "probability must be between 0 and 1");
+        }
+        if (deploymentProcesses <= 0) {
+            throw new IllegalArgumentException("The number of processes must be positive");
+        }
+        if (deploymentProcess < 0 || deploymentProcess >= deploymentProcesses) {
+            throw new IllegalArgumentException("The process must be between 0 and " + (deploymentProcesses - 1));
+        }
+    }
+
+    /**
+     * Loads the Settings from application.conf, overriding them with the
+     * command line flags.
+     *
+     * @param args The command line flags, each of the form --key=value where
+     * key is one of the keys of the settings block.
+     * @return The settings of the application.
+     * @throws IllegalArgumentException If a flag or a setting is not valid.
+     */
+    public static Settings load(String[] args) throws IllegalArgumentException {
+        Map<String, String> overrides = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Invalid flag " + arg + ". Flags must be of the form --key=value");
+            }
+            overrides.put(CONFIG_PATH + "." + arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        Config config = ConfigFactory.parseMap(overrides).withFallback(ConfigFactory.load());
+        return new Settings(config);
+    }
+
+    /**
+     * Loads the Settings from application.conf.
+     *
+     * @return The default settings of the application.
+     */
+    public static Settings load() {
+        return load(new String[0]);
+    }
+
+    /**
+     * Gets the number of nodes in the network.
+     *
+     * @return The number of nodes in the network.
+     */
+    public int getNumberOfNodes() {
+        return nNodes;
+    }
+
+    /**
+     * Gets the name of the tree topology of the network.
+     *
+     * @return The name of the topology.
+     */
+    public String getTopology() {
+        return topology;
+    }
+
+    /**
+     * Gets the path of the file read by the file topology.
+     *
+     * @return The path of the topology file.
+     */
+    public String getTopologyFile() {
+        return topologyFile;
+    }
+
+    /**
+     * Gets the number of children of each internal node of the kary topology.
+     *
+     * @return The branching factor.
+     */
+    public int getBranchingFactor() {
+        return branchingFactor;
+    }
+
+    /**
+     * Gets the number of nodes of the spine of the caterpillar topology.
+     *
+     * @return The length of the spine, not positive for the default one.
+     */
+    public int getSpineLength() {
+        return spineLength;
+    }
+
+    /**
+     * Gets the average degree of the random graph of the low-diameter
+     * topology.
+     *
+     * @return The average degree of the random graph.
+     */
+    public int getRandomGraphDegree() {
+        return randomGraphDegree;
+    }
+
+    /**
+     * Gets the seed of the random topologies.
+     *
+     * @return The seed of the random generator.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Gets the identifier of the node chosen as the initial privileged.
+     *
+     * @return The id of the starter of the protocol.
+     */
+    public int getStarterId() {
+        return starterId;
+    }
+
+    /**
+     * Gets the time the starter waits before beginning the initialization of
+     * the protocol.
+     *
+     * @return The bootstrap delay in milliseconds.
+     */
+    public long getBootstrapDelay() {
+        return bootstrapDelay;
+    }
+
+    /**
+     * Gets the time a node is within the critical section.
+     *
+     * @return The critical section time in milliseconds.
+     */
+    public long getCriticalSectionTime() {
+        return criticalSectionTime;
+    }
+
+    /**
+     * Gets the time between the crash and the recovery of a node.
+     *
+     * @return The crash time in milliseconds.
+     */
+    public long getCrashTime() {
+        return crashTime;
+    }
+
+    /**
+     * Gets a boolean that describes if the adjacency list of the network is
+     * printed at startup.
+     *
+     * @return True if the topology is printed, false otherwise.
+     */
+    public boolean isPrintTopology() {
+        return printTopology;
+    }
+
+    /**
+     * Gets a boolean that describes if the nodes log every message they
+     * receive.
+     *
+     * @return True if protocol tracing is enabled, false otherwise.
+     */
+    public boolean isProtocolTracing() {
+        return protocolTracing;
+    }
+
+    /**
+     * Gets the maximum number of log records waiting to be written to a file.
+     *
+     * @return The capacity of the log queue.
+     */
+    public int getLogQueueCapacity() {
+        return logQueueCapacity;
+    }
+
+    /**
+     * Gets the maximum number of log records written at once.
+     *
+     * @return The size of a batch of log records.
+     */
+    public int getLogBatchSize() {
+        return logBatchSize;
+    }
+
+    /**
+     * Gets the maximum time a log record waits before being flushed.
+     *
+     * @return The flush interval in milliseconds.
+     */
+    public long getLogFlushInterval() {
+        return logFlushInterval;
+    }
+
+    /**
+     * Gets what to do with a log record when the queue is full.
+     *
+     * @return The overflow policy of the log queue.
+     */
+    public AsyncFileHandler.OverflowPolicy getLogOverflowPolicy() {
+        return logOverflowPolicy;
+    }
+
+    /**
+     * Gets the path of the binary event log.
+     *
+     * @return The path of the event log, empty if it is disabled.
+     */
+    public String getEventLog() {
+        return eventLog;
+    }
+
+    /**
+     * Gets the time between two snapshots of the metrics.
+     *
+     * @return The dump interval in milliseconds, 0 if the snapshots are
+     * disabled.
+     */
+    public long getMetricsDumpInterval() {
+        return metricsDumpInterval;
+    }
+
+    /**
+     * Gets the path of the file of the metrics snapshots.
+     *
+     * @return The path of the metrics file.
+     */
+    public String getMetricsDumpFile() {
+        return metricsDumpFile;
+    }
+
+    /**
+     * Gets the number of nodes whose metrics are registered as MBeans.
+     *
+     * @return The maximum number of node MBeans.
+     */
+    public int getMetricsJmxNodeLimit() {
+        return metricsJmxNodeLimit;
+    }
+
+    /**
+     * Gets how the load generator issues the requests.
+     *
+     * @return The mode of the load generator, OFF if the requests come from
+     * the user interface.
+     */
+    public LoadGenerator.Mode getLoadMode() {
+        return loadMode;
+    }
+
+    /**
+     * Gets the time the load generator runs.
+     *
+     * @return The duration of the load in milliseconds.
+     */
+    public long getLoadDuration() {
+        return loadDuration;
+    }
+
+    /**
+     * Gets the rate of the open-loop load generator.
+     *
+     * @return The number of requests per second.
+     */
+    public double getLoadRate() {
+        return loadRate;
+    }
+
+    /**
+     * Gets the number of clients of the closed-loop load generator.
+     *
+     * @return The number of clients.
+     */
+    public int getLoadClients() {
+        return loadClients;
+    }
+
+    /**
+     * Gets the mean time a closed-loop client waits between a release and
+     * the next request.
+     *
+     * @return The mean think time in microseconds.
+     */
+    public long getLoadThinkTime() {
+        return loadThinkTime;
+    }
+
+    /**
+     * Gets the time a client of the load generator stays in the critical
+     * section.
+     *
+     * @return The critical section time in microseconds.
+     */
+    public long getLoadCriticalSectionTime() {
+        return loadCriticalSectionTime;
+    }
+
+    /**
+     * Gets the number of nodes receiving most of the requests.
+     *
+     * @return The number of hotspot nodes, 0 for uniform load.
+     */
+    public int getLoadHotspotNodes() {
+        return loadHotspotNodes;
+    }
+
+    /**
+     * Gets the probability that a request goes to one of the hotspot nodes.
+     *
+     * @return The hotspot probability.
+     */
+    public double getLoadHotspotProbability() {
+        return loadHotspotProbability;
+    }
+
+    /**
+     * Gets the number of critical section entries of a simulation.
+     *
+     * @return The number of entries to simulate.
+     */
+    public long getSimulationEntries() {
+        return simulationEntries;
+    }
+
+    /**
+     * Gets the minimum time a simulated message takes.
+     *
+     * @return The message delay in microseconds.
+     */
+    public long getSimulationMessageDelay() {
+        return simulationMessageDelay;
+    }
+
+    /**
+     * Gets the mean time a simulated message takes in addition to the
+     * minimum.
+     *
+     * @return The mean message jitter in microseconds.
+     */
+    public long getSimulationMessageJitter() {
+        return simulationMessageJitter;
+    }
+
+    /**
+     * Gets the mean time between two simulated crashes.
+     *
+     * @return The crash interval in milliseconds, 0 if the nodes do not
+     * crash.
+     */
+    public long getSimulationCrashInterval() {
+        return simulationCrashInterval;
+    }
+
+    /**
+     * Gets the number of JVMs the nodes are deployed on by the multi-JVM
+     * launcher.
+     *
+     * @return The number of processes.
+     */
+    public int getDeploymentProcesses() {
+        return deploymentProcesses;
+    }
+
+    /**
+     * Gets the name of the assignment of the nodes to the JVMs.
+     *
+     * @return The name of the partitioning.
+     */
+    public String getDeploymentPartitioning() {
+        return deploymentPartitioning;
+    }
+
+    /**
+     * Gets the host the actor systems of the JVMs listen on.
+     *
+     * @return The host name or address.
+     */
+    public String getDeploymentHost() {
+        return deploymentHost;
+    }
+
+    /**
+     * Gets the port of the first JVM. The JVM i listens on the port base + i.
+     *
+     * @return The base port.
+     */
+    public int getDeploymentBasePort() {
+        return deploymentBasePort;
+    }
+
+    /**
+     * Gets the index of this JVM.
+     *
+     * @return The index of the process, 0 for the one that launches the
+     * others.
+     */
+    public int getDeploymentProcess() {
+        return deploymentProcess;
+    }
+}
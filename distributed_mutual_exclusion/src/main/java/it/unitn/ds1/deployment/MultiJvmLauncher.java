@@ -0,0 +1,281 @@
+package it.unitn.ds1.deployment;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.pattern.Patterns;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import it.unitn.ds1.DistributedMutualExclusion;
+import it.unitn.ds1.Settings;
+import it.unitn.ds1.load.LoadGenerator;
+import it.unitn.ds1.lock.DistributedLock;
+import it.unitn.ds1.logger.MyLogger;
+import it.unitn.ds1.messages.Shutdown;
+import it.unitn.ds1.messages.StartLoad;
+import it.unitn.ds1.metrics.MetricsRegistry;
+import it.unitn.ds1.network.Graph;
+import it.unitn.ds1.network.Node;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Runs the network on several JVMs of the same host, connected by Akka
+ * remoting, so that the messages between nodes of different JVMs are
+ * serialized and go through the loopback interface.
+ *
+ * The JVM started by the user is process 0: it starts the other processes with
+ * the same flags, each in its own directory processN so that their log files
+ * do not clash. Every process builds the same topology and the same
+ * assignment of the nodes to the processes, and creates its own nodes. Process
+ * 0 then resolves the remote nodes, sends the bootstrap messages and either
+ * shows the user interface or runs the load generator in every process.
+ */
+public class MultiJvmLauncher {
+
+    /**
+     * The name of the actor system of every process.
+     */
+    public static final String SYSTEM_NAME = "dme";
+    /**
+     * Maximum number of milliseconds process 0 waits for another process to
+     * start.
+     */
+    private static final long START_TIMEOUT = 60000;
+    /**
+     * Maximum number of milliseconds process 0 waits for the report of the
+     * load of another process after the end of the load.
+     */
+    private static final long REPORT_TIMEOUT = 60000;
+
+    /**
+     * Creates the actor system of a process, listening on its port.
+     *
+     * @param settings The settings of the application.
+     * @param process The index of the process.
+     * @return The actor system.
+     */
+    static ActorSystem createSystem(Settings settings, int process) {
+        Config remote = ConfigFactory.parseString(
+                "akka.actor.provider = remote\n"
+                        + "akka.remote.netty.tcp.hostname = \"" + settings.getDeploymentHost() + "\"\n"
+                        + "akka.remote.netty.tcp.port = " + (settings.getDeploymentBasePort() + process) + "\n"
+                        // A bootstrap message carries the paths of all the neighbors of a node
+                        + "akka.remote.netty.tcp.maximum-frame-size = 4MiB\n");
+        return ActorSystem.create(SYSTEM_NAME, remote.withFallback(ConfigFactory.load()));
+    }
+
+    /**
+     * Gets the path of an actor of a process.
+     *
+     * @param settings The settings of the application.
+     * @param process The index of the process.
+     * @param name The name of the actor.
+     * @return The path of the actor.
+     */
+    static String path(Settings settings, int process, String name) {
+        return "akka.tcp://" + SYSTEM_NAME + "@" + settings.getDeploymentHost() + ":"
+                + (settings.getDeploymentBasePort() + process) + "/user/" + name;
+    }
+
+    /**
+     * Starts the processes other than process 0, with the same JVM options and
+     * flags. The topology file is passed with its absolute path, because each
+     * process runs in its own directory.
+     *
+     * @param args The flags of process 0.
+     * @param settings The settings of the application.
+     * @return The started processes.
+     * @throws IOException If a process cannot be started.
+     */
+    static List<Process> startProcesses(String[] args, Settings settings) throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        StringBuilder classpath = new StringBuilder();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            if (classpath.length() > 0) {
+                classpath.append(File.pathSeparator);
+            }
+            classpath.append(new File(entry).getAbsolutePath());
+        }
+        String topologyFile = new File(settings.getTopologyFile()).getAbsolutePath();
+
+        List<Process> processes = new ArrayList<>();
+        for (int i = 1; i < settings.getDeploymentProcesses(); i++) {
+            List<String> command = new ArrayList<>();
+            command.add(java);
+            command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+            command.add("-cp");
+            command.add(classpath.toString());
+            command.add(MultiJvmLauncher.class.getName());
+            command.addAll(Arrays.asList(args));
+            command.add("--topology-file=" + topologyFile);
+            command.add("--deployment-process=" + i);
+
+            File directory = new File("process" + i);
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Cannot create the directory " + directory);
+            }
+            processes.add(new ProcessBuilder(command)
+                    .directory(directory)
+                    .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start());
+        }
+        return processes;
+    }
+
+    /**
+     * Resolves the agent of another process, retrying until the process has
+     * started.
+     *
+     * @param system The actor system of process 0.
+     * @param settings The settings of the application.
+     * @param process The index of the process.
+     * @return The agent of the process.
+     * @throws IllegalStateException If the process does not start in time.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    static ActorRef resolveAgent(ActorSystem system, Settings settings, int process)
+            throws IllegalStateException, InterruptedException {
+        String path = path(settings, process, ProcessAgent.NAME);
+        long deadline = System.currentTimeMillis() + START_TIMEOUT;
+        while (true) {
+            try {
+                return system.actorSelection(path).resolveOne(Duration.ofSeconds(1)).toCompletableFuture().join();
+            } catch (CompletionException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IllegalStateException("Process " + process + " did not start", e);
+                }
+                Thread.sleep(200);
+            }
+        }
+    }
+
+    /**
+     * Prints the assignment of the nodes to the processes.
+     *
+     * @param g The graph describing the topology.
+     * @param partition The index of the process of each node.
+     * @param settings The settings of the application.
+     */
+    static void printPartition(Graph g, int[] partition, Settings settings) {
+        int[] sizes = new int[settings.getDeploymentProcesses()];
+        for (int p : partition) {
+            sizes[p]++;
+        }
+        System.out.println("Topology " + settings.getTopology() + " with " + g.getNumberOfNodes()
+                + " nodes on " + sizes.length + " processes (" + settings.getDeploymentPartitioning()
+                + " partitioning): " + Partitioning.cutEdges(g, partition) + " of "
+                + g.getNumberOfEdges() + " edges cross processes, nodes per process "
+                + Arrays.toString(sizes));
+    }
+
+    /**
+     * Starts one of the processes of the deployment.
+     *
+     * @param args Flags of the form --key=value overriding the settings in
+     * application.conf
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Settings settings = Settings.load(args);
+        int process = settings.getDeploymentProcess();
+
+        try {
+            MyLogger.setup(settings);
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new RuntimeException("Problems with creating the log files");
+        }
+
+        // Every process builds the same topology and assignment
+        Graph g = DistributedMutualExclusion.createStructure(settings);
+        int nNodes = g.getNumberOfNodes();
+        int starterId = settings.getStarterId();
+        DistributedMutualExclusion.checkId(starterId, nNodes);
+        int[] partition = Partitioning.create(settings.getDeploymentPartitioning(), g,
+                settings.getDeploymentProcesses(), starterId);
+
+        List<Process> workers = new ArrayList<>();
+        if (process == 0) {
+            printPartition(g, partition, settings);
+            workers = startProcesses(args, settings);
+            final List<Process> started = workers;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> started.forEach(Process::destroy)));
+        }
+
+        // Create the nodes of this process, then the agent
+        final ActorSystem system = createSystem(settings, process);
+        MetricsRegistry.getInstance().setJmxNodeLimit(settings.getMetricsJmxNodeLimit());
+        ActorRef[] nodes = new ActorRef[nNodes];
+        List<ActorRef> localNodes = new ArrayList<>();
+        for (int i = 0; i < nNodes; i++) {
+            if (partition[i] == process) {
+                nodes[i] = system.actorOf(Node.props(i, settings), "node" + i);
+                localNodes.add(nodes[i]);
+            }
+        }
+        system.actorOf(ProcessAgent.props(localNodes, settings), ProcessAgent.NAME);
+
+        if (process != 0) {
+            // Process 0 terminates the actor system through the agent
+            system.getWhenTerminated().toCompletableFuture().join();
+            return;
+        }
+
+        // Resolve the agents, then all the remote nodes at once
+        List<ActorRef> agents = new ArrayList<>();
+        for (int p = 1; p < settings.getDeploymentProcesses(); p++) {
+            agents.add(resolveAgent(system, settings, p));
+        }
+        List<CompletableFuture<ActorRef>> resolving = new ArrayList<>();
+        for (int i = 0; i < nNodes; i++) {
+            if (partition[i] != 0) {
+                resolving.add(system.actorSelection(path(settings, partition[i], "node" + i))
+                        .resolveOne(Duration.ofMillis(START_TIMEOUT)).toCompletableFuture());
+            }
+        }
+        int next = 0;
+        for (int i = 0; i < nNodes; i++) {
+            if (partition[i] != 0) {
+                nodes[i] = resolving.get(next++).join();
+            }
+        }
+        DistributedMutualExclusion.bootstrap(g, Arrays.asList(nodes), starterId);
+
+        if (settings.getLoadMode() == LoadGenerator.Mode.OFF) {
+            // Only the latency of the nodes of process 0 is recorded here
+            DistributedMutualExclusion.userInterface(Arrays.asList(nodes), settings.getTopology());
+        } else {
+            // Wait for the INITIALIZE messages to reach every node
+            Thread.sleep(settings.getBootstrapDelay() + 1000);
+            Duration reportTimeout = Duration.ofMillis(settings.getLoadDuration() + REPORT_TIMEOUT);
+            List<CompletionStage<Object>> reports = new ArrayList<>();
+            for (ActorRef agent : agents) {
+                reports.add(Patterns.ask(agent, StartLoad.getInstance(), reportTimeout));
+            }
+            DistributedLock lock = new DistributedLock(localNodes, system);
+            LoadGenerator generator = new LoadGenerator(lock, settings.getTopology(), localNodes.size(), settings);
+            System.out.println("Process 0: " + generator.run());
+            for (int p = 1; p <= reports.size(); p++) {
+                System.out.println("Process " + p + ": " + reports.get(p - 1).toCompletableFuture().join());
+            }
+        }
+
+        for (ActorRef agent : agents) {
+            agent.tell(Shutdown.getInstance(), ActorRef.noSender());
+        }
+        for (Process worker : workers) {
+            worker.waitFor();
+        }
+        system.terminate();
+    }
+}
@@ -0,0 +1,94 @@
+package it.unitn.ds1.deployment;
+
+import it.unitn.ds1.DistributedMutualExclusion;
+import it.unitn.ds1.Settings;
+import it.unitn.ds1.network.Graph;
+import it.unitn.ds1.network.Subtrees;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compares the assignments of the nodes to the processes on different
+ * topologies, printing in CSV the edges they cut, the nodes of the largest
+ * process relative to an even share, and the expected number of messages per
+ * critical section entry that cross a process boundary.
+ *
+ * The expectation assumes uniform load: the requester and the holder of the
+ * privilege are independent random nodes, so an entry costs a REQUEST and a
+ * PRIVILEGE message on each edge of the path between them. An edge that
+ * splits the tree into s and n - s nodes is on that path with probability
+ * 2 s (n - s) / n^2.
+ *
+ * Usage: PartitionReport [processes] [nodes] [topology...]
+ */
+public class PartitionReport {
+
+    /**
+     * The columns of the report.
+     */
+    public static final String CSV_HEADER = "topology,nodes,processes,partitioning,cut_edges,imbalance,"
+            + "hops_per_entry,remote_hops_per_entry,remote_fraction";
+
+    private static final List<String> PARTITIONINGS = Arrays.asList("subtrees", "preorder", "block", "round-robin");
+
+    public static void main(String[] args) throws IOException {
+        int nProcesses = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int nNodes = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        List<String> topologies = args.length > 2
+                ? Arrays.asList(args).subList(2, args.length)
+                : Arrays.asList("line", "kary", "random", "star", "caterpillar", "low-diameter");
+
+        System.out.println(CSV_HEADER);
+        for (String topology : topologies) {
+            Settings settings = Settings.load(new String[]{"--topology=" + topology, "--n-nodes=" + nNodes});
+            Graph g = DistributedMutualExclusion.createStructure(settings);
+            for (String partitioning : PARTITIONINGS) {
+                int[] process = Partitioning.create(partitioning, g, nProcesses, settings.getStarterId());
+                System.out.println(toCsv(topology, g, nProcesses, partitioning, process, settings.getStarterId()));
+            }
+        }
+    }
+
+    /**
+     * Computes a line of the report.
+     *
+     * @param topology The name of the topology.
+     * @param g The graph describing the topology.
+     * @param nProcesses The number of processes.
+     * @param partitioning The name of the assignment.
+     * @param process The index of the process of each node.
+     * @param root Any node of the tree.
+     * @return The line of the report, without the line terminator.
+     */
+    static String toCsv(String topology, Graph g, int nProcesses, String partitioning, int[] process, int root) {
+        int n = g.getNumberOfNodes();
+        int[] parent = new int[n];
+        int[] size = Subtrees.sizes(Subtrees.visit(g, root, parent), parent);
+
+        // Each edge is identified by its lower endpoint
+        double hops = 0;
+        double remoteHops = 0;
+        for (int u = 0; u < n; u++) {
+            if (parent[u] != Subtrees.NO_PARENT) {
+                double s = size[u];
+                double onPath = 2 * s * (n - s) / ((double) n * n);
+                hops += 2 * onPath;
+                if (process[u] != process[parent[u]]) {
+                    remoteHops += 2 * onPath;
+                }
+            }
+        }
+
+        int[] sizes = new int[nProcesses];
+        for (int p : process) {
+            sizes[p]++;
+        }
+        double imbalance = Arrays.stream(sizes).max().getAsInt() * (double) nProcesses / n;
+        return String.format(Locale.ROOT, "%s,%d,%d,%s,%d,%.3f,%.3f,%.3f,%.4f", topology, n, nProcesses,
+                partitioning, Partitioning.cutEdges(g, process), imbalance, hops, remoteHops,
+                hops == 0 ? 0 : remoteHops / hops);
+    }
+}
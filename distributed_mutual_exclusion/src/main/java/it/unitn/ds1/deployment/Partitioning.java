@@ -0,0 +1,125 @@
+package it.unitn.ds1.deployment;
+
+import it.unitn.ds1.network.Graph;
+import it.unitn.ds1.network.Subtrees;
+
+/**
+ * Assigns the nodes of the network to the JVMs of a multi-JVM deployment. An
+ * assignment is an array that gives the index of the process of each node. A
+ * message between two neighbors crosses a process boundary when they are in
+ * different processes, so the fewer edges are cut, the fewer REQUEST and
+ * PRIVILEGE messages are serialized and sent over the network.
+ */
+public class Partitioning {
+
+    private Partitioning() {
+    }
+
+    /**
+     * Creates the assignment with the given name.
+     *
+     * @param name "subtrees", "preorder", "block" or "round-robin".
+     * @param g The graph describing the topology.
+     * @param nProcesses The number of processes.
+     * @param root The root of the tree for the subtrees and preorder
+     * assignments.
+     * @return The index of the process of each node.
+     * @throws IllegalArgumentException If the name is not known or there are
+     * more processes than nodes.
+     */
+    public static int[] create(String name, Graph g, int nProcesses, int root) throws IllegalArgumentException {
+        int nNodes = g.getNumberOfNodes();
+        if (nProcesses > nNodes) {
+            throw new IllegalArgumentException("The " + nProcesses + " processes cannot be more than the "
+                    + nNodes + " nodes");
+        }
+        switch (name) {
+            case "subtrees":
+                return Subtrees.split(g, nProcesses, root);
+            case "preorder":
+                return preorder(g, nProcesses, root);
+            case "block":
+                return block(nNodes, nProcesses);
+            case "round-robin":
+                return roundRobin(nNodes, nProcesses);
+            default:
+                throw new IllegalArgumentException("Unknown partitioning " + name);
+        }
+    }
+
+    /**
+     * Assigns node i to process i modulo the number of processes. Almost every
+     * edge is cut, so this is the worst case for the remote traffic.
+     *
+     * @param nNodes The number of nodes.
+     * @param nProcesses The number of processes.
+     * @return The index of the process of each node.
+     */
+    public static int[] roundRobin(int nNodes, int nProcesses) {
+        int[] process = new int[nNodes];
+        for (int i = 0; i < nNodes; i++) {
+            process[i] = i % nProcesses;
+        }
+        return process;
+    }
+
+    /**
+     * Assigns ranges of consecutive ids of the same size to the processes. It
+     * keeps the line topology together, but the k-ary tree is numbered level
+     * by level and the random tree in order of insertion, so most of their
+     * edges are cut.
+     *
+     * @param nNodes The number of nodes.
+     * @param nProcesses The number of processes.
+     * @return The index of the process of each node.
+     */
+    public static int[] block(int nNodes, int nProcesses) {
+        int[] process = new int[nNodes];
+        for (int i = 0; i < nNodes; i++) {
+            process[i] = (int) ((long) i * nProcesses / nNodes);
+        }
+        return process;
+    }
+
+    /**
+     * Visits the tree depth-first from a root and assigns ranges of
+     * consecutive nodes of the visit of the same size to the processes. A
+     * range of a preorder is made of whole subtrees plus the path that links
+     * them, whatever the numbering of the nodes.
+     *
+     * @param g The graph describing the topology.
+     * @param nProcesses The number of processes.
+     * @param root The node the visit starts from.
+     * @return The index of the process of each node.
+     */
+    public static int[] preorder(Graph g, int nProcesses, int root) {
+        int nNodes = g.getNumberOfNodes();
+        int[] order = Subtrees.visit(g, root, new int[nNodes]);
+        int[] process = new int[nNodes];
+        for (int i = 0; i < nNodes; i++) {
+            process[order[i]] = (int) ((long) i * nProcesses / nNodes);
+        }
+        return process;
+    }
+
+    /**
+     * Counts the edges whose endpoints are in different processes.
+     *
+     * @param g The graph describing the topology.
+     * @param process The index of the process of each node.
+     * @return The number of cut edges.
+     */
+    public static int cutEdges(Graph g, int[] process) {
+        int[] offsets = g.getOffsets();
+        int[] targets = g.getTargets();
+        int cut = 0;
+        for (int u = 0; u < process.length; u++) {
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                if (u < targets[e] && process[u] != process[targets[e]]) {
+                    cut++;
+                }
+            }
+        }
+        return cut;
+    }
+}
@@ -0,0 +1,88 @@
+package it.unitn.ds1.deployment;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.Props;
+import it.unitn.ds1.Settings;
+import it.unitn.ds1.load.LoadGenerator;
+import it.unitn.ds1.lock.DistributedLock;
+import it.unitn.ds1.messages.Shutdown;
+import it.unitn.ds1.messages.StartLoad;
+
+import java.util.List;
+
+/**
+ * Represents the actor through which the launcher of a multi-JVM deployment
+ * controls one of the other JVMs. It is created after the nodes of its JVM,
+ * so once the launcher has resolved it the nodes exist too.
+ */
+public class ProcessAgent extends AbstractActor {
+
+    /**
+     * The name of the agent in every JVM.
+     */
+    public static final String NAME = "agent";
+
+    private final List<ActorRef> localNodes;
+    private final Settings settings;
+
+    /**
+     * Creates a Process Agent with the information about the nodes of its JVM.
+     *
+     * @param localNodes The actors of the nodes of the JVM.
+     * @param settings The settings of the application.
+     */
+    public ProcessAgent(List<ActorRef> localNodes, Settings settings) {
+        this.localNodes = localNodes;
+        this.settings = settings;
+    }
+
+    /**
+     * Used by the system to create actors.
+     *
+     * @param localNodes The actors of the nodes of the JVM.
+     * @param settings The settings of the application.
+     * @return The actor that we want to create.
+     */
+    static public Props props(List<ActorRef> localNodes, Settings settings) {
+        return Props.create(ProcessAgent.class, () -> new ProcessAgent(localNodes, settings));
+    }
+
+    /**
+     * Runs the load generator on the nodes of the JVM in a separate thread and
+     * replies with the text of the report. The lock API cannot cross a JVM
+     * boundary, so each JVM loads its own nodes.
+     *
+     * @param msg The Start Load message.
+     */
+    private void onStartLoad(StartLoad msg) {
+        ActorRef launcher = getSender();
+        ActorRef self = getSelf();
+        DistributedLock lock = new DistributedLock(localNodes, getContext().getSystem());
+        LoadGenerator generator = new LoadGenerator(lock, settings.getTopology(), localNodes.size(), settings);
+        new Thread(() -> launcher.tell(generator.run().toString(), self), "load-generator").start();
+    }
+
+    /**
+     * Terminates the actor system of the JVM.
+     *
+     * @param msg The Shutdown message.
+     */
+    private void onShutdown(Shutdown msg) {
+        getContext().getSystem().terminate();
+    }
+
+    /**
+     * Define the mapping between incoming message classes and the methods of
+     * the actor.
+     *
+     * @return The reaction on the incoming message class.
+     */
+    @Override
+    public Receive createReceive() {
+        return receiveBuilder()
+                .match(StartLoad.class, this::onStartLoad)
+                .match(Shutdown.class, this::onShutdown)
+                .build();
+    }
+}
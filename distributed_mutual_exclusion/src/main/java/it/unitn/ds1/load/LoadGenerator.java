@@ -0,0 +1,259 @@
+package it.unitn.ds1.load;
+
+import it.unitn.ds1.Settings;
+import it.unitn.ds1.lock.DistributedLock;
+import it.unitn.ds1.lock.LockLease;
+import it.unitn.ds1.metrics.LatencyReport;
+import it.unitn.ds1.metrics.MetricsRegistry;
+import org.HdrHistogram.Recorder;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives the nodes with requests for the critical section through the
+ * {@link DistributedLock}, in place of the user interface.
+ *
+ * In open-loop mode the requests arrive as a Poisson process, independently of
+ * how fast they are served, so the load can exceed the capacity of the
+ * network. In closed-loop mode a fixed number of clients repeatedly request
+ * the critical section, keep it, release it and wait an exponential think
+ * time. The node of each request is chosen uniformly, or among a few hotspot
+ * nodes with a given probability.
+ *
+ * The latency of a request is measured from the time it was supposed to be
+ * issued, so a generator that falls behind does not hide the waiting time.
+ */
+public class LoadGenerator {
+
+    /**
+     * How the requests are issued.
+     */
+    public enum Mode {
+        /**
+         * No load: the requests come from the user interface.
+         */
+        OFF,
+        /**
+         * Poisson arrivals at a fixed rate.
+         */
+        OPEN,
+        /**
+         * A fixed number of clients with think time.
+         */
+        CLOSED
+    }
+
+    /**
+     * Maximum number of milliseconds to wait for the requests still pending
+     * at the end of the load.
+     */
+    private static final long DRAIN_TIMEOUT = 5000;
+
+    private final DistributedLock lock;
+    /**
+     * Times the critical sections and the think times. The scheduler of the
+     * actor system is not used because its resolution is too coarse for
+     * critical sections shorter than a few milliseconds.
+     */
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "load-generator-timer");
+        t.setDaemon(true);
+        return t;
+    });
+    private final String topology;
+    private final int nNodes;
+    private final Settings settings;
+    private final SplittableRandom random;
+    /**
+     * The nodes receiving most of the requests.
+     */
+    private final int[] hotspots;
+
+    private final Recorder latency = new Recorder(3);
+    private final AtomicLong issued = new AtomicLong();
+    private final AtomicLong granted = new AtomicLong();
+    private final AtomicLong grantedInTime = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile long endTime;
+    private volatile boolean stopped = false;
+
+    /**
+     * Creates a Load Generator with the information about the network and
+     * the load.
+     *
+     * @param lock The lock of the nodes.
+     * @param topology The name of the topology, used in the report.
+     * @param nNodes The number of nodes in the network.
+     * @param settings The settings of the load.
+     * @throws IllegalArgumentException If the hotspot nodes are more than the
+     * nodes of the network.
+     */
+    public LoadGenerator(DistributedLock lock, String topology, int nNodes, Settings settings)
+            throws IllegalArgumentException {
+        if (settings.getLoadHotspotNodes() > nNodes) {
+            throw new IllegalArgumentException("The hotspot nodes cannot be more than the " + nNodes + " nodes");
+        }
+        this.lock = lock;
+        this.topology = topology;
+        this.nNodes = nNodes;
+        this.settings = settings;
+        this.random = new SplittableRandom(settings.getSeed());
+
+        // The hotspots are the first nodes of a random permutation
+        int[] permutation = new int[nNodes];
+        for (int i = 0; i < nNodes; i++) {
+            int j = random.nextInt(i + 1);
+            permutation[i] = permutation[j];
+            permutation[j] = i;
+        }
+        this.hotspots = Arrays.copyOf(permutation, settings.getLoadHotspotNodes());
+    }
+
+    /**
+     * Issues the requests for the duration of the load and waits for the
+     * pending ones.
+     *
+     * @return The report of the load.
+     * @throws IllegalStateException If the load generator is off.
+     */
+    public LoadReport run() throws IllegalStateException {
+        MetricsRegistry registry = MetricsRegistry.getInstance();
+        long messagesBefore = registry.getMessagesSent();
+        long start = System.nanoTime();
+        endTime = start + TimeUnit.MILLISECONDS.toNanos(settings.getLoadDuration());
+
+        switch (settings.getLoadMode()) {
+            case OPEN:
+                runOpenLoop(start);
+                break;
+            case CLOSED:
+                for (int i = 0; i < settings.getLoadClients(); i++) {
+                    request();
+                }
+                LockSupport.parkNanos(endTime - System.nanoTime());
+                break;
+            default:
+                throw new IllegalStateException("The load generator is off");
+        }
+        stopped = true;
+
+        long drainEnd = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DRAIN_TIMEOUT);
+        while (granted.get() + failed.get() < issued.get() && System.nanoTime() < drainEnd) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        timer.shutdownNow();
+
+        long messages = registry.getMessagesSent() - messagesBefore;
+        return new LoadReport(settings.getLoadMode(), settings.getLoadDuration(), issued.get(), grantedInTime.get(),
+                granted.get(), failed.get(), messages, new LatencyReport(topology, latency.getIntervalHistogram()));
+    }
+
+    /**
+     * Issues requests as a Poisson process until the end of the load.
+     *
+     * @param start The time of the first request.
+     */
+    private void runOpenLoop(long start) {
+        double meanInterval = TimeUnit.SECONDS.toNanos(1) / settings.getLoadRate();
+        long next = start;
+        while (next < endTime) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            acquire(nextNode(), next, null);
+            next += (long) exponential(meanInterval);
+        }
+    }
+
+    /**
+     * Issues the next request of a closed-loop client.
+     */
+    private void request() {
+        if (stopped || System.nanoTime() >= endTime) {
+            return;
+        }
+        acquire(nextNode(), System.nanoTime(), this::think);
+    }
+
+    /**
+     * Waits the think time of a closed-loop client and issues its next
+     * request.
+     */
+    private void think() {
+        long thinkTime = (long) exponential(settings.getLoadThinkTime());
+        if (thinkTime == 0) {
+            request();
+        } else {
+            timer.schedule(this::request, thinkTime, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    /**
+     * Acquires the lock through a node, keeps the critical section and
+     * releases it.
+     *
+     * @param nodeId The id of the node.
+     * @param intendedStart The time the request should have been issued.
+     * @param next What to do after the release, or null.
+     */
+    private void acquire(int nodeId, long intendedStart, Runnable next) {
+        issued.incrementAndGet();
+        lock.acquire(nodeId).whenComplete((lease, e) -> {
+            if (e != null) {
+                failed.incrementAndGet();
+                if (next != null) {
+                    next.run();
+                }
+                return;
+            }
+            long now = System.nanoTime();
+            latency.recordValue(now - intendedStart);
+            granted.incrementAndGet();
+            if (now <= endTime) {
+                grantedInTime.incrementAndGet();
+            }
+            long csTime = settings.getLoadCriticalSectionTime();
+            if (csTime == 0) {
+                release(lease, next);
+            } else {
+                timer.schedule(() -> release(lease, next), csTime, TimeUnit.MICROSECONDS);
+            }
+        });
+    }
+
+    private static void release(LockLease lease, Runnable next) {
+        lease.release();
+        if (next != null) {
+            next.run();
+        }
+    }
+
+    /**
+     * Chooses the node of a request.
+     *
+     * @return The id of the node.
+     */
+    private synchronized int nextNode() {
+        if (hotspots.length > 0 && random.nextDouble() < settings.getLoadHotspotProbability()) {
+            return hotspots[random.nextInt(hotspots.length)];
+        }
+        return random.nextInt(nNodes);
+    }
+
+    /**
+     * Draws from an exponential distribution.
+     *
+     * @param mean The mean of the distribution.
+     * @return A random value with the given mean.
+     */
+    private synchronized double exponential(double mean) {
+        return -mean * Math.log(1 - random.nextDouble());
+    }
+}
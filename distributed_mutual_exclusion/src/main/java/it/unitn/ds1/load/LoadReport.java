@@ -0,0 +1,110 @@
+package it.unitn.ds1.load;
+
+import it.unitn.ds1.metrics.LatencyReport;
+
+/**
+ * The results of a run of the load generator: the throughput of the critical
+ * section, the number of protocol messages per entry and the latency of the
+ * requests.
+ */
+public class LoadReport {
+
+    private final LoadGenerator.Mode mode;
+    private final long durationMillis;
+    private final long issued;
+    private final long grantedInTime;
+    private final long granted;
+    private final long failed;
+    private final long messages;
+    private final LatencyReport latency;
+
+    /**
+     * Creates a Load Report with the information about a run of the load
+     * generator.
+     *
+     * @param mode How the requests were issued.
+     * @param durationMillis The duration of the load in milliseconds.
+     * @param issued The number of requests issued.
+     * @param grantedInTime The number of requests granted before the end of
+     * the load.
+     * @param granted The number of requests granted, including those granted
+     * while waiting for the pending requests.
+     * @param failed The number of requests failed because a node crashed.
+     * @param messages The number of protocol messages sent by the nodes.
+     * @param latency The latency of the granted requests.
+     */
+    public LoadReport(LoadGenerator.Mode mode, long durationMillis, long issued, long grantedInTime, long granted,
+                      long failed, long messages, LatencyReport latency) {
+        this.mode = mode;
+        this.durationMillis = durationMillis;
+        this.issued = issued;
+        this.grantedInTime = grantedInTime;
+        this.granted = granted;
+        this.failed = failed;
+        this.messages = messages;
+        this.latency = latency;
+    }
+
+    /**
+     * Gets the number of critical section entries per second during the load.
+     *
+     * @return The throughput of the critical section.
+     */
+    public double getThroughput() {
+        return grantedInTime * 1000.0 / durationMillis;
+    }
+
+    /**
+     * Gets the number of protocol messages sent for each critical section
+     * entry.
+     *
+     * @return The message complexity per entry, 0 if no request was granted.
+     */
+    public double getMessagesPerEntry() {
+        return granted == 0 ? 0 : (double) messages / granted;
+    }
+
+    /**
+     * Gets the number of requests issued.
+     *
+     * @return The number of requests.
+     */
+    public long getIssued() {
+        return issued;
+    }
+
+    /**
+     * Gets the number of requests granted.
+     *
+     * @return The number of critical section entries.
+     */
+    public long getGranted() {
+        return granted;
+    }
+
+    /**
+     * Gets the number of requests failed because a node crashed.
+     *
+     * @return The number of failed requests.
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * Gets the latency of the granted requests.
+     *
+     * @return The latency report.
+     */
+    public LatencyReport getLatency() {
+        return latency;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Load %s on %s for %d ms: %d requests, %d granted, %d failed, %d still pending%n"
+                        + "Throughput: %.1f entries/s, %.2f messages per entry%n%s",
+                mode.name().toLowerCase(), latency.getTopology(), durationMillis, issued, granted, failed,
+                issued - granted - failed, getThroughput(), getMessagesPerEntry(), latency);
+    }
+}
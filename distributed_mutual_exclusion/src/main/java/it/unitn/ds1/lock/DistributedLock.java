@@ -0,0 +1,154 @@
+package it.unitn.ds1.lock;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Cancellable;
+import it.unitn.ds1.messages.AcquireLock;
+import it.unitn.ds1.messages.CancelAcquire;
+import scala.concurrent.duration.Duration;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static it.unitn.ds1.DistributedMutualExclusion.checkId;
+
+/**
+ * The client interface of the distributed mutual exclusion: a client asks a
+ * node for the critical section and keeps it until it releases the lease, so
+ * the duration of the critical section is decided by the work of the client.
+ *
+ * <pre>
+ * lock.acquire(3).thenAccept(lease -&gt; {
+ *     try (LockLease l = lease) {
+ *         // critical section
+ *     }
+ * });
+ * </pre>
+ *
+ * A {@link it.unitn.ds1.network.Node} grants only the default lock, while a
+ * {@link it.unitn.ds1.network.MultiLockNode} grants any number of independent
+ * locks, identified by integers. A
+ * {@link it.unitn.ds1.network.ReaderWriterNode} also grants shared access to
+ * several readers at once, through {@link #acquireShared(int)}.
+ */
+public class DistributedLock {
+
+    /**
+     * The id of the lock acquired when no lock is given.
+     */
+    public static final int DEFAULT_LOCK = 0;
+
+    private final List<ActorRef> nodes;
+    private final ActorSystem system;
+
+    /**
+     * Creates a Distributed Lock with the information about the nodes of the
+     * network.
+     *
+     * @param nodes The actors representing the nodes, indexed by id.
+     * @param system The actor system of the nodes. Its dispatcher runs the
+     * actions that depend on the acquisitions, so that they never run on the
+     * thread of a node, and its scheduler the timeouts.
+     */
+    public DistributedLock(List<ActorRef> nodes, ActorSystem system) {
+        this.nodes = nodes;
+        this.system = system;
+    }
+
+    /**
+     * Asks a node to enter the critical section on behalf of the client.
+     *
+     * @param nodeId The id of the node.
+     * @return A stage completed with the lease when the node enters the
+     * critical section, or completed exceptionally if the node crashes
+     * before.
+     * @throws IllegalArgumentException If the id of the node is not valid.
+     */
+    public CompletionStage<LockLease> acquire(int nodeId) throws IllegalArgumentException {
+        return acquire(nodeId, DEFAULT_LOCK);
+    }
+
+    /**
+     * Asks a node to enter the critical section of a lock on behalf of the
+     * client.
+     *
+     * @param nodeId The id of the node.
+     * @param lockId The id of the lock.
+     * @return A stage completed with the lease when the node enters the
+     * critical section, or completed exceptionally if the node crashes
+     * before or does not grant the lock.
+     * @throws IllegalArgumentException If the id of the node is not valid.
+     */
+    public CompletionStage<LockLease> acquire(int nodeId, int lockId) throws IllegalArgumentException {
+        checkId(nodeId, nodes.size());
+        CompletableFuture<LockLease> granted = new CompletableFuture<>();
+        nodes.get(nodeId).tell(new AcquireLock(lockId, granted), ActorRef.noSender());
+        return granted.thenApplyAsync(Function.identity(), system.dispatcher());
+    }
+
+    /**
+     * Asks a node to enter the critical section with shared access on behalf
+     * of the client. The nodes that do not support shared access grant it
+     * exclusively.
+     *
+     * @param nodeId The id of the node.
+     * @return A stage completed with the lease when the node enters the
+     * critical section, or completed exceptionally if the node crashes
+     * before.
+     * @throws IllegalArgumentException If the id of the node is not valid.
+     */
+    public CompletionStage<LockLease> acquireShared(int nodeId) throws IllegalArgumentException {
+        checkId(nodeId, nodes.size());
+        CompletableFuture<LockLease> granted = new CompletableFuture<>();
+        nodes.get(nodeId).tell(new AcquireLock(DEFAULT_LOCK, granted, true), ActorRef.noSender());
+        return granted.thenApplyAsync(Function.identity(), system.dispatcher());
+    }
+
+    /**
+     * Asks a node to enter the critical section on behalf of the client,
+     * giving up if the privilege does not arrive in time. When the
+     * acquisition is given up, the node withdraws it from its request queue
+     * and, if no other request is waiting there, withdraws its REQUEST message
+     * from the holder, so the privilege is not moved for nothing.
+     *
+     * @param nodeId The id of the node.
+     * @param timeout The maximum time to wait for the critical section.
+     * @param unit The unit of the timeout.
+     * @return A stage completed with the lease when the node enters the
+     * critical section, or completed exceptionally with a TimeoutException if
+     * the timeout expires before.
+     * @throws IllegalArgumentException If the id of the node is not valid.
+     */
+    public CompletionStage<LockLease> tryAcquire(int nodeId, long timeout, TimeUnit unit)
+            throws IllegalArgumentException {
+        return tryAcquire(nodeId, DEFAULT_LOCK, timeout, unit);
+    }
+
+    /**
+     * Asks a node to enter the critical section of a lock on behalf of the
+     * client, giving up if the privilege does not arrive in time.
+     *
+     * @param nodeId The id of the node.
+     * @param lockId The id of the lock.
+     * @param timeout The maximum time to wait for the critical section.
+     * @param unit The unit of the timeout.
+     * @return A stage completed with the lease when the node enters the
+     * critical section, or completed exceptionally with a TimeoutException if
+     * the timeout expires before.
+     * @throws IllegalArgumentException If the id of the node is not valid.
+     */
+    public CompletionStage<LockLease> tryAcquire(int nodeId, int lockId, long timeout, TimeUnit unit)
+            throws IllegalArgumentException {
+        checkId(nodeId, nodes.size());
+        CompletableFuture<LockLease> granted = new CompletableFuture<>();
+        ActorRef node = nodes.get(nodeId);
+        node.tell(new AcquireLock(lockId, granted), ActorRef.noSender());
+        Cancellable timer = system.scheduler().scheduleOnce(Duration.create(timeout, unit), node,
+                new CancelAcquire(lockId, granted), system.dispatcher(), ActorRef.noSender());
+        granted.whenComplete((lease, e) -> timer.cancel());
+        return granted.thenApplyAsync(Function.identity(), system.dispatcher());
+    }
+}
@@ -0,0 +1,91 @@
+package it.unitn.ds1.lock;
+
+import akka.actor.ActorRef;
+import it.unitn.ds1.messages.ReleaseLock;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Represents the permission to stay in the critical section, granted by a
+ * node to a client. The node stays in the critical section until the lease is
+ * released.
+ */
+public class LockLease implements AutoCloseable {
+
+    private final ActorRef node;
+    private final int nodeId;
+    private final int lockId;
+    private final long leaseId;
+    private final AtomicBoolean released = new AtomicBoolean(false);
+
+    /**
+     * Creates a Lock Lease with the information about the node that granted
+     * it.
+     *
+     * @param node The node in the critical section.
+     * @param nodeId The id of the node.
+     * @param lockId The id of the lock.
+     * @param leaseId The id of the lease, unique within the node.
+     */
+    public LockLease(ActorRef node, int nodeId, int lockId, long leaseId) {
+        this.node = node;
+        this.nodeId = nodeId;
+        this.lockId = lockId;
+        this.leaseId = leaseId;
+    }
+
+    /**
+     * Gets the id of the node that granted the lease.
+     *
+     * @return The id of the node.
+     */
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Gets the id of the lock the lease is for.
+     *
+     * @return The id of the lock.
+     */
+    public int getLockId() {
+        return lockId;
+    }
+
+    /**
+     * Gets the id of the lease.
+     *
+     * @return The id of the lease, unique within the node.
+     */
+    public long getLeaseId() {
+        return leaseId;
+    }
+
+    /**
+     * Gets a boolean that describes if the lease has been released.
+     *
+     * @return True if the lease has been released, false otherwise.
+     */
+    public boolean isReleased() {
+        return released.get();
+    }
+
+    /**
+     * Makes the node exit the critical section. Releasing a lease more than
+     * once has no effect.
+     */
+    public void release() {
+        if (released.compareAndSet(false, true)) {
+            node.tell(new ReleaseLock(lockId, leaseId), ActorRef.noSender());
+        }
+    }
+
+    /**
+     * Releases the lease, so that it can be used in a try-with-resources
+     * statement.
+     */
+    @Override
+    public void close() {
+        release();
+    }
+}
@@ -0,0 +1,116 @@
+package it.unitn.ds1.lock;
+
+import it.unitn.ds1.network.Graph;
+import it.unitn.ds1.network.Subtrees;
+
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A lock namespace over a tree of {@link it.unitn.ds1.network.MultiLockNode}
+ * actors: each name is hashed into one of the shards, and all the names of a
+ * shard share the privilege of the lock whose id is the index of the shard.
+ * The privileges of the shards start at different roots, spread over the
+ * structure of the tree, so the REQUEST and PRIVILEGE messages of unrelated
+ * names do not all travel towards the starter.
+ *
+ * <pre>
+ * int[] roots = ShardedLock.roots(g, 8, starterId);
+ * // create node i with MultiLockNode.props(i, settings, roots)
+ * ShardedLock locks = new ShardedLock(new DistributedLock(nodes, system), roots.length);
+ * locks.acquire(3, "account-42").thenAccept(lease -&gt; ...);
+ * </pre>
+ */
+public class ShardedLock {
+
+    private final DistributedLock lock;
+    private final int nShards;
+
+    /**
+     * Creates a Sharded Lock with the information about the nodes and the
+     * number of shards.
+     *
+     * @param lock The lock of the nodes, created with the same number of
+     * shards.
+     * @param nShards The number of shards.
+     * @throws IllegalArgumentException If the number of shards is not
+     * positive.
+     */
+    public ShardedLock(DistributedLock lock, int nShards) throws IllegalArgumentException {
+        if (nShards <= 0) {
+            throw new IllegalArgumentException("The number of shards must be positive");
+        }
+        this.lock = lock;
+        this.nShards = nShards;
+    }
+
+    /**
+     * Chooses the roots of the shards from the structure of the tree, whatever
+     * the numbering of the nodes. The tree is split into as many parts of
+     * about the same size as there are shards, each made of whole subtrees
+     * (see {@link Subtrees#split(Graph, int, int)}), and the root of a
+     * shard is the top of the largest subtree of its part. The part of shard 0
+     * is what remains around the starter, which is its root.
+     *
+     * @param g The graph describing the topology.
+     * @param nShards The number of shards.
+     * @param starterId The id of the root of shard 0.
+     * @return The id of the root of each shard, all different.
+     * @throws IllegalArgumentException If the number of shards is not
+     * between 1 and the number of nodes.
+     */
+    public static int[] roots(Graph g, int nShards, int starterId) throws IllegalArgumentException {
+        int nNodes = g.getNumberOfNodes();
+        if (nShards <= 0 || nShards > nNodes) {
+            throw new IllegalArgumentException("The number of shards must be between 1 and the "
+                    + nNodes + " nodes");
+        }
+        int[] part = Subtrees.split(g, nShards, starterId);
+        return Subtrees.heads(g, part, nShards, starterId);
+    }
+
+    /**
+     * Gets the shard of a name.
+     *
+     * @param name The name of the lock.
+     * @return The index of the shard, which is also the id of its lock.
+     */
+    public int shardOf(String name) {
+        // Mix the high bits into the low ones, as names often differ only in
+        // their last characters
+        int h = name.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), nShards);
+    }
+
+    /**
+     * Asks a node to enter the critical section of a name on behalf of the
+     * client.
+     *
+     * @param nodeId The id of the node.
+     * @param name The name of the lock.
+     * @return A stage completed with the lease when the node enters the
+     * critical section of the shard of the name.
+     * @throws IllegalArgumentException If the id of the node is not valid.
+     */
+    public CompletionStage<LockLease> acquire(int nodeId, String name) throws IllegalArgumentException {
+        return lock.acquire(nodeId, shardOf(name));
+    }
+
+    /**
+     * Asks a node to enter the critical section of a name on behalf of the
+     * client, giving up if the privilege does not arrive in time.
+     *
+     * @param nodeId The id of the node.
+     * @param name The name of the lock.
+     * @param timeout The maximum time to wait for the critical section.
+     * @param unit The unit of the timeout.
+     * @return A stage completed with the lease when the node enters the
+     * critical section of the shard of the name, or completed exceptionally
+     * with a TimeoutException if the timeout expires before.
+     * @throws IllegalArgumentException If the id of the node is not valid.
+     */
+    public CompletionStage<LockLease> tryAcquire(int nodeId, String name, long timeout, TimeUnit unit)
+            throws IllegalArgumentException {
+        return lock.tryAcquire(nodeId, shardOf(name), timeout, unit);
+    }
+}
@@ -0,0 +1,215 @@
+package it.unitn.ds1.logger;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.ErrorManager;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+/**
+ * A handler that writes the log records to a file from a dedicated thread, so
+ * that the threads that log never wait for the disk. The records are put in a
+ * bounded queue; the writer thread takes them in batches, formats them into a
+ * buffered writer and flushes it when the buffer is full, when the queue is
+ * empty or at least every flush interval.
+ *
+ * When the queue is full, the record is either dropped or the logging thread
+ * waits for some space, depending on the overflow policy.
+ */
+public class AsyncFileHandler extends Handler {
+
+    /**
+     * What to do with a record when the queue is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * The logging thread waits until the record fits in the queue.
+         */
+        BLOCK,
+        /**
+         * The record is discarded.
+         */
+        DROP
+    }
+
+    /**
+     * Size of the buffer of the writer, in characters.
+     */
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    private final BlockingQueue<LogRecord> queue;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final OverflowPolicy overflowPolicy;
+    private final Writer writer;
+    private final Thread writerThread;
+    /**
+     * Number of records dropped because the queue was full.
+     */
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean closed = false;
+    private volatile boolean flushRequested = false;
+
+    /**
+     * Creates an Asynchronous File Handler and starts its writer thread.
+     *
+     * @param fileName The name of the file, which is overwritten.
+     * @param formatter The formatter of the records.
+     * @param capacity The maximum number of records waiting to be written.
+     * @param batchSize The maximum number of records taken from the queue at
+     * once.
+     * @param flushIntervalMillis The maximum number of milliseconds a record
+     * stays in the buffer of the writer.
+     * @param overflowPolicy What to do with a record when the queue is full.
+     * @throws IOException If the file cannot be opened.
+     */
+    public AsyncFileHandler(String fileName, Formatter formatter, int capacity, int batchSize,
+                            long flushIntervalMillis, OverflowPolicy overflowPolicy) throws IOException {
+        setFormatter(formatter);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.overflowPolicy = overflowPolicy;
+        this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fileName),
+                StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+        this.writer.write(formatter.getHead(this));
+
+        this.writerThread = new Thread(this::writeLoop, "log-writer-" + fileName);
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) {
+            return;
+        }
+        // The source is inferred from the stack of the logging thread, so it
+        // must be resolved here and not in the writer thread
+        record.getSourceClassName();
+
+        if (overflowPolicy == OverflowPolicy.DROP) {
+            if (!queue.offer(record)) {
+                dropped.incrementAndGet();
+            }
+        } else {
+            try {
+                queue.put(record);
+            } catch (InterruptedException e) {
+                dropped.incrementAndGet();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Asks the writer thread to flush the records written so far. The flush
+     * happens asynchronously.
+     */
+    @Override
+    public void flush() {
+        flushRequested = true;
+    }
+
+    /**
+     * Writes the records still in the queue, the tail of the formatter, and
+     * closes the file.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        writerThread.interrupt();
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            writer.write(getFormatter().getTail(this));
+            writer.close();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.CLOSE_FAILURE);
+        }
+        if (dropped.get() > 0) {
+            System.err.println("WARNING: " + dropped.get() + " log records were dropped because the log queue was full");
+        }
+    }
+
+    /**
+     * Gets the number of records dropped because the queue was full.
+     *
+     * @return The number of dropped records.
+     */
+    public long getDroppedRecords() {
+        return dropped.get();
+    }
+
+    /**
+     * The loop of the writer thread. It runs until the handler is closed and
+     * then writes the remaining records.
+     */
+    private void writeLoop() {
+        List<LogRecord> batch = new ArrayList<>(batchSize);
+        long lastFlush = System.nanoTime();
+        while (!closed) {
+            try {
+                LogRecord first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    write(batch);
+                }
+            } catch (InterruptedException e) {
+                // The handler is being closed
+                break;
+            }
+
+            long now = System.nanoTime();
+            if (queue.isEmpty() || flushRequested || now - lastFlush >= flushIntervalNanos) {
+                flushRequested = false;
+                lastFlush = now;
+                try {
+                    writer.flush();
+                } catch (IOException e) {
+                    reportError(null, e, ErrorManager.FLUSH_FAILURE);
+                }
+            }
+        }
+
+        // Write the records published before the handler was closed
+        while (queue.drainTo(batch, batchSize) > 0) {
+            write(batch);
+        }
+    }
+
+    /**
+     * Formats a batch of records into the writer and empties the batch.
+     *
+     * @param batch The records to write.
+     */
+    private void write(List<LogRecord> batch) {
+        Formatter formatter = getFormatter();
+        for (LogRecord record : batch) {
+            try {
+                writer.write(formatter.format(record));
+            } catch (Exception e) {
+                reportError(null, e, ErrorManager.WRITE_FAILURE);
+            }
+        }
+        batch.clear();
+    }
+}
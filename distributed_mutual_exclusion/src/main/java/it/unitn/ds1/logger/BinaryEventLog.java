@@ -0,0 +1,203 @@
+package it.unitn.ds1.logger;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An append-only log of the protocol events, made of fixed-width binary
+ * records written into a memory-mapped file. Appending a record is a few
+ * stores into memory shared with the operating system, which writes it to the
+ * disk in the background, so thousands of nodes can trace every message.
+ *
+ * The file starts with a header:
+ * <pre>
+ * int   magic            "DMEL"
+ * short version
+ * short record size
+ * long  wall clock time of the creation of the log, in milliseconds
+ * long  System.nanoTime() at the creation of the log
+ * </pre>
+ * followed by the records:
+ * <pre>
+ * long  System.nanoTime() of the event
+ * int   id of the node
+ * int   id of the peer node, or -1
+ * int   length of the request queue of the node
+ * short code of the event type
+ * short unused
+ * </pre>
+ * A record with event code 0 marks the end of the log. The records of
+ * different nodes may appear slightly out of time order. Use
+ * {@link EventLogDecoder} to convert the log to CSV.
+ */
+public class BinaryEventLog implements AutoCloseable {
+
+    static final int MAGIC = 0x444D454C;
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 24;
+    static final int RECORD_SIZE = 24;
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+    /**
+     * Number of records of each mapped segment of the file.
+     */
+    private static final int SEGMENT_RECORDS = 1 << 20;
+    private static final long SEGMENT_SIZE = (long) SEGMENT_RECORDS * RECORD_SIZE;
+
+    /**
+     * The event log used by the nodes, or null if events are not logged.
+     */
+    private static volatile BinaryEventLog instance = null;
+
+    private final FileChannel channel;
+    /**
+     * Number of records appended so far, including the ones being written.
+     */
+    private final AtomicLong nextRecord = new AtomicLong();
+    /**
+     * The segments mapped so far.
+     */
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a Binary Event Log, overwriting the file.
+     *
+     * @param path The path of the file.
+     * @throws IOException If the file cannot be created.
+     */
+    public BinaryEventLog(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        header.order(BYTE_ORDER);
+        header.putInt(MAGIC);
+        header.putShort(VERSION);
+        header.putShort((short) RECORD_SIZE);
+        header.putLong(System.currentTimeMillis());
+        header.putLong(System.nanoTime());
+    }
+
+    /**
+     * Creates the event log used by the nodes. The log is closed when the JVM
+     * terminates.
+     *
+     * @param path The path of the file.
+     * @throws IOException If the file cannot be created.
+     */
+    public static synchronized void setup(Path path) throws IOException {
+        if (instance != null) {
+            instance.close();
+        }
+        BinaryEventLog log = new BinaryEventLog(path);
+        Runtime.getRuntime().addShutdownHook(new Thread(log::close, "event-log-close"));
+        instance = log;
+    }
+
+    /**
+     * Gets the event log used by the nodes.
+     *
+     * @return The event log, or null if events are not logged.
+     */
+    public static BinaryEventLog getInstance() {
+        return instance;
+    }
+
+    /**
+     * Appends an event to the log. It can be called concurrently by several
+     * threads.
+     *
+     * @param type The type of the event.
+     * @param nodeId The id of the node.
+     * @param peerId The id of the other node involved in the event, or -1.
+     * @param queueLength The length of the request queue of the node.
+     */
+    public void append(EventType type, int nodeId, int peerId, int queueLength) {
+        long timestamp = System.nanoTime();
+        long record = nextRecord.getAndIncrement();
+        // Checked after reserving the record: if the log is closed after this
+        // point, the file is truncated after this record
+        if (closed) {
+            return;
+        }
+        int segment = (int) (record / SEGMENT_RECORDS);
+        int offset = (int) (record % SEGMENT_RECORDS) * RECORD_SIZE;
+
+        MappedByteBuffer buffer;
+        try {
+            buffer = segment(segment);
+        } catch (IOException e) {
+            closed = true;
+            System.err.println("WARNING: the event log is disabled: " + e.getMessage());
+            return;
+        }
+        buffer.putLong(offset, timestamp);
+        buffer.putInt(offset + 8, nodeId);
+        buffer.putInt(offset + 12, peerId);
+        buffer.putInt(offset + 16, queueLength);
+        buffer.putShort(offset + 20, type.getCode());
+    }
+
+    /**
+     * Gets a mapped segment of the file, mapping it if necessary.
+     *
+     * @param segment The index of the segment.
+     * @return The buffer of the segment.
+     * @throws IOException If the segment cannot be mapped.
+     */
+    private MappedByteBuffer segment(int segment) throws IOException {
+        MappedByteBuffer[] mapped = segments;
+        if (segment < mapped.length && mapped[segment] != null) {
+            return mapped[segment];
+        }
+        synchronized (this) {
+            // The array is copied so that it is published with the segment
+            mapped = Arrays.copyOf(segments, Math.max(segment + 1, segments.length));
+            if (mapped[segment] == null) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE,
+                        HEADER_SIZE + segment * SEGMENT_SIZE, SEGMENT_SIZE);
+                buffer.order(BYTE_ORDER);
+                mapped[segment] = buffer;
+            }
+            segments = mapped;
+            return mapped[segment];
+        }
+    }
+
+    /**
+     * Gets the number of events appended so far.
+     *
+     * @return The number of events.
+     */
+    public long size() {
+        return nextRecord.get();
+    }
+
+    /**
+     * Stops appending events, writes the mapped segments to the disk and
+     * truncates the file after the last record.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            for (MappedByteBuffer buffer : segments) {
+                if (buffer != null) {
+                    buffer.force();
+                }
+            }
+            channel.truncate(HEADER_SIZE + nextRecord.get() * RECORD_SIZE);
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("WARNING: the event log was not closed correctly: " + e.getMessage());
+        }
+    }
+}
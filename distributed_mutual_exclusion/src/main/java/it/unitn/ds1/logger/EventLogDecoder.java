@@ -0,0 +1,103 @@
+package it.unitn.ds1.logger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Converts a binary event log to CSV. Usage:
+ * <pre>
+ * EventLogDecoder events.bin [events.csv]
+ * </pre>
+ * The CSV is written to the standard output if no output file is given. Each
+ * line contains the nanoseconds since the creation of the log, the wall clock
+ * time in milliseconds, the node, the event, the peer and the length of the
+ * request queue.
+ */
+public class EventLogDecoder {
+
+    /**
+     * Number of records mapped at once.
+     */
+    private static final int CHUNK_RECORDS = 1 << 20;
+
+    /**
+     * Decodes a binary event log.
+     *
+     * @param input The path of the binary event log.
+     * @param out The writer of the CSV.
+     * @return The number of decoded events.
+     * @throws IOException If the log cannot be read or it is not an event log.
+     */
+    public static long decode(Path input, Writer out) throws IOException {
+        long count = 0;
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < BinaryEventLog.HEADER_SIZE) {
+                throw new IOException(input + " is not an event log");
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, BinaryEventLog.HEADER_SIZE);
+            header.order(BinaryEventLog.BYTE_ORDER);
+            if (header.getInt() != BinaryEventLog.MAGIC || header.getShort() != BinaryEventLog.VERSION
+                    || header.getShort() != BinaryEventLog.RECORD_SIZE) {
+                throw new IOException(input + " is not an event log of version " + BinaryEventLog.VERSION);
+            }
+            long baseMillis = header.getLong();
+            long baseNanos = header.getLong();
+
+            StringBuilder line = new StringBuilder(64);
+            out.write("nanos,millis,node,event,peer,queue\n");
+            long records = (size - BinaryEventLog.HEADER_SIZE) / BinaryEventLog.RECORD_SIZE;
+            for (long first = 0; first < records; first += CHUNK_RECORDS) {
+                int n = (int) Math.min(CHUNK_RECORDS, records - first);
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY,
+                        BinaryEventLog.HEADER_SIZE + first * BinaryEventLog.RECORD_SIZE,
+                        (long) n * BinaryEventLog.RECORD_SIZE);
+                chunk.order(BinaryEventLog.BYTE_ORDER);
+                for (int i = 0; i < n; i++) {
+                    int offset = i * BinaryEventLog.RECORD_SIZE;
+                    EventType type = EventType.fromCode(chunk.getShort(offset + 20));
+                    if (type == null) {
+                        // End of the log, or a record that was never completed
+                        return count;
+                    }
+                    long nanos = chunk.getLong(offset) - baseNanos;
+                    line.setLength(0);
+                    line.append(nanos).append(',')
+                            .append(baseMillis + nanos / 1_000_000).append(',')
+                            .append(chunk.getInt(offset + 8)).append(',')
+                            .append(type).append(',')
+                            .append(chunk.getInt(offset + 12)).append(',')
+                            .append(chunk.getInt(offset + 16)).append('\n');
+                    out.append(line);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: EventLogDecoder <events.bin> [events.csv]");
+            System.exit(1);
+        }
+        Path input = Paths.get(args[0]);
+        try (Writer out = new BufferedWriter(args.length == 2
+                ? Files.newBufferedWriter(Paths.get(args[1]), StandardCharsets.UTF_8)
+                : new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16)) {
+            long count = decode(input, out);
+            if (args.length == 2) {
+                System.out.println(count + " events written to " + args[1]);
+            }
+        }
+    }
+}
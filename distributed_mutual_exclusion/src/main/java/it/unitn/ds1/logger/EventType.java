@@ -0,0 +1,58 @@
+package it.unitn.ds1.logger;
+
+/**
+ * Represents the type of an event of the binary event log.
+ */
+public enum EventType {
+
+    BOOTSTRAP_RECEIVED(1),
+    INITIALIZE_RECEIVED(2),
+    REQUEST_RECEIVED(3),
+    PRIVILEGE_RECEIVED(4),
+    RESTART_RECEIVED(5),
+    ADVISE_RECEIVED(6),
+    USER_REQUEST(7),
+    ENTER_CRITICAL_SECTION(8),
+    EXIT_CRITICAL_SECTION(9),
+    CRASH(10),
+    RECOVERY_START(11),
+    RECOVERY_END(12),
+    CANCEL_RECEIVED(13),
+    USER_CANCEL(14);
+
+    private static final EventType[] BY_CODE = new EventType[values().length + 1];
+
+    static {
+        for (EventType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    /**
+     * The code of the event in the log. Code 0 marks the end of the log.
+     */
+    private final short code;
+
+    EventType(int code) {
+        this.code = (short) code;
+    }
+
+    /**
+     * Gets the code of the event in the log.
+     *
+     * @return The code of the event.
+     */
+    public short getCode() {
+        return code;
+    }
+
+    /**
+     * Gets the event type with a given code.
+     *
+     * @param code The code of the event in the log.
+     * @return The event type, or null if the code is not valid.
+     */
+    public static EventType fromCode(int code) {
+        return code > 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+    }
+}
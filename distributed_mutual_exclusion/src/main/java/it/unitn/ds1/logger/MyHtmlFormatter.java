@@ -1,6 +1,8 @@
 package it.unitn.ds1.logger;
 
-import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.Date;
 import java.util.logging.Formatter;
 import java.util.logging.Handler;
@@ -10,21 +12,33 @@ import java.util.logging.LogRecord;
 // this custom formatter formats parts of a log record to a single line
 class MyHtmlFormatter extends Formatter {
 
+    // the time is printed with minute resolution, so the formatted date is
+    // cached and computed again only when the minute changes
+    private static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("MMM dd,yyyy HH:mm").withZone(ZoneId.systemDefault());
+    private static final long MILLIS_PER_MINUTE = 60_000;
+
+    private volatile CachedDate cachedDate = new CachedDate(Long.MIN_VALUE, "");
+
+    // each thread reuses its own buffer
+    private final ThreadLocal<StringBuilder> buffer = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
     // this method is called for every log records
     @Override
     public String format(LogRecord record) {
-        StringBuffer buf = new StringBuffer(1000);
+        StringBuilder buf = buffer.get();
+        buf.setLength(0);
         buf.append("<tr>\n");
 
         // colorize any levels >= WARNING in red
         if (record.getLevel().intValue() >= Level.WARNING.intValue()) {
             buf.append("\t<td style=\"color:red\">");
             buf.append("<b>");
-            buf.append(record.getLevel());
+            escape(buf, record.getLevel().getName());
             buf.append("</b>");
         } else {
             buf.append("\t<td>");
-            buf.append(record.getLevel());
+            escape(buf, record.getLevel().getName());
         }
 
         buf.append("</td>\n");
@@ -32,7 +46,7 @@ class MyHtmlFormatter extends Formatter {
         buf.append(calcDate(record.getMillis()));
         buf.append("</td>\n");
         buf.append("\t<td>");
-        buf.append(formatMessage(record));
+        escape(buf, message(record));
         buf.append("</td>\n");
         buf.append("</tr>\n");
 
@@ -41,9 +55,61 @@ class MyHtmlFormatter extends Formatter {
 
     // format the milliseconds of a log record to a readable format
     private String calcDate(long millisecs) {
-        SimpleDateFormat date_format = new SimpleDateFormat("MMM dd,yyyy HH:mm");
-        Date resultdate = new Date(millisecs);
-        return date_format.format(resultdate);
+        long minute = Math.floorDiv(millisecs, MILLIS_PER_MINUTE);
+        CachedDate cached = cachedDate;
+        if (cached.minute != minute) {
+            cached = new CachedDate(minute, DATE_FORMAT.format(Instant.ofEpochMilli(millisecs)));
+            cachedDate = cached;
+        }
+        return cached.formatted;
+    }
+
+    // Formatter.formatMessage is synchronized, so it is used only for the
+    // records that actually need to be localized or to be given parameters
+    private String message(LogRecord record) {
+        Object[] parameters = record.getParameters();
+        if (record.getResourceBundle() == null && (parameters == null || parameters.length == 0)) {
+            return record.getMessage() == null ? "" : record.getMessage();
+        }
+        return formatMessage(record);
+    }
+
+    // append a text escaping the characters that have a meaning in HTML
+    static void escape(StringBuilder buf, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<':
+                    buf.append("&lt;");
+                    break;
+                case '>':
+                    buf.append("&gt;");
+                    break;
+                case '&':
+                    buf.append("&amp;");
+                    break;
+                case '"':
+                    buf.append("&quot;");
+                    break;
+                case '\'':
+                    buf.append("&#39;");
+                    break;
+                default:
+                    buf.append(c);
+            }
+        }
+    }
+
+    // a minute and its formatted date
+    private static final class CachedDate {
+
+        private final long minute;
+        private final String formatted;
+
+        CachedDate(long minute, String formatted) {
+            this.minute = minute;
+            this.formatted = formatted;
+        }
     }
 
     // this method is called just after the handler using this
@@ -1,17 +1,23 @@
 package it.unitn.ds1.logger;
 
+import it.unitn.ds1.Settings;
+
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.logging.*;
 
 public class MyLogger {
 
-    static private FileHandler fileTxt;
+    static private AsyncFileHandler fileTxt;
     static private SimpleFormatter formatterTxt;
 
-    static private FileHandler fileHTML;
+    static private AsyncFileHandler fileHTML;
     static private Formatter formatterHTML;
 
-    static public void setup() throws IOException {
+    // the log files are written by a background thread for each file, so the
+    // actors never wait for the disk. The handlers are closed, and the
+    // remaining records written, by the shutdown hook of the LogManager
+    static public void setup(Settings settings) throws IOException {
 
         // get the global logger to configure it
         Logger logger = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
@@ -24,17 +30,28 @@ public class MyLogger {
         }
 
         logger.setLevel(Level.INFO);
-        fileTxt = new FileHandler("Logging.txt");
-        fileHTML = new FileHandler("Logging.html");
 
         // create a TXT formatter
         formatterTxt = new SimpleFormatter();
-        fileTxt.setFormatter(formatterTxt);
+        fileTxt = createHandler("Logging.txt", formatterTxt, settings);
         logger.addHandler(fileTxt);
 
         // create an HTML formatter
         formatterHTML = new MyHtmlFormatter();
-        fileHTML.setFormatter(formatterHTML);
+        fileHTML = createHandler("Logging.html", formatterHTML, settings);
         logger.addHandler(fileHTML);
+
+        // the binary event log is optional
+        if (!settings.getEventLog().isEmpty()) {
+            BinaryEventLog.setup(Paths.get(settings.getEventLog()));
+        }
+    }
+
+    static private AsyncFileHandler createHandler(String fileName, Formatter formatter, Settings settings) throws IOException {
+        return new AsyncFileHandler(fileName, formatter,
+                settings.getLogQueueCapacity(),
+                settings.getLogBatchSize(),
+                settings.getLogFlushInterval(),
+                settings.getLogOverflowPolicy());
     }
 }
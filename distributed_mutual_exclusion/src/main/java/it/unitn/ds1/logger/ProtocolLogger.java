@@ -0,0 +1,179 @@
+package it.unitn.ds1.logger;
+
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Logging facade used by the nodes. Messages are patterns where each "{}" is
+ * replaced by the next argument; the arguments are primitive and the message
+ * is built only if it is going to be logged, so a disabled call allocates
+ * nothing.
+ *
+ * Trace messages describe every message received by a node and can be turned
+ * off entirely, independently of the level of the underlying logger. Info
+ * messages describe the main events of the protocol (critical section, crash
+ * and recovery).
+ */
+public class ProtocolLogger {
+
+    private final Logger logger;
+    private final String sourceClassName;
+    private final boolean tracing;
+
+    /**
+     * Creates a Protocol Logger writing to a java.util.logging logger.
+     *
+     * @param logger The logger the records are written to.
+     * @param source The class reported as the source of the records.
+     * @param tracing True if the trace messages are enabled, false otherwise.
+     */
+    public ProtocolLogger(Logger logger, Class<?> source, boolean tracing) {
+        this.logger = logger;
+        this.sourceClassName = source.getName();
+        this.tracing = tracing;
+    }
+
+    /**
+     * Gets a boolean that describes if the trace messages are logged.
+     *
+     * @return True if the trace messages are logged, false otherwise.
+     */
+    public boolean isTraceEnabled() {
+        return tracing && logger.isLoggable(Level.INFO);
+    }
+
+    /**
+     * Gets a boolean that describes if the info messages are logged.
+     *
+     * @return True if the info messages are logged, false otherwise.
+     */
+    public boolean isInfoEnabled() {
+        return logger.isLoggable(Level.INFO);
+    }
+
+    /**
+     * Logs a trace message.
+     *
+     * @param pattern The pattern of the message.
+     * @param arg0 The first argument.
+     */
+    public void trace(String pattern, int arg0) {
+        if (isTraceEnabled()) {
+            log(Level.INFO, format(pattern, 1, arg0, 0, 0));
+        }
+    }
+
+    /**
+     * Logs a trace message.
+     *
+     * @param pattern The pattern of the message.
+     * @param arg0 The first argument.
+     * @param arg1 The second argument.
+     */
+    public void trace(String pattern, int arg0, int arg1) {
+        if (isTraceEnabled()) {
+            log(Level.INFO, format(pattern, 2, arg0, arg1, 0));
+        }
+    }
+
+    /**
+     * Logs a trace message.
+     *
+     * @param pattern The pattern of the message.
+     * @param arg0 The first argument.
+     * @param arg1 The second argument.
+     * @param arg2 The third argument.
+     */
+    public void trace(String pattern, int arg0, int arg1, int arg2) {
+        if (isTraceEnabled()) {
+            log(Level.INFO, format(pattern, 3, arg0, arg1, arg2));
+        }
+    }
+
+    /**
+     * Logs an info message.
+     *
+     * @param pattern The pattern of the message.
+     * @param arg0 The first argument.
+     */
+    public void info(String pattern, int arg0) {
+        if (isInfoEnabled()) {
+            log(Level.INFO, format(pattern, 1, arg0, 0, 0));
+        }
+    }
+
+    /**
+     * Logs an info message.
+     *
+     * @param pattern The pattern of the message.
+     * @param arg0 The first argument.
+     * @param arg1 The second argument.
+     */
+    public void info(String pattern, int arg0, int arg1) {
+        if (isInfoEnabled()) {
+            log(Level.INFO, format(pattern, 2, arg0, arg1, 0));
+        }
+    }
+
+    /**
+     * Logs an info message that is already built. The caller should check
+     * {@link #isInfoEnabled()} before building it.
+     *
+     * @param message The message to log.
+     */
+    public void info(String message) {
+        if (isInfoEnabled()) {
+            log(Level.INFO, message);
+        }
+    }
+
+    /**
+     * Logs a severe message.
+     *
+     * @param pattern The pattern of the message.
+     * @param arg0 The first argument.
+     */
+    public void severe(String pattern, int arg0) {
+        if (logger.isLoggable(Level.SEVERE)) {
+            log(Level.SEVERE, format(pattern, 1, arg0, 0, 0));
+        }
+    }
+
+    /**
+     * Writes a record to the logger. The source class is set explicitly, so
+     * the logger does not walk the stack to find it.
+     *
+     * @param level The level of the record.
+     * @param message The message of the record.
+     */
+    private void log(Level level, String message) {
+        LogRecord record = new LogRecord(level, message);
+        record.setSourceClassName(sourceClassName);
+        record.setSourceMethodName(null);
+        record.setLoggerName(logger.getName());
+        logger.log(record);
+    }
+
+    /**
+     * Replaces the "{}" placeholders of a pattern with the arguments.
+     *
+     * @param pattern The pattern of the message.
+     * @param count The number of arguments.
+     * @return The message.
+     */
+    private static String format(String pattern, int count, int arg0, int arg1, int arg2) {
+        StringBuilder buf = new StringBuilder(pattern.length() + 16);
+        int argument = 0;
+        int start = 0;
+        int placeholder;
+        while (argument < count && (placeholder = pattern.indexOf("{}", start)) >= 0) {
+            buf.append(pattern, start, placeholder);
+            buf.append(argument == 0 ? arg0 : argument == 1 ? arg1 : arg2);
+            argument++;
+            start = placeholder + 2;
+        }
+        buf.append(pattern, start, pattern.length());
+        return buf.toString();
+    }
+}
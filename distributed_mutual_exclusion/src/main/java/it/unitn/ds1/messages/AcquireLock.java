@@ -0,0 +1,74 @@
+package it.unitn.ds1.messages;
+
+import it.unitn.ds1.lock.LockLease;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Represents a message sent from a local client to a node to acquire the
+ * critical section. The message carries the future completed by the node, so
+ * it can only be sent within the JVM of the node. A shared acquisition is
+ * granted together with other shared ones by the
+ * {@link it.unitn.ds1.network.ReaderWriterNode}, and exclusively by the other
+ * nodes.
+ */
+public class AcquireLock {
+
+    private final int lockId;
+    private final CompletableFuture<LockLease> granted;
+    private final boolean shared;
+
+    /**
+     * Creates an Acquire Lock message with the information about the lock and
+     * the future to complete.
+     *
+     * @param lockId The id of the lock.
+     * @param granted The future completed with the lease when the node enters
+     * the critical section.
+     */
+    public AcquireLock(int lockId, CompletableFuture<LockLease> granted) {
+        this(lockId, granted, false);
+    }
+
+    /**
+     * Creates an Acquire Lock message with the information about the lock,
+     * the future to complete and the mode of the access.
+     *
+     * @param lockId The id of the lock.
+     * @param granted The future completed with the lease when the node enters
+     * the critical section.
+     * @param shared True for shared access, false for exclusive access.
+     */
+    public AcquireLock(int lockId, CompletableFuture<LockLease> granted, boolean shared) {
+        this.lockId = lockId;
+        this.granted = granted;
+        this.shared = shared;
+    }
+
+    /**
+     * Gets the id of the lock to acquire.
+     *
+     * @return An integer containing the id of the lock.
+     */
+    public int getLockId() {
+        return lockId;
+    }
+
+    /**
+     * Gets the future to complete when the node enters the critical section.
+     *
+     * @return The future of the lease.
+     */
+    public CompletableFuture<LockLease> getGranted() {
+        return granted;
+    }
+
+    /**
+     * Gets a boolean that describes if the acquisition is for shared access.
+     *
+     * @return True for shared access, false for exclusive access.
+     */
+    public boolean isShared() {
+        return shared;
+    }
+}
@@ -22,7 +22,7 @@ public class AdviseMessage extends Message {
      * @param askedY True if Y has sent a REQUEST message to its holder, false
      * otherwise.
      */
-    public AdviseMessage(Integer senderId, boolean isXHolder, boolean isXInRequestQ, boolean askedY) {
+    public AdviseMessage(int senderId, boolean isXHolder, boolean isXInRequestQ, boolean askedY) {
         super(senderId);
         this.isXHolder = isXHolder;
         this.isXInRequestQ = isXInRequestQ;
@@ -12,6 +12,7 @@ import java.util.List;
 public class Bootstrap implements Serializable {
 
     private final List<ActorRef> neighbors;
+    private final int[] neighborIds;
     private final boolean isStarter;
 
     /**
@@ -19,12 +20,14 @@ public class Bootstrap implements Serializable {
      * node and if it is the starter of the protocol.
      *
      * @param neighbors The immediate neighbors in the spanning tree.
+     * @param neighborIds The id of each neighbor, in the same order.
      * @param isStarter True if this node is the starter of the protocol, false
      * otherwise.
      */
-    public Bootstrap(List<ActorRef> neighbors, boolean isStarter) {
+    public Bootstrap(List<ActorRef> neighbors, int[] neighborIds, boolean isStarter) {
         // Bootstrap message is sent only by the main routine and not from specific nodes
         this.neighbors = neighbors;
+        this.neighborIds = neighborIds;
         this.isStarter = isStarter;
     }
 
@@ -37,6 +40,16 @@ public class Bootstrap implements Serializable {
         return neighbors;
     }
 
+    /**
+     * Gets the id of the immediate neighbors in the spanning tree.
+     *
+     * @return An array containing the id of each neighbor, in the order of
+     * {@link #getNeighbors()}.
+     */
+    public int[] getNeighborIds() {
+        return neighborIds;
+    }
+
     /**
      * Gets a boolean that describes if the node that receives the message is
      * the starter of the protocol.
@@ -0,0 +1,46 @@
+package it.unitn.ds1.messages;
+
+import it.unitn.ds1.lock.LockLease;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Represents a message sent from a local client to a node to give up an
+ * acquisition that has not been granted yet. The message carries the future
+ * of the acquisition, so it can only be sent within the JVM of the node.
+ */
+public class CancelAcquire {
+
+    private final int lockId;
+    private final CompletableFuture<LockLease> granted;
+
+    /**
+     * Creates a Cancel Acquire message with the information about the
+     * acquisition to cancel.
+     *
+     * @param lockId The id of the lock.
+     * @param granted The future sent with the Acquire Lock message.
+     */
+    public CancelAcquire(int lockId, CompletableFuture<LockLease> granted) {
+        this.lockId = lockId;
+        this.granted = granted;
+    }
+
+    /**
+     * Gets the id of the lock of the acquisition to cancel.
+     *
+     * @return An integer containing the id of the lock.
+     */
+    public int getLockId() {
+        return lockId;
+    }
+
+    /**
+     * Gets the future of the acquisition to cancel.
+     *
+     * @return The future of the lease.
+     */
+    public CompletableFuture<LockLease> getGranted() {
+        return granted;
+    }
+}
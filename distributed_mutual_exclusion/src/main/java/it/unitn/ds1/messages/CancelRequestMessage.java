@@ -0,0 +1,18 @@
+package it.unitn.ds1.messages;
+
+/**
+ * Represents a message sent from a node to its holder to withdraw a REQUEST
+ * message, because the node is no longer interested in the privilege either
+ * for itself or others.
+ */
+public class CancelRequestMessage extends Message {
+
+    /**
+     * Creates a Cancel Request Message with the information about the sender
+     *
+     * @param senderId The id of the node that sends this message.
+     */
+    public CancelRequestMessage(int senderId) {
+        super(senderId);
+    }
+}
@@ -4,13 +4,34 @@ import java.io.Serializable;
 
 /**
  * Represents a message sent from a node to itself to schedule the exit from the
- * critical section.
+ * critical section. The message carries no data, so a single instance is
+ * shared by every node.
  */
 public class ExitCriticalSection implements Serializable {
 
+    private static final ExitCriticalSection INSTANCE = new ExitCriticalSection();
+
     /**
      * Creates a Exit Critical Section message.
      */
-    public ExitCriticalSection() {
+    private ExitCriticalSection() {
+    }
+
+    /**
+     * Gets the Exit Critical Section message.
+     *
+     * @return The shared instance of the message.
+     */
+    public static ExitCriticalSection getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Keeps the instance unique when the message is deserialized.
+     *
+     * @return The shared instance of the message.
+     */
+    private Object readResolve() {
+        return INSTANCE;
     }
 }
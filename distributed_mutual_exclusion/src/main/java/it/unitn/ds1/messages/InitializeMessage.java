@@ -12,7 +12,7 @@ public class InitializeMessage extends Message {
      *
      * @param senderId The id of the node that sends this message.
      */
-    public InitializeMessage(Integer senderId) {
+    public InitializeMessage(int senderId) {
         super(senderId);
     }
 }
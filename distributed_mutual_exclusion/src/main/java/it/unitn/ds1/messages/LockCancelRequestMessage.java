@@ -0,0 +1,20 @@
+package it.unitn.ds1.messages;
+
+/**
+ * Represents a message sent from a node to its holder for a lock to withdraw a
+ * Lock Request Message, because the node is no longer interested in the
+ * privilege of the lock.
+ */
+public class LockCancelRequestMessage extends LockMessage {
+
+    /**
+     * Creates a Lock Cancel Request Message with the information about the
+     * sender and the lock.
+     *
+     * @param senderId The id of the node that sends this message.
+     * @param lockId The id of the lock.
+     */
+    public LockCancelRequestMessage(int senderId, int lockId) {
+        super(senderId, lockId);
+    }
+}
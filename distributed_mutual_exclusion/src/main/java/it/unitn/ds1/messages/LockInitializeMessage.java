@@ -0,0 +1,22 @@
+package it.unitn.ds1.messages;
+
+/**
+ * Represents a message sent from a node to its neighbors to initialize a shard
+ * of a multi-lock tree, which points the holder of every lock of the shard
+ * towards the sender. The first Lock Initialize Message of a shard is sent
+ * from the root of the shard, the initial privileged node of its locks. The
+ * lock id of the message is the index of the shard, not the id of a lock.
+ */
+public class LockInitializeMessage extends LockMessage {
+
+    /**
+     * Creates a Lock Initialize Message with the information about the sender
+     * and the shard.
+     *
+     * @param senderId The id of the node that sends this message.
+     * @param shard The index of the shard, carried as the lock id.
+     */
+    public LockInitializeMessage(int senderId, int shard) {
+        super(senderId, shard);
+    }
+}
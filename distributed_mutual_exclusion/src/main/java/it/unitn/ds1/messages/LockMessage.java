@@ -0,0 +1,31 @@
+package it.unitn.ds1.messages;
+
+/**
+ * Represents a message of Raymond's algorithm for one of the locks that share
+ * the tree of a {@link it.unitn.ds1.network.MultiLockNode}.
+ */
+public abstract class LockMessage extends Message {
+
+    private final int lockId;
+
+    /**
+     * Creates a Lock Message with the information about the sender and the
+     * lock.
+     *
+     * @param senderId The id of the node that sends this message.
+     * @param lockId The id of the lock.
+     */
+    public LockMessage(int senderId, int lockId) {
+        super(senderId);
+        this.lockId = lockId;
+    }
+
+    /**
+     * Gets the id of the lock this message is about.
+     *
+     * @return An integer containing the id of the lock.
+     */
+    public int getLockId() {
+        return lockId;
+    }
+}
@@ -0,0 +1,19 @@
+package it.unitn.ds1.messages;
+
+/**
+ * Represents a message that informs the receiver that it is the new holder of
+ * the privilege of a lock.
+ */
+public class LockPrivilegeMessage extends LockMessage {
+
+    /**
+     * Creates a Lock Privilege Message with the information about the sender
+     * and the lock.
+     *
+     * @param senderId The id of the node that sends this message.
+     * @param lockId The id of the lock.
+     */
+    public LockPrivilegeMessage(int senderId, int lockId) {
+        super(senderId, lockId);
+    }
+}
@@ -0,0 +1,19 @@
+package it.unitn.ds1.messages;
+
+/**
+ * Represents a message sent from a node to its holder for a lock to show the
+ * intention to get the privilege of the lock either for itself or others.
+ */
+public class LockRequestMessage extends LockMessage {
+
+    /**
+     * Creates a Lock Request Message with the information about the sender and
+     * the lock.
+     *
+     * @param senderId The id of the node that sends this message.
+     * @param lockId The id of the lock.
+     */
+    public LockRequestMessage(int senderId, int lockId) {
+        super(senderId, lockId);
+    }
+}
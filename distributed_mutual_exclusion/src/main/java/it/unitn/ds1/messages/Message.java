@@ -8,14 +8,14 @@ import java.io.Serializable;
  */
 public abstract class Message implements Serializable {
 
-    private final Integer senderId;
+    private final int senderId;
 
     /**
      * Creates a Message with the information about the sender.
      *
      * @param senderId The id of the node that sends this message.
      */
-    public Message(Integer senderId) {
+    public Message(int senderId) {
         this.senderId = senderId;
     }
 
@@ -24,7 +24,7 @@ public abstract class Message implements Serializable {
      *
      * @return An integer containing the id of the node that sent this message.
      */
-    public Integer getSenderId() {
+    public int getSenderId() {
         return senderId;
     }
 }
@@ -0,0 +1,208 @@
+package it.unitn.ds1.messages;
+
+import akka.serialization.SerializerWithStringManifest;
+
+import java.io.NotSerializableException;
+
+/**
+ * A compact serializer for the messages exchanged by the nodes, registered in
+ * application.conf and used by Akka whenever a message leaves the JVM. Every
+ * message is encoded as the id of its sender in a variable-length format (one
+ * byte up to id 127, two bytes up to id 16383). The ADVISE message adds a
+ * byte with its three booleans, and the messages of a lock the id of the lock
+ * in the same format. The class of the message is given by a short manifest.
+ */
+public class MessageSerializer extends SerializerWithStringManifest {
+
+    /**
+     * The identifier of the serializer, which must be unique among the
+     * serializers of the actor system. Akka reserves the ones from 0 to 40.
+     */
+    public static final int IDENTIFIER = 4201;
+
+    private static final String REQUEST = "Q";
+    private static final String PRIVILEGE = "P";
+    private static final String INITIALIZE = "I";
+    private static final String RESTART = "S";
+    private static final String ADVISE = "A";
+    private static final String CANCEL_REQUEST = "C";
+    private static final String SHARED_REQUEST = "SQ";
+    private static final String READ_GRANT = "SG";
+    private static final String READ_RELEASE = "SR";
+    private static final String LOCK_REQUEST = "LQ";
+    private static final String LOCK_PRIVILEGE = "LP";
+    private static final String LOCK_CANCEL_REQUEST = "LC";
+    private static final String LOCK_INITIALIZE = "LI";
+
+    private static final int IS_X_HOLDER = 1;
+    private static final int IS_X_IN_REQUEST_Q = 2;
+    private static final int ASKED_Y = 4;
+
+    @Override
+    public int identifier() {
+        return IDENTIFIER;
+    }
+
+    @Override
+    public String manifest(Object o) {
+        if (o instanceof RequestMessage) {
+            return REQUEST;
+        } else if (o instanceof PrivilegeMessage) {
+            return PRIVILEGE;
+        } else if (o instanceof InitializeMessage) {
+            return INITIALIZE;
+        } else if (o instanceof RestartMessage) {
+            return RESTART;
+        } else if (o instanceof AdviseMessage) {
+            return ADVISE;
+        } else if (o instanceof CancelRequestMessage) {
+            return CANCEL_REQUEST;
+        } else if (o instanceof SharedRequestMessage) {
+            return SHARED_REQUEST;
+        } else if (o instanceof ReadGrantMessage) {
+            return READ_GRANT;
+        } else if (o instanceof ReadReleaseMessage) {
+            return READ_RELEASE;
+        } else if (o instanceof LockRequestMessage) {
+            return LOCK_REQUEST;
+        } else if (o instanceof LockPrivilegeMessage) {
+            return LOCK_PRIVILEGE;
+        } else if (o instanceof LockCancelRequestMessage) {
+            return LOCK_CANCEL_REQUEST;
+        } else if (o instanceof LockInitializeMessage) {
+            return LOCK_INITIALIZE;
+        }
+        throw new IllegalArgumentException("Cannot serialize " + o.getClass().getName());
+    }
+
+    @Override
+    public byte[] toBinary(Object o) {
+        String manifest = manifest(o);
+        int senderId = ((Message) o).getSenderId();
+        if (ADVISE.equals(manifest)) {
+            AdviseMessage m = (AdviseMessage) o;
+            byte[] bytes = new byte[1 + varIntSize(senderId)];
+            bytes[0] = (byte) ((m.isXHolder() ? IS_X_HOLDER : 0)
+                    | (m.isXInRequestQ() ? IS_X_IN_REQUEST_Q : 0)
+                    | (m.isAskedY() ? ASKED_Y : 0));
+            writeVarInt(bytes, 1, senderId);
+            return bytes;
+        }
+        if (o instanceof LockMessage) {
+            int lockId = ((LockMessage) o).getLockId();
+            int senderSize = varIntSize(senderId);
+            byte[] bytes = new byte[senderSize + varIntSize(lockId)];
+            writeVarInt(bytes, 0, senderId);
+            writeVarInt(bytes, senderSize, lockId);
+            return bytes;
+        }
+        byte[] bytes = new byte[varIntSize(senderId)];
+        writeVarInt(bytes, 0, senderId);
+        return bytes;
+    }
+
+    @Override
+    public Object fromBinary(byte[] bytes, String manifest) throws NotSerializableException {
+        switch (manifest) {
+            case REQUEST:
+                return new RequestMessage(readVarInt(bytes, 0));
+            case PRIVILEGE:
+                return new PrivilegeMessage(readVarInt(bytes, 0));
+            case INITIALIZE:
+                return new InitializeMessage(readVarInt(bytes, 0));
+            case RESTART:
+                return new RestartMessage(readVarInt(bytes, 0));
+            case ADVISE:
+                int flags = bytes[0];
+                return new AdviseMessage(readVarInt(bytes, 1), (flags & IS_X_HOLDER) != 0,
+                        (flags & IS_X_IN_REQUEST_Q) != 0, (flags & ASKED_Y) != 0);
+            case CANCEL_REQUEST:
+                return new CancelRequestMessage(readVarInt(bytes, 0));
+            case SHARED_REQUEST:
+                return new SharedRequestMessage(readVarInt(bytes, 0));
+            case READ_GRANT:
+                return new ReadGrantMessage(readVarInt(bytes, 0));
+            case READ_RELEASE:
+                return new ReadReleaseMessage(readVarInt(bytes, 0));
+            case LOCK_REQUEST:
+            case LOCK_PRIVILEGE:
+            case LOCK_CANCEL_REQUEST:
+            case LOCK_INITIALIZE:
+                return lockMessageFromBinary(bytes, manifest);
+            default:
+                throw new NotSerializableException("Unknown manifest " + manifest);
+        }
+    }
+
+    /**
+     * Decodes a message of a lock.
+     *
+     * @param bytes The id of the sender followed by the id of the lock.
+     * @param manifest The manifest of the message.
+     * @return The message.
+     */
+    private static LockMessage lockMessageFromBinary(byte[] bytes, String manifest) {
+        int senderId = readVarInt(bytes, 0);
+        int lockId = readVarInt(bytes, varIntSize(senderId));
+        switch (manifest) {
+            case LOCK_REQUEST:
+                return new LockRequestMessage(senderId, lockId);
+            case LOCK_PRIVILEGE:
+                return new LockPrivilegeMessage(senderId, lockId);
+            case LOCK_INITIALIZE:
+                return new LockInitializeMessage(senderId, lockId);
+            default:
+                return new LockCancelRequestMessage(senderId, lockId);
+        }
+    }
+
+    /**
+     * Gets the number of bytes of an integer in the variable-length format.
+     *
+     * @param value The integer, treated as unsigned.
+     * @return A number from 1 to 5.
+     */
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value >>>= 7) != 0) {
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * Writes an integer in the variable-length format: seven bits per byte,
+     * least significant first, with the high bit set on every byte but the
+     * last.
+     *
+     * @param bytes The destination.
+     * @param offset The position of the first byte.
+     * @param value The integer, treated as unsigned.
+     */
+    private static void writeVarInt(byte[] bytes, int offset, int value) {
+        while ((value & ~0x7F) != 0) {
+            bytes[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[offset] = (byte) value;
+    }
+
+    /**
+     * Reads an integer in the variable-length format.
+     *
+     * @param bytes The source.
+     * @param offset The position of the first byte.
+     * @return The integer.
+     */
+    private static int readVarInt(byte[] bytes, int offset) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[offset++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+}
@@ -12,7 +12,7 @@ public class PrivilegeMessage extends Message {
      *
      * @param senderId The id of the node that sends this message.
      */
-    public PrivilegeMessage(Integer senderId) {
+    public PrivilegeMessage(int senderId) {
         super(senderId);
     }
 }
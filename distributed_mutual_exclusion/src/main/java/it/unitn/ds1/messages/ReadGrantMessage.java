@@ -0,0 +1,19 @@
+package it.unitn.ds1.messages;
+
+/**
+ * Represents a read permit, which allows the receiver and the nodes it passes
+ * the permit on to enter the critical section with shared access. It is sent
+ * by the holder of the privilege, or by a node with a permit, to a neighbor
+ * that has requested shared access.
+ */
+public class ReadGrantMessage extends Message {
+
+    /**
+     * Creates a Read Grant Message with the information about the sender.
+     *
+     * @param senderId The id of the node that sends this message.
+     */
+    public ReadGrantMessage(int senderId) {
+        super(senderId);
+    }
+}
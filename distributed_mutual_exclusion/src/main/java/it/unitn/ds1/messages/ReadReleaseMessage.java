@@ -0,0 +1,17 @@
+package it.unitn.ds1.messages;
+
+/**
+ * Represents a message sent from a node to its holder to return a read permit
+ * when every reader it was given for has left the critical section.
+ */
+public class ReadReleaseMessage extends Message {
+
+    /**
+     * Creates a Read Release Message with the information about the sender.
+     *
+     * @param senderId The id of the node that sends this message.
+     */
+    public ReadReleaseMessage(int senderId) {
+        super(senderId);
+    }
+}
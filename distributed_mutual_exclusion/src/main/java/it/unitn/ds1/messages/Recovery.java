@@ -4,13 +4,34 @@ import java.io.Serializable;
 
 /**
  * Represents a message sent from a node to itself to schedule the beginning of
- * the recovery from a crash.
+ * the recovery from a crash. The message carries no data, so a single instance
+ * is shared by every node.
  */
 public class Recovery implements Serializable {
 
+    private static final Recovery INSTANCE = new Recovery();
+
     /**
      * Creates a Recovery message.
      */
-    public Recovery() {
+    private Recovery() {
+    }
+
+    /**
+     * Gets the Recovery message.
+     *
+     * @return The shared instance of the message.
+     */
+    public static Recovery getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Keeps the instance unique when the message is deserialized.
+     *
+     * @return The shared instance of the message.
+     */
+    private Object readResolve() {
+        return INSTANCE;
     }
 }
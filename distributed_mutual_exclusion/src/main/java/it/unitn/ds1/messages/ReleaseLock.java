@@ -0,0 +1,43 @@
+package it.unitn.ds1.messages;
+
+import java.io.Serializable;
+
+/**
+ * Represents a message sent from a client to a node to exit the critical
+ * section entered with a lease.
+ */
+public class ReleaseLock implements Serializable {
+
+    private final int lockId;
+    private final long leaseId;
+
+    /**
+     * Creates a Release Lock message with the information about the lease to
+     * release.
+     *
+     * @param lockId The id of the lock.
+     * @param leaseId The id of the lease.
+     */
+    public ReleaseLock(int lockId, long leaseId) {
+        this.lockId = lockId;
+        this.leaseId = leaseId;
+    }
+
+    /**
+     * Gets the id of the lock to release.
+     *
+     * @return An integer containing the id of the lock.
+     */
+    public int getLockId() {
+        return lockId;
+    }
+
+    /**
+     * Gets the id of the lease to release.
+     *
+     * @return A long containing the id of the lease.
+     */
+    public long getLeaseId() {
+        return leaseId;
+    }
+}
@@ -11,7 +11,7 @@ public class RequestMessage extends Message {
      *
      * @param senderId The id of the node that sends this message.
      */
-    public RequestMessage(Integer senderId) {
+    public RequestMessage(int senderId) {
         super(senderId);
     }
 }
@@ -12,7 +12,7 @@ public class RestartMessage extends Message {
      *
      * @param senderId The id of the node that sends this message.
      */
-    public RestartMessage(Integer senderId) {
+    public RestartMessage(int senderId) {
         super(senderId);
     }
 }
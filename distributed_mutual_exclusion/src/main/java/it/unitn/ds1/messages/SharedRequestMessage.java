@@ -0,0 +1,18 @@
+package it.unitn.ds1.messages;
+
+/**
+ * Represents a message sent from a node to its holder to show the intention to
+ * get shared access either for itself or others, in the reader-writer variant
+ * of the protocol. A request for exclusive access is a Request Message.
+ */
+public class SharedRequestMessage extends Message {
+
+    /**
+     * Creates a Shared Request Message with the information about the sender.
+     *
+     * @param senderId The id of the node that sends this message.
+     */
+    public SharedRequestMessage(int senderId) {
+        super(senderId);
+    }
+}
@@ -0,0 +1,37 @@
+package it.unitn.ds1.messages;
+
+import java.io.Serializable;
+
+/**
+ * Represents a message sent from the launcher of a multi-JVM deployment to the
+ * agent of another JVM, to terminate the actor system of that JVM. The message
+ * carries no data, so a single instance is shared.
+ */
+public class Shutdown implements Serializable {
+
+    private static final Shutdown INSTANCE = new Shutdown();
+
+    /**
+     * Creates a Shutdown message.
+     */
+    private Shutdown() {
+    }
+
+    /**
+     * Gets the Shutdown message.
+     *
+     * @return The shared instance of the message.
+     */
+    public static Shutdown getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Keeps the instance unique when the message is deserialized.
+     *
+     * @return The shared instance of the message.
+     */
+    private Object readResolve() {
+        return INSTANCE;
+    }
+}
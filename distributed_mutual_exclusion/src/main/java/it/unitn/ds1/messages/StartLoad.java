@@ -0,0 +1,38 @@
+package it.unitn.ds1.messages;
+
+import java.io.Serializable;
+
+/**
+ * Represents a message sent from the launcher of a multi-JVM deployment to the
+ * agent of another JVM, to run the load generator on the nodes of that JVM.
+ * The agent replies with the text of the load report. The message carries no
+ * data, so a single instance is shared.
+ */
+public class StartLoad implements Serializable {
+
+    private static final StartLoad INSTANCE = new StartLoad();
+
+    /**
+     * Creates a Start Load message.
+     */
+    private StartLoad() {
+    }
+
+    /**
+     * Gets the Start Load message.
+     *
+     * @return The shared instance of the message.
+     */
+    public static StartLoad getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Keeps the instance unique when the message is deserialized.
+     *
+     * @return The shared instance of the message.
+     */
+    private Object readResolve() {
+        return INSTANCE;
+    }
+}
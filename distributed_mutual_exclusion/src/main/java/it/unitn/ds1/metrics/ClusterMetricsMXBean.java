@@ -0,0 +1,40 @@
+package it.unitn.ds1.metrics;
+
+/**
+ * The metrics of all the nodes of this JVM exposed through JMX.
+ */
+public interface ClusterMetricsMXBean {
+
+    int getNodes();
+
+    long getMessagesSent();
+
+    long getRequestsSent();
+
+    long getPrivilegesSent();
+
+    long getReadGrantsSent();
+
+    long getReadReleasesSent();
+
+    long getCriticalSectionEntries();
+
+    double getMessagesPerCriticalSectionEntry();
+
+    long getP50AcquisitionMicros();
+
+    long getP99AcquisitionMicros();
+
+    long getP999AcquisitionMicros();
+
+    long getMaxAcquisitionMicros();
+
+    /**
+     * Gets the metrics of a node.
+     *
+     * @param nodeId The id of the node.
+     * @return A CSV line with the metrics of the node, or null if the node
+     * does not exist.
+     */
+    String getNodeSnapshot(int nodeId);
+}
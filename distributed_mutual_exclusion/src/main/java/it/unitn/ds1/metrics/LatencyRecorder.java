@@ -0,0 +1,74 @@
+package it.unitn.ds1.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.SingleWriterRecorder;
+
+/**
+ * Records latencies in nanoseconds with an HdrHistogram. The owner of the
+ * recorder writes to it without locks; the readers periodically move what has
+ * been recorded into a cumulative histogram, so the latencies can be read and
+ * merged at any time.
+ */
+public class LatencyRecorder {
+
+    /**
+     * Number of significant decimal digits of the recorded values.
+     */
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final SingleWriterRecorder recorder = new SingleWriterRecorder(SIGNIFICANT_DIGITS);
+    /**
+     * Every latency collected from the recorder so far.
+     */
+    private final Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+    /**
+     * The latencies recorded since the last collection.
+     */
+    private Histogram interval = null;
+
+    /**
+     * Records a latency. Must be called only by the owner of the recorder.
+     *
+     * @param nanos The latency in nanoseconds.
+     */
+    public void record(long nanos) {
+        recorder.recordValue(Math.max(0, nanos));
+    }
+
+    /**
+     * Moves the latencies recorded since the last call into the cumulative
+     * histogram.
+     */
+    private void collect() {
+        interval = recorder.getIntervalHistogram(interval);
+        total.add(interval);
+    }
+
+    /**
+     * Gets every latency recorded so far.
+     *
+     * @return A copy of the cumulative histogram, in nanoseconds.
+     */
+    public synchronized Histogram getHistogram() {
+        collect();
+        return total.copy();
+    }
+
+    /**
+     * Adds every latency recorded so far to another histogram.
+     *
+     * @param target The histogram the latencies are added to.
+     */
+    public synchronized void addTo(Histogram target) {
+        collect();
+        target.add(total);
+    }
+
+    /**
+     * Discards every latency recorded so far.
+     */
+    public synchronized void reset() {
+        collect();
+        total.reset();
+    }
+}
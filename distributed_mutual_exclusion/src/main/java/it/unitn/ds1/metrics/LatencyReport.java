@@ -0,0 +1,113 @@
+package it.unitn.ds1.metrics;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The percentiles of the time the nodes waited to enter the critical section,
+ * from the local request to the entry, on a given topology.
+ */
+public class LatencyReport {
+
+    /**
+     * The header of the CSV lines of the reports.
+     */
+    public static final String CSV_HEADER = "topology,count,p50Micros,p99Micros,p999Micros,maxMicros";
+
+    private final String topology;
+    private final long count;
+    private final long p50;
+    private final long p99;
+    private final long p999;
+    private final long max;
+
+    /**
+     * Creates a Latency Report with the information about the latencies
+     * recorded on a topology.
+     *
+     * @param topology The name of the topology.
+     * @param nanos The histogram of the latencies, in nanoseconds.
+     */
+    public LatencyReport(String topology, Histogram nanos) {
+        this.topology = topology;
+        this.count = nanos.getTotalCount();
+        this.p50 = micros(nanos.getValueAtPercentile(50));
+        this.p99 = micros(nanos.getValueAtPercentile(99));
+        this.p999 = micros(nanos.getValueAtPercentile(99.9));
+        this.max = micros(nanos.getMaxValue());
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    /**
+     * Gets the name of the topology.
+     *
+     * @return The name of the topology.
+     */
+    public String getTopology() {
+        return topology;
+    }
+
+    /**
+     * Gets the number of critical section entries measured.
+     *
+     * @return The number of latencies in the report.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the median latency.
+     *
+     * @return The 50th percentile in microseconds.
+     */
+    public long getP50Micros() {
+        return p50;
+    }
+
+    /**
+     * Gets the 99th percentile of the latency.
+     *
+     * @return The 99th percentile in microseconds.
+     */
+    public long getP99Micros() {
+        return p99;
+    }
+
+    /**
+     * Gets the 99.9th percentile of the latency.
+     *
+     * @return The 99.9th percentile in microseconds.
+     */
+    public long getP999Micros() {
+        return p999;
+    }
+
+    /**
+     * Gets the maximum latency.
+     *
+     * @return The maximum latency in microseconds.
+     */
+    public long getMaxMicros() {
+        return max;
+    }
+
+    /**
+     * Formats the report as a CSV line, without the line terminator.
+     *
+     * @return The CSV line of the report.
+     */
+    public String toCsv() {
+        return topology + "," + count + "," + p50 + "," + p99 + "," + p999 + "," + max;
+    }
+
+    @Override
+    public String toString() {
+        return "Critical section latency on " + topology + " (" + count + " entries): "
+                + "p50 " + p50 + " us, p99 " + p99 + " us, p99.9 " + p999 + " us, max " + max + " us";
+    }
+}
@@ -0,0 +1,94 @@
+package it.unitn.ds1.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of non-negative values with one bucket for each power of two.
+ * Bucket i counts the values whose highest set bit is i - 1 (bucket 0 counts
+ * zero), so quantiles are known within a factor of two. It is written by a
+ * single thread and can be read concurrently by any thread.
+ */
+public class Log2Histogram {
+
+    private static final int BUCKETS = 65;
+    /**
+     * Count of each bucket.
+     */
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    /**
+     * Number of recorded values, their sum and their maximum.
+     */
+    private final AtomicLongArray totals = new AtomicLongArray(3);
+
+    private static final int COUNT = 0;
+    private static final int SUM = 1;
+    private static final int MAX = 2;
+
+    /**
+     * Records a value. It must be called by one thread at a time.
+     *
+     * @param value The value to record; negative values are recorded as zero.
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        int bucket = BUCKETS - Long.numberOfLeadingZeros(value) - 1;
+        buckets.lazySet(bucket, buckets.get(bucket) + 1);
+        totals.lazySet(COUNT, totals.get(COUNT) + 1);
+        totals.lazySet(SUM, totals.get(SUM) + value);
+        if (value > totals.get(MAX)) {
+            totals.lazySet(MAX, value);
+        }
+    }
+
+    /**
+     * Gets the number of recorded values.
+     *
+     * @return The number of values.
+     */
+    public long getCount() {
+        return totals.get(COUNT);
+    }
+
+    /**
+     * Gets the mean of the recorded values.
+     *
+     * @return The mean, or 0 if no value was recorded.
+     */
+    public double getMean() {
+        long count = totals.get(COUNT);
+        return count == 0 ? 0 : (double) totals.get(SUM) / count;
+    }
+
+    /**
+     * Gets the largest recorded value.
+     *
+     * @return The maximum, or 0 if no value was recorded.
+     */
+    public long getMax() {
+        return totals.get(MAX);
+    }
+
+    /**
+     * Gets an upper bound of a quantile of the recorded values.
+     *
+     * @param quantile The quantile, between 0 and 1.
+     * @return The upper bound of the bucket containing the quantile, capped
+     * at the maximum.
+     */
+    public long getQuantile(double quantile) {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += buckets.get(i);
+        }
+        long rank = (long) Math.ceil(quantile * count);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank && seen > 0) {
+                long upperBound = i == 0 ? 0 : i >= 64 ? Long.MAX_VALUE : (1L << i) - 1;
+                return Math.min(upperBound, getMax());
+            }
+        }
+        return 0;
+    }
+}
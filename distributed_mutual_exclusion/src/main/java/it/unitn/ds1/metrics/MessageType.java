@@ -0,0 +1,14 @@
+package it.unitn.ds1.metrics;
+
+/**
+ * Represents the types of protocol messages counted by the metrics.
+ */
+public enum MessageType {
+    REQUEST,
+    PRIVILEGE,
+    RESTART,
+    ADVISE,
+    CANCEL,
+    READ_GRANT,
+    READ_RELEASE
+}
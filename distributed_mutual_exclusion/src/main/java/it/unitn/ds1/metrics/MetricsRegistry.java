@@ -0,0 +1,286 @@
+package it.unitn.ds1.metrics;
+
+import org.HdrHistogram.Histogram;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Keeps the metrics of all the nodes of this JVM, exposes them through JMX and
+ * writes snapshots of them in CSV.
+ *
+ * The registry itself is always registered as the MBean
+ * "it.unitn.ds1:type=Cluster"; the metrics of each node are registered as
+ * "it.unitn.ds1:type=Node,id=N" only for the first nodes, up to a limit, so
+ * that large networks do not flood the MBean server.
+ */
+public class MetricsRegistry implements ClusterMetricsMXBean {
+
+    /**
+     * The header of the snapshots.
+     */
+    public static final String CSV_HEADER = "millis,node,requestsSent,requestsReceived,privilegesSent,privilegesReceived,"
+            + "restartsSent,restartsReceived,advisesSent,advisesReceived,cancelsSent,cancelsReceived,"
+            + "readGrantsSent,readGrantsReceived,readReleasesSent,readReleasesReceived,requestQueueLength,maxRequestQueueLength,"
+            + "criticalSectionEntries,meanAcquisitionMicros,p99AcquisitionMicros,maxAcquisitionMicros,"
+            + "meanPrivilegeHoldMicros,recoveries,meanRecoveryMicros,phase";
+
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+    private static final String DOMAIN = "it.unitn.ds1";
+
+    private final Map<Integer, NodeMetrics> nodes = new ConcurrentSkipListMap<>();
+    private volatile int jmxNodeLimit = 1000;
+
+    private MetricsRegistry() {
+        register(this, DOMAIN + ":type=Cluster");
+    }
+
+    /**
+     * Gets the registry of this JVM.
+     *
+     * @return The metrics registry.
+     */
+    public static MetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Sets the number of nodes whose metrics are registered as MBeans.
+     *
+     * @param limit The maximum number of node MBeans.
+     */
+    public void setJmxNodeLimit(int limit) {
+        this.jmxNodeLimit = limit;
+    }
+
+    /**
+     * Adds the metrics of a node to the registry, replacing the previous
+     * metrics of the same node.
+     *
+     * @param metrics The metrics of the node.
+     */
+    public void register(NodeMetrics metrics) {
+        NodeMetrics previous = nodes.put(metrics.getNodeId(), metrics);
+        if (metrics.getNodeId() < jmxNodeLimit) {
+            String name = DOMAIN + ":type=Node,id=" + metrics.getNodeId();
+            if (previous != null) {
+                unregister(name);
+            }
+            register(metrics, name);
+        }
+    }
+
+    private static void register(Object mbean, String name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(mbean, new ObjectName(name));
+        } catch (JMException e) {
+            System.err.println("WARNING: cannot register the MBean " + name + ": " + e.getMessage());
+        }
+    }
+
+    private static void unregister(String name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(new ObjectName(name));
+        } catch (JMException e) {
+            // Not registered
+        }
+    }
+
+    /**
+     * Removes the metrics of every node from the registry, for example before
+     * running the protocol on another topology in the same JVM.
+     */
+    public void clear() {
+        for (Integer nodeId : nodes.keySet()) {
+            if (nodeId < jmxNodeLimit) {
+                unregister(DOMAIN + ":type=Node,id=" + nodeId);
+            }
+        }
+        nodes.clear();
+    }
+
+    /**
+     * Merges the time from a local request to the entry in the critical
+     * section of every node.
+     *
+     * @return The histogram of the latencies of the cluster, in nanoseconds.
+     */
+    public Histogram getAcquisitionLatency() {
+        Histogram merged = new Histogram(3);
+        for (NodeMetrics m : nodes.values()) {
+            m.getAcquisitionLatency().addTo(merged);
+        }
+        return merged;
+    }
+
+    /**
+     * Gets the percentiles of the time from a local request to the entry in
+     * the critical section of every node.
+     *
+     * @param topology The name of the topology the nodes are running on.
+     * @return The latency report of the cluster.
+     */
+    public LatencyReport getLatencyReport(String topology) {
+        return new LatencyReport(topology, getAcquisitionLatency());
+    }
+
+    /**
+     * Gets the metrics of a node.
+     *
+     * @param nodeId The id of the node.
+     * @return The metrics of the node, or null if the node does not exist.
+     */
+    public NodeMetrics get(int nodeId) {
+        return nodes.get(nodeId);
+    }
+
+    /**
+     * Writes a snapshot of the metrics of every node, one CSV line per node.
+     *
+     * @param out The writer of the snapshot.
+     * @param millis The time of the snapshot, written in each line.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    public void writeSnapshot(Writer out, long millis) throws IOException {
+        StringBuilder line = new StringBuilder(256);
+        for (NodeMetrics m : nodes.values()) {
+            line.setLength(0);
+            line.append(millis).append(',');
+            appendCsv(line, m);
+            out.append(line);
+        }
+    }
+
+    private static void appendCsv(StringBuilder line, NodeMetrics m) {
+        line.append(m.getNodeId()).append(',')
+                .append(m.getRequestsSent()).append(',')
+                .append(m.getRequestsReceived()).append(',')
+                .append(m.getPrivilegesSent()).append(',')
+                .append(m.getPrivilegesReceived()).append(',')
+                .append(m.getRestartsSent()).append(',')
+                .append(m.getRestartsReceived()).append(',')
+                .append(m.getAdvisesSent()).append(',')
+                .append(m.getAdvisesReceived()).append(',')
+                .append(m.getCancelsSent()).append(',')
+                .append(m.getCancelsReceived()).append(',')
+                .append(m.getReadGrantsSent()).append(',')
+                .append(m.getReadGrantsReceived()).append(',')
+                .append(m.getReadReleasesSent()).append(',')
+                .append(m.getReadReleasesReceived()).append(',')
+                .append(m.getRequestQueueLength()).append(',')
+                .append(m.getMaxRequestQueueLength()).append(',')
+                .append(m.getCriticalSectionEntries()).append(',')
+                .append(String.format("%.1f", m.getMeanAcquisitionMicros())).append(',')
+                .append(m.getP99AcquisitionMicros()).append(',')
+                .append(m.getMaxAcquisitionMicros()).append(',')
+                .append(String.format("%.1f", m.getMeanPrivilegeHoldMicros())).append(',')
+                .append(m.getRecoveries()).append(',')
+                .append(String.format("%.1f", m.getMeanRecoveryMicros())).append(',')
+                .append(m.getPhase()).append('\n');
+    }
+
+    @Override
+    public int getNodes() {
+        return nodes.size();
+    }
+
+    @Override
+    public long getMessagesSent() {
+        long total = 0;
+        for (NodeMetrics m : nodes.values()) {
+            total += m.getRequestsSent() + m.getPrivilegesSent() + m.getRestartsSent() + m.getAdvisesSent()
+                    + m.getCancelsSent() + m.getReadGrantsSent() + m.getReadReleasesSent();
+        }
+        return total;
+    }
+
+    @Override
+    public long getRequestsSent() {
+        long total = 0;
+        for (NodeMetrics m : nodes.values()) {
+            total += m.getRequestsSent();
+        }
+        return total;
+    }
+
+    @Override
+    public long getPrivilegesSent() {
+        long total = 0;
+        for (NodeMetrics m : nodes.values()) {
+            total += m.getPrivilegesSent();
+        }
+        return total;
+    }
+
+    @Override
+    public long getReadGrantsSent() {
+        long total = 0;
+        for (NodeMetrics m : nodes.values()) {
+            total += m.getReadGrantsSent();
+        }
+        return total;
+    }
+
+    @Override
+    public long getReadReleasesSent() {
+        long total = 0;
+        for (NodeMetrics m : nodes.values()) {
+            total += m.getReadReleasesSent();
+        }
+        return total;
+    }
+
+    @Override
+    public long getCriticalSectionEntries() {
+        long total = 0;
+        for (NodeMetrics m : nodes.values()) {
+            total += m.getCriticalSectionEntries();
+        }
+        return total;
+    }
+
+    @Override
+    public double getMessagesPerCriticalSectionEntry() {
+        long entries = getCriticalSectionEntries();
+        return entries == 0 ? 0 : (double) getMessagesSent() / entries;
+    }
+
+    @Override
+    public long getP50AcquisitionMicros() {
+        return getLatencyReport("").getP50Micros();
+    }
+
+    @Override
+    public long getP99AcquisitionMicros() {
+        return getLatencyReport("").getP99Micros();
+    }
+
+    @Override
+    public long getP999AcquisitionMicros() {
+        return getLatencyReport("").getP999Micros();
+    }
+
+    @Override
+    public long getMaxAcquisitionMicros() {
+        return getLatencyReport("").getMaxMicros();
+    }
+
+    @Override
+    public String getNodeSnapshot(int nodeId) {
+        NodeMetrics m = nodes.get(nodeId);
+        if (m == null) {
+            return null;
+        }
+        StringBuilder line = new StringBuilder(256);
+        appendCsv(line, m);
+        return line.toString().trim();
+    }
+}
@@ -0,0 +1,354 @@
+package it.unitn.ds1.metrics;
+
+import it.unitn.ds1.protocol.Phase;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Collects the metrics of a node: the protocol messages sent and received, the
+ * length of the request queue, the time from a local request to the entry in
+ * the critical section, the time the node holds the privilege, the
+ * duration of the recoveries and the current phase of the node.
+ *
+ * The metrics are updated only by the node that owns them and can be read at
+ * any time by other threads, for example through JMX.
+ */
+public class NodeMetrics implements NodeMetricsMXBean {
+
+    private final int nodeId;
+    /**
+     * Number of messages sent and received, by message type.
+     */
+    private final AtomicLongArray sent = new AtomicLongArray(MessageType.values().length);
+    private final AtomicLongArray received = new AtomicLongArray(MessageType.values().length);
+    private final AtomicLong criticalSectionEntries = new AtomicLong();
+    private volatile int requestQueueLength = 0;
+    private volatile Phase phase = Phase.IDLE;
+    private final Log2Histogram requestQueueLengths = new Log2Histogram();
+    /**
+     * Time from a local request to the entry in the critical section.
+     */
+    private final LatencyRecorder acquisitionLatency = new LatencyRecorder();
+    private final Log2Histogram privilegeHoldMicros = new Log2Histogram();
+    private final Log2Histogram recoveryMicros = new Log2Histogram();
+
+    /**
+     * Times of the local requests waiting for the privilege, in arrival
+     * order, as a circular buffer.
+     */
+    private long[] pendingRequests = new long[4];
+    private int pendingHead = 0;
+    private int pendingSize = 0;
+    /**
+     * Time when the node got the privilege, or -1 if it does not hold it.
+     */
+    private long privilegeSince = -1;
+    /**
+     * Time when the recovery started, or -1 if the node is not recovering.
+     */
+    private long recoverySince = -1;
+
+    /**
+     * Creates the Node Metrics of a node.
+     *
+     * @param nodeId The id of the node.
+     */
+    public NodeMetrics(int nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    /**
+     * Counts a message sent by the node.
+     *
+     * @param type The type of the message.
+     */
+    public void messageSent(MessageType type) {
+        sent.lazySet(type.ordinal(), sent.get(type.ordinal()) + 1);
+    }
+
+    /**
+     * Counts a message received by the node.
+     *
+     * @param type The type of the message.
+     */
+    public void messageReceived(MessageType type) {
+        received.lazySet(type.ordinal(), received.get(type.ordinal()) + 1);
+    }
+
+    /**
+     * Records the length of the request queue after it has changed.
+     *
+     * @param length The length of the request queue.
+     */
+    public void requestQueueChanged(int length) {
+        requestQueueLength = length;
+        requestQueueLengths.record(length);
+    }
+
+    /**
+     * Records the phase of the node after it has changed.
+     *
+     * @param phase The phase of the node.
+     */
+    public void phaseChanged(Phase phase) {
+        this.phase = phase;
+    }
+
+    /**
+     * Records a local request for the privilege.
+     *
+     * @param now The current time, from System.nanoTime().
+     */
+    public void localRequest(long now) {
+        if (pendingSize == pendingRequests.length) {
+            long[] grown = new long[2 * pendingRequests.length];
+            for (int i = 0; i < pendingSize; i++) {
+                grown[i] = pendingRequests[(pendingHead + i) % pendingRequests.length];
+            }
+            pendingRequests = grown;
+            pendingHead = 0;
+        }
+        pendingRequests[(pendingHead + pendingSize) % pendingRequests.length] = now;
+        pendingSize++;
+    }
+
+    /**
+     * Records that a local request has been withdrawn before entering the
+     * critical section.
+     *
+     * @param index The position of the request among the local requests
+     * waiting for the privilege, 0 for the oldest one.
+     */
+    public void localRequestCancelled(int index) {
+        if (index < 0 || index >= pendingSize) {
+            return;
+        }
+        for (int i = index; i < pendingSize - 1; i++) {
+            pendingRequests[(pendingHead + i) % pendingRequests.length] =
+                    pendingRequests[(pendingHead + i + 1) % pendingRequests.length];
+        }
+        pendingSize--;
+    }
+
+    /**
+     * Records the entry in the critical section, which serves the oldest
+     * local request.
+     *
+     * @param now The current time, from System.nanoTime().
+     */
+    public void enteredCriticalSection(long now) {
+        criticalSectionEntries.lazySet(criticalSectionEntries.get() + 1);
+        if (pendingSize > 0) {
+            long requestedAt = pendingRequests[pendingHead];
+            pendingHead = (pendingHead + 1) % pendingRequests.length;
+            pendingSize--;
+            acquisitionLatency.record(now - requestedAt);
+        }
+    }
+
+    /**
+     * Records that the node became the holder of the privilege.
+     *
+     * @param now The current time, from System.nanoTime().
+     */
+    public void privilegeAcquired(long now) {
+        if (privilegeSince < 0) {
+            privilegeSince = now;
+        }
+    }
+
+    /**
+     * Records that the node sent the privilege to a neighbor.
+     *
+     * @param now The current time, from System.nanoTime().
+     */
+    public void privilegeReleased(long now) {
+        if (privilegeSince >= 0) {
+            privilegeHoldMicros.record(TimeUnit.NANOSECONDS.toMicros(now - privilegeSince));
+            privilegeSince = -1;
+        }
+    }
+
+    /**
+     * Records a crash of the node, which loses its pending requests and the
+     * privilege.
+     */
+    public void crashed() {
+        pendingSize = 0;
+        privilegeSince = -1;
+        requestQueueChanged(0);
+    }
+
+    /**
+     * Records the beginning of a recovery.
+     *
+     * @param now The current time, from System.nanoTime().
+     */
+    public void recoveryStarted(long now) {
+        recoverySince = now;
+    }
+
+    /**
+     * Records the end of a recovery.
+     *
+     * @param now The current time, from System.nanoTime().
+     */
+    public void recoveryCompleted(long now) {
+        if (recoverySince >= 0) {
+            recoveryMicros.record(TimeUnit.NANOSECONDS.toMicros(now - recoverySince));
+            recoverySince = -1;
+        }
+    }
+
+    /**
+     * Gets the recorder of the time from a local request to the entry in the
+     * critical section.
+     *
+     * @return The acquisition latency recorder, in nanoseconds.
+     */
+    public LatencyRecorder getAcquisitionLatency() {
+        return acquisitionLatency;
+    }
+
+    @Override
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public long getRequestsSent() {
+        return sent.get(MessageType.REQUEST.ordinal());
+    }
+
+    @Override
+    public long getRequestsReceived() {
+        return received.get(MessageType.REQUEST.ordinal());
+    }
+
+    @Override
+    public long getPrivilegesSent() {
+        return sent.get(MessageType.PRIVILEGE.ordinal());
+    }
+
+    @Override
+    public long getPrivilegesReceived() {
+        return received.get(MessageType.PRIVILEGE.ordinal());
+    }
+
+    @Override
+    public long getRestartsSent() {
+        return sent.get(MessageType.RESTART.ordinal());
+    }
+
+    @Override
+    public long getRestartsReceived() {
+        return received.get(MessageType.RESTART.ordinal());
+    }
+
+    @Override
+    public long getAdvisesSent() {
+        return sent.get(MessageType.ADVISE.ordinal());
+    }
+
+    @Override
+    public long getAdvisesReceived() {
+        return received.get(MessageType.ADVISE.ordinal());
+    }
+
+    @Override
+    public long getCancelsSent() {
+        return sent.get(MessageType.CANCEL.ordinal());
+    }
+
+    @Override
+    public long getCancelsReceived() {
+        return received.get(MessageType.CANCEL.ordinal());
+    }
+
+    @Override
+    public long getReadGrantsSent() {
+        return sent.get(MessageType.READ_GRANT.ordinal());
+    }
+
+    @Override
+    public long getReadGrantsReceived() {
+        return received.get(MessageType.READ_GRANT.ordinal());
+    }
+
+    @Override
+    public long getReadReleasesSent() {
+        return sent.get(MessageType.READ_RELEASE.ordinal());
+    }
+
+    @Override
+    public long getReadReleasesReceived() {
+        return received.get(MessageType.READ_RELEASE.ordinal());
+    }
+
+    @Override
+    public int getRequestQueueLength() {
+        return requestQueueLength;
+    }
+
+    @Override
+    public Phase getPhase() {
+        return phase;
+    }
+
+    @Override
+    public long getMaxRequestQueueLength() {
+        return requestQueueLengths.getMax();
+    }
+
+    @Override
+    public double getMeanRequestQueueLength() {
+        return requestQueueLengths.getMean();
+    }
+
+    @Override
+    public long getCriticalSectionEntries() {
+        return criticalSectionEntries.get();
+    }
+
+    @Override
+    public double getMeanAcquisitionMicros() {
+        return acquisitionLatency.getHistogram().getMean() / 1000;
+    }
+
+    @Override
+    public long getP99AcquisitionMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(acquisitionLatency.getHistogram().getValueAtPercentile(99));
+    }
+
+    @Override
+    public long getMaxAcquisitionMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(acquisitionLatency.getHistogram().getMaxValue());
+    }
+
+    @Override
+    public double getMeanPrivilegeHoldMicros() {
+        return privilegeHoldMicros.getMean();
+    }
+
+    @Override
+    public long getMaxPrivilegeHoldMicros() {
+        return privilegeHoldMicros.getMax();
+    }
+
+    @Override
+    public long getRecoveries() {
+        return recoveryMicros.getCount();
+    }
+
+    @Override
+    public double getMeanRecoveryMicros() {
+        return recoveryMicros.getMean();
+    }
+
+    @Override
+    public long getMaxRecoveryMicros() {
+        return recoveryMicros.getMax();
+    }
+}
@@ -0,0 +1,65 @@
+package it.unitn.ds1.metrics;
+
+import it.unitn.ds1.protocol.Phase;
+
+/**
+ * The metrics of a node exposed through JMX. Times are in microseconds.
+ */
+public interface NodeMetricsMXBean {
+
+    int getNodeId();
+
+    long getRequestsSent();
+
+    long getRequestsReceived();
+
+    long getPrivilegesSent();
+
+    long getPrivilegesReceived();
+
+    long getRestartsSent();
+
+    long getRestartsReceived();
+
+    long getAdvisesSent();
+
+    long getAdvisesReceived();
+
+    long getCancelsSent();
+
+    long getCancelsReceived();
+
+    long getReadGrantsSent();
+
+    long getReadGrantsReceived();
+
+    long getReadReleasesSent();
+
+    long getReadReleasesReceived();
+
+    int getRequestQueueLength();
+
+    long getMaxRequestQueueLength();
+
+    double getMeanRequestQueueLength();
+
+    long getCriticalSectionEntries();
+
+    double getMeanAcquisitionMicros();
+
+    long getP99AcquisitionMicros();
+
+    long getMaxAcquisitionMicros();
+
+    double getMeanPrivilegeHoldMicros();
+
+    long getMaxPrivilegeHoldMicros();
+
+    long getRecoveries();
+
+    double getMeanRecoveryMicros();
+
+    long getMaxRecoveryMicros();
+
+    Phase getPhase();
+}
@@ -1,21 +1,42 @@
 package it.unitn.ds1.network;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
 
 /**
  * Represents the computer network. This class is used only at the beginning to
  * create the tree topology.
+ *
+ * The edges are collected in two arrays while the graph is built and are
+ * compacted in compressed sparse row form the first time the neighbors are
+ * read: the neighbors of node u are targets[offsets[u]] to
+ * targets[offsets[u + 1] - 1].
  */
 public class Graph {
 
-    /**
-     * List that describes the set of neighbors of each node in the network.
-     */
-    ArrayList<ArrayList<Integer>> adj;
     /**
      * Number of nodes in the network.
      */
     int V;
+    /**
+     * Number of edges added to the network.
+     */
+    private int E = 0;
+    /**
+     * The ends of each edge added to the network.
+     */
+    private int[] edgeFrom;
+    private int[] edgeTo;
+    /**
+     * Position in targets of the first neighbor of each node; offsets[V] is
+     * the total number of neighbors. Null until the edges are compacted.
+     */
+    private int[] offsets = null;
+    /**
+     * The concatenation of the neighbors of every node.
+     */
+    private int[] targets = null;
 
     /**
      * Creates a Graph with the information about the number of nodes in the
@@ -25,10 +46,25 @@ public class Graph {
      */
     public Graph(int V) {
         this.V = V;
-        adj = new ArrayList<ArrayList<Integer>>(V);
-        for (int i = 0; i < V; i++) {
-            adj.add(new ArrayList<Integer>());
-        }
+        // A tree has exactly V - 1 edges
+        int capacity = Math.max(1, V - 1);
+        this.edgeFrom = new int[capacity];
+        this.edgeTo = new int[capacity];
+    }
+
+    /**
+     * Creates a Graph from the list of its edges, without copying it.
+     *
+     * @param V The number of nodes in the network.
+     * @param edgeFrom The first end of each edge.
+     * @param edgeTo The second end of each edge.
+     * @param E The number of edges.
+     */
+    Graph(int V, int[] edgeFrom, int[] edgeTo, int E) {
+        this.V = V;
+        this.edgeFrom = edgeFrom;
+        this.edgeTo = edgeTo;
+        this.E = E;
     }
 
     /**
@@ -38,33 +74,203 @@ public class Graph {
      * @param v The id of a node in the network.
      */
     public void addEdge(int u, int v) {
-        adj.get(u).add(v);
-        adj.get(v).add(u);
+        if (u < 0 || u >= V || v < 0 || v >= V) {
+            throw new IndexOutOfBoundsException("Edge (" + u + ", " + v + ") out of a network of " + V + " nodes");
+        }
+        if (E == edgeFrom.length) {
+            edgeFrom = Arrays.copyOf(edgeFrom, 2 * E);
+            edgeTo = Arrays.copyOf(edgeTo, 2 * E);
+        }
+        edgeFrom[E] = u;
+        edgeTo[E] = v;
+        E++;
+        offsets = null;
+        targets = null;
+    }
+
+    /**
+     * Builds the compressed sparse row form of the edges added so far.
+     */
+    private void compact() {
+        if (offsets != null) {
+            return;
+        }
+        int[] o = new int[V + 1];
+        for (int e = 0; e < E; e++) {
+            o[edgeFrom[e] + 1]++;
+            o[edgeTo[e] + 1]++;
+        }
+        for (int i = 0; i < V; i++) {
+            o[i + 1] += o[i];
+        }
+        int[] t = new int[2 * E];
+        int[] next = Arrays.copyOf(o, V);
+        for (int e = 0; e < E; e++) {
+            t[next[edgeFrom[e]]++] = edgeTo[e];
+            t[next[edgeTo[e]]++] = edgeFrom[e];
+        }
+        offsets = o;
+        targets = t;
+    }
+
+    /**
+     * Gets the number of nodes in the network.
+     *
+     * @return The number of nodes in the network.
+     */
+    public int getNumberOfNodes() {
+        return V;
+    }
+
+    /**
+     * Gets the number of edges in the network.
+     *
+     * @return The number of edges in the network.
+     */
+    public int getNumberOfEdges() {
+        return E;
+    }
+
+    /**
+     * Gets the number of neighbors of a node in the network.
+     *
+     * @param u The id of the node.
+     * @return The number of neighbors of the node.
+     */
+    public int getDegree(int u) {
+        compact();
+        return offsets[u + 1] - offsets[u];
     }
 
     /**
      * Gets the neighbors of a node in the network.
      *
      * @param u The id of the node we want to get the neighbors.
-     * @return A list containing the id of the neighbors in the network.
+     * @return A new array containing the id of the neighbors in the network.
+     */
+    public int[] getNeighbors(int u) {
+        compact();
+        return Arrays.copyOfRange(targets, offsets[u], offsets[u + 1]);
+    }
+
+    /**
+     * Iterates over the neighbors of a node in the network without boxing
+     * them.
+     *
+     * @param u The id of the node we want to get the neighbors.
+     * @return An iterator over the id of the neighbors in the network.
+     */
+    public PrimitiveIterator.OfInt neighbors(int u) {
+        compact();
+        final int[] t = targets;
+        final int end = offsets[u + 1];
+        final int start = offsets[u];
+        return new PrimitiveIterator.OfInt() {
+            private int i = start;
+
+            @Override
+            public boolean hasNext() {
+                return i < end;
+            }
+
+            @Override
+            public int nextInt() {
+                if (i >= end) {
+                    throw new NoSuchElementException();
+                }
+                return t[i++];
+            }
+        };
+    }
+
+    /**
+     * Gets the position of the first neighbor of each node in the array
+     * returned by {@link #getTargets()}. The array must not be modified.
+     *
+     * @return An array of V + 1 offsets.
      */
-    public ArrayList<Integer> getAdjacencyList(int u) {
-        return adj.get(u);
+    public int[] getOffsets() {
+        compact();
+        return offsets;
+    }
+
+    /**
+     * Gets the concatenation of the neighbors of every node. The array must
+     * not be modified.
+     *
+     * @return An array containing the id of the neighbors of every node.
+     */
+    public int[] getTargets() {
+        compact();
+        return targets;
+    }
+
+    /**
+     * Gets the diameter of the network, that is the maximum number of hops
+     * between two nodes. The network must be a tree: the farthest node from
+     * any node is an end of a longest path.
+     *
+     * @return The diameter of the tree.
+     */
+    public int getDiameter() {
+        int[] parent = new int[V];
+        int[] order = new int[V];
+        int a = order[bfs(0, parent, order) - 1];
+        int b = order[bfs(a, parent, order) - 1];
+        int diameter = 0;
+        for (int v = b; v != a; v = parent[v]) {
+            diameter++;
+        }
+        return diameter;
+    }
+
+    /**
+     * Visits the network in breadth-first order.
+     *
+     * @param root The node from which the visit starts.
+     * @param parent Filled with the parent of each visited node in the BFS
+     * tree; the parent of the root is the root itself, the parent of the
+     * nodes not reached is -1.
+     * @param order Filled with the visited nodes, in visit order.
+     * @return The number of visited nodes.
+     */
+    int bfs(int root, int[] parent, int[] order) {
+        compact();
+        Arrays.fill(parent, -1);
+        parent[root] = root;
+        order[0] = root;
+        int head = 0;
+        int tail = 1;
+        while (head < tail) {
+            int u = order[head++];
+            for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                int v = targets[i];
+                if (parent[v] < 0) {
+                    parent[v] = u;
+                    order[tail++] = v;
+                }
+            }
+        }
+        return tail;
     }
 
     /**
      * Prints the id of the neighbors of each node in the network.
      */
     public void printAdjacencyList() {
-        for (int i = 0; i < adj.size(); i++) {
-            System.out.print("Adjacency list of " + i + ": [");
-            for (int j = 0; j < adj.get(i).size(); j++) {
-                System.out.print(adj.get(i).get(j));
-                if (j != adj.get(i).size() - 1) {
-                    System.out.print(", ");
+        compact();
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < V; i++) {
+            line.setLength(0);
+            line.append("Adjacency list of ").append(i).append(": [");
+            for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+                line.append(targets[j]);
+                if (j != offsets[i + 1] - 1) {
+                    line.append(", ");
                 }
             }
-            System.out.println("]");
+            line.append(']');
+            System.out.println(line);
         }
     }
 }
@@ -0,0 +1,139 @@
+package it.unitn.ds1.network;
+
+/**
+ * A map from integers to objects, with open addressing and linear probing in
+ * arrays whose capacity is a power of two, so that looking up a key neither
+ * boxes it nor follows a chain of entries. A removed entry is filled by
+ * shifting back the entries that follow it, so the map has no tombstones.
+ *
+ * @param <V> The type of the values, which cannot be null.
+ */
+final class IntMap<V> {
+
+    private int[] keys;
+    /**
+     * The value of each slot, null if the slot is free.
+     */
+    private Object[] values;
+    private int mask;
+    private int size = 0;
+
+    /**
+     * Creates an empty Int Map.
+     */
+    IntMap() {
+        keys = new int[16];
+        values = new Object[16];
+        mask = 15;
+    }
+
+    /**
+     * Gets the number of entries.
+     *
+     * @return The size of the map.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Gets the value of a key.
+     *
+     * @param key The key.
+     * @return The value, or null if the key is not in the map.
+     */
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        for (int i = slot(key); values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return (V) values[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Associates a value with a key, replacing the previous one.
+     *
+     * @param key The key.
+     * @param value The value.
+     */
+    void put(int key, V value) {
+        int i = slot(key);
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        // Keep at least half of the slots free
+        if (++size > (mask + 1) / 2) {
+            grow();
+        }
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @param key The key.
+     * @return True if the key was in the map, false otherwise.
+     */
+    boolean remove(int key) {
+        int i = slot(key);
+        while (keys[i] != key || values[i] == null) {
+            if (values[i] == null) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        values[i] = null;
+        size--;
+
+        // Shift back the following entries that cannot be found past the gap
+        for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+            int home = slot(keys[j]);
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                values[j] = null;
+                i = j;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the slot where the search for a key starts.
+     *
+     * @param key The key.
+     * @return The position of the slot.
+     */
+    private int slot(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Doubles the arrays and moves every entry to its new slot.
+     */
+    private void grow() {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[2 * oldKeys.length];
+        values = new Object[2 * oldValues.length];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int j = slot(oldKeys[i]);
+                while (values[j] != null) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,476 @@
+package it.unitn.ds1.network;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.Props;
+import it.unitn.ds1.Settings;
+import it.unitn.ds1.lock.LockLease;
+import it.unitn.ds1.logger.ProtocolLogger;
+import it.unitn.ds1.messages.*;
+import it.unitn.ds1.metrics.MessageType;
+import it.unitn.ds1.metrics.MetricsRegistry;
+import it.unitn.ds1.metrics.NodeMetrics;
+import it.unitn.ds1.protocol.Phase;
+import it.unitn.ds1.protocol.ProtocolEffects;
+import it.unitn.ds1.protocol.RaymondStateMachine;
+import scala.concurrent.duration.Duration;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Logger;
+
+/**
+ * Represents a node of a network in which many independent locks share the
+ * same tree, actors and mailboxes. Each lock has its own privilege, and the
+ * node runs a {@link RaymondStateMachine} for each lock it is involved in.
+ *
+ * The locks are split into shards, lock l being in shard l modulo the number
+ * of shards, and the privileges of a shard start at its own root, so that the
+ * traffic of unrelated locks does not converge on a single node. Each shard is
+ * initialized once by a flood from its root, and the state of a lock is
+ * created when the node first hears of it, with the holder of the
+ * initialization of its shard. When the state of a lock is back to that of a
+ * new one (the holder is the initial one, nothing is queued and the node is
+ * neither asking for nor using the privilege) it is removed from the map and
+ * kept for the next lock. So the memory of a node grows with the locks whose
+ * privilege has moved through it, not with the locks in use. The locks are
+ * acquired through the {@link it.unitn.ds1.lock.DistributedLock}, or by name
+ * through the {@link it.unitn.ds1.lock.ShardedLock}.
+ *
+ * The nodes do not crash: the crash and recovery procedure is run by
+ * {@link Node} only.
+ */
+public class MultiLockNode extends AbstractActor {
+
+    /**
+     * The state of a lock in a node.
+     */
+    private static final class LockState {
+
+        int lockId;
+        final RaymondStateMachine protocol;
+        /**
+         * The local clients waiting for the critical section of the lock, one
+         * for each occurrence of the node itself in the request queue and in
+         * the same order.
+         */
+        final ArrayDeque<CompletableFuture<LockLease>> clients = new ArrayDeque<>(2);
+        /**
+         * The id of the lease of the client in the critical section, or -1.
+         */
+        long leaseId = -1;
+
+        LockState(RaymondStateMachine protocol) {
+            this.protocol = protocol;
+        }
+    }
+
+    /**
+     * The id of the node.
+     */
+    private final int id;
+    /**
+     * Number of milliseconds the starter waits before beginning the
+     * initialization of the protocol.
+     */
+    private final long bootstrapDelay;
+    /**
+     * The id of the neighbors in increasing order.
+     */
+    private int[] neighborIds = null;
+    /**
+     * The neighbor nodes, in the same order as their ids.
+     */
+    private ActorRef[] neighbors = null;
+    /**
+     * The root of each shard.
+     */
+    private final int[] roots;
+    /**
+     * The holder of the locks of each shard the node has not seen yet, NONE
+     * until the INITIALIZE message of the shard arrives.
+     */
+    private final int[] initialHolders;
+    /**
+     * The state of the locks the node is involved in, by lock id.
+     */
+    private final IntMap<LockState> locks = new IntMap<>();
+    /**
+     * The states removed from the map, ready to be reused.
+     */
+    private final ArrayDeque<LockState> pool = new ArrayDeque<>();
+    /**
+     * The lock whose state machine is running, to which its effects refer.
+     */
+    private LockState current = null;
+    /**
+     * The effects of the state machines of all the locks.
+     */
+    private final Effects effects = new Effects();
+    /**
+     * The id of the next lease granted by the node.
+     */
+    private long nextLeaseId = 0;
+    /**
+     * The INITIALIZE message of each shard sent by the node.
+     */
+    private final LockInitializeMessage[] initializeMessages;
+    /**
+     * Object used to log messages for the application.
+     */
+    private final static Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+    /**
+     * Object used to log the events of the node.
+     */
+    private final ProtocolLogger log;
+    /**
+     * The metrics of the node.
+     */
+    private final NodeMetrics metrics;
+
+    /**
+     * Creates a Multi Lock Node with the information about the id of the node
+     * and the roots of the shards.
+     *
+     * @param id The id of the node.
+     * @param settings The settings of the application.
+     * @param roots The id of the root of each shard.
+     * @throws IllegalArgumentException If there are no shards.
+     */
+    public MultiLockNode(int id, Settings settings, int[] roots) throws IllegalArgumentException {
+        if (roots.length == 0) {
+            throw new IllegalArgumentException("The locks must have at least one shard");
+        }
+        this.id = id;
+        this.bootstrapDelay = settings.getBootstrapDelay();
+        this.roots = roots.clone();
+        this.initialHolders = new int[roots.length];
+        Arrays.fill(initialHolders, RaymondStateMachine.NONE);
+        this.log = new ProtocolLogger(LOGGER, MultiLockNode.class, settings.isProtocolTracing());
+        this.metrics = new NodeMetrics(id);
+        MetricsRegistry.getInstance().register(metrics);
+        this.initializeMessages = new LockInitializeMessage[roots.length];
+        for (int shard = 0; shard < roots.length; shard++) {
+            initializeMessages[shard] = new LockInitializeMessage(id, shard);
+        }
+    }
+
+    /**
+     * Used by the system to create actors whose locks are in a single shard
+     * rooted at the starter.
+     *
+     * @param id The id of the node.
+     * @param settings The settings of the application.
+     * @return The actor that we want to create.
+     */
+    static public Props props(int id, Settings settings) {
+        return props(id, settings, new int[]{settings.getStarterId()});
+    }
+
+    /**
+     * Used by the system to create actors.
+     *
+     * @param id The id of the node.
+     * @param settings The settings of the application.
+     * @param roots The id of the root of each shard, the same for every node.
+     * @return The actor that we want to create.
+     */
+    static public Props props(int id, Settings settings, int[] roots) {
+        return Props.create(MultiLockNode.class, () -> new MultiLockNode(id, settings, roots));
+    }
+
+    /**
+     * Gets the shard of a lock.
+     *
+     * @param lockId The id of the lock.
+     * @return The index of the shard.
+     */
+    private int shardOf(int lockId) {
+        return Math.floorMod(lockId, roots.length);
+    }
+
+    /**
+     * Gets the actor of the node itself or of a neighbor.
+     *
+     * @param peerId The id of the node.
+     * @return The actor of the node.
+     */
+    private ActorRef peer(int peerId) {
+        return peerId == id ? getSelf() : neighbors[Arrays.binarySearch(neighborIds, peerId)];
+    }
+
+    /**
+     * Selects the state of a lock, creating it if the node has not seen the
+     * lock yet.
+     *
+     * @param lockId The id of the lock.
+     * @return The state of the lock.
+     */
+    private LockState select(int lockId) {
+        LockState lock = locks.get(lockId);
+        if (lock == null) {
+            lock = pool.poll();
+            if (lock == null) {
+                lock = new LockState(new RaymondStateMachine(id, neighborIds, effects));
+            }
+            lock.protocol.setInitialHolder(initialHolders[shardOf(lockId)]);
+            lock.lockId = lockId;
+            locks.put(lockId, lock);
+        }
+        current = lock;
+        return lock;
+    }
+
+    /**
+     * Removes the state of a lock from the map if it is the same as the state
+     * of a lock the node has not seen, and keeps it for reuse.
+     *
+     * @param lock The state of the lock.
+     */
+    private void release(LockState lock) {
+        RaymondStateMachine protocol = lock.protocol;
+        if (protocol.getHolder() == initialHolders[shardOf(lock.lockId)] && protocol.getPhase() == Phase.IDLE
+                && protocol.getRequestQueueLength() == 0 && lock.leaseId < 0) {
+            locks.remove(lock.lockId);
+            pool.push(lock);
+        }
+    }
+
+    /**
+     * The reaction on an incoming Boostrap message.
+     *
+     * @param msg The incoming Boostrap message.
+     */
+    private void onBootstrap(Bootstrap msg) {
+        log.trace("BOOTSTRAP message received by node {}. Node {} has: {} neighbors", id, id, msg.getNeighbors().size());
+
+        // The neighbors are sorted by id to look them up by binary search
+        List<ActorRef> refs = msg.getNeighbors();
+        int[] ids = msg.getNeighborIds();
+        Integer[] order = new Integer[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(ids[a], ids[b]));
+        this.neighborIds = new int[ids.length];
+        this.neighbors = new ActorRef[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            neighborIds[i] = ids[order[i]];
+            neighbors[i] = refs.get(order[i]);
+        }
+
+        // The starter of the application is not involved: each shard is
+        // initialized by its root
+        for (int shard = 0; shard < roots.length; shard++) {
+            if (roots[shard] == id) {
+                log.info("ROOT of shard {} is node {}", shard, id);
+                getContext().system().scheduler().scheduleOnce(
+                        Duration.create(bootstrapDelay, TimeUnit.MILLISECONDS),
+                        getSelf(),
+                        initializeMessages[shard],
+                        getContext().system().dispatcher(), getSelf()
+                );
+            }
+        }
+    }
+
+    /**
+     * The reaction on an incoming Lock Initialize Message, which points the
+     * holder of every lock of a shard towards the sender and is forwarded to
+     * the other neighbors. The root of the shard receives it from itself.
+     *
+     * @param msg The incoming Lock Initialize Message.
+     */
+    private void onLockInitializeMessage(LockInitializeMessage msg) {
+        log.trace("INITIALIZE message for shard {} received by node {} from node {}", msg.getLockId(), id,
+                msg.getSenderId());
+
+        int shard = msg.getLockId();
+        initialHolders[shard] = msg.getSenderId();
+        for (int i = 0; i < neighborIds.length; i++) {
+            if (neighborIds[i] != msg.getSenderId()) {
+                neighbors[i].tell(initializeMessages[shard], getSelf());
+            }
+        }
+    }
+
+    /**
+     * The reaction on an incoming Lock Request Message.
+     *
+     * @param msg The incoming Lock Request Message.
+     */
+    private void onLockRequestMessage(LockRequestMessage msg) {
+        log.trace("REQUEST message for lock {} received by node {} from node {}", msg.getLockId(), id, msg.getSenderId());
+        metrics.messageReceived(MessageType.REQUEST);
+
+        LockState lock = select(msg.getLockId());
+        lock.protocol.onRequest(msg.getSenderId());
+        release(lock);
+    }
+
+    /**
+     * The reaction on an incoming Lock Privilege Message.
+     *
+     * @param msg The incoming Lock Privilege Message.
+     */
+    private void onLockPrivilegeMessage(LockPrivilegeMessage msg) {
+        log.trace("PRIVILEGE message for lock {} received by node {} from node {}", msg.getLockId(), id, msg.getSenderId());
+        metrics.messageReceived(MessageType.PRIVILEGE);
+
+        LockState lock = select(msg.getLockId());
+        lock.protocol.onPrivilege(msg.getSenderId());
+        release(lock);
+    }
+
+    /**
+     * The reaction on an incoming Lock Cancel Request Message.
+     *
+     * @param msg The incoming Lock Cancel Request Message.
+     */
+    private void onLockCancelRequestMessage(LockCancelRequestMessage msg) {
+        log.trace("CANCEL message for lock {} received by node {} from node {}", msg.getLockId(), id, msg.getSenderId());
+        metrics.messageReceived(MessageType.CANCEL);
+
+        // The request is not in the queue if the privilege has already been
+        // sent to the neighbor
+        LockState lock = select(msg.getLockId());
+        lock.protocol.onCancelRequest(msg.getSenderId());
+        release(lock);
+    }
+
+    /**
+     * The reaction on an incoming Acquire Lock message.
+     *
+     * @param msg The incoming Acquire Lock message.
+     */
+    private void onAcquireLock(AcquireLock msg) {
+        if (initialHolders[shardOf(msg.getLockId())] == RaymondStateMachine.NONE) {
+            msg.getGranted().completeExceptionally(new IllegalStateException("Node " + id
+                    + " has not received the INITIALIZE message of the shard of lock " + msg.getLockId()));
+            return;
+        }
+        log.trace("ACQUIRE request for lock {} received by node {} from a client", msg.getLockId(), id);
+
+        LockState lock = select(msg.getLockId());
+        lock.clients.add(msg.getGranted());
+        lock.protocol.onLocalRequest();
+        release(lock);
+    }
+
+    /**
+     * The reaction on an incoming Cancel Acquire message.
+     *
+     * @param msg The incoming Cancel Acquire message.
+     */
+    private void onCancelAcquire(CancelAcquire msg) {
+        // The acquisition may have been granted or failed in the meantime
+        LockState lock = locks.get(msg.getLockId());
+        if (lock == null || !lock.clients.removeLastOccurrence(msg.getGranted())) {
+            return;
+        }
+        log.trace("CANCEL of an acquisition of lock {} received by node {} from a client", msg.getLockId(), id);
+        msg.getGranted().completeExceptionally(new TimeoutException("Node " + id
+                + " did not get the privilege of lock " + msg.getLockId() + " in time"));
+
+        current = lock;
+        lock.protocol.cancelLocalRequest();
+        release(lock);
+    }
+
+    /**
+     * The reaction on an incoming Release Lock message.
+     *
+     * @param msg The incoming Release Lock message.
+     */
+    private void onReleaseLock(ReleaseLock msg) {
+        LockState lock = locks.get(msg.getLockId());
+        if (lock == null || lock.leaseId < 0 || msg.getLeaseId() != lock.leaseId) {
+            log.severe("Node {} received the RELEASE of a lease that is not in the critical section", id);
+            return;
+        }
+        log.trace("Node {} EXIT critical section of lock {}", id, msg.getLockId());
+
+        lock.leaseId = -1;
+        current = lock;
+        lock.protocol.onExitCriticalSection();
+        release(lock);
+    }
+
+    /**
+     * Define the mapping between incoming message classes and the methods of
+     * the actor.
+     *
+     * @return The reaction on the incoming message class.
+     */
+    @Override
+    public Receive createReceive() {
+        return receiveBuilder()
+                .match(Bootstrap.class, this::onBootstrap)
+                .match(LockInitializeMessage.class, this::onLockInitializeMessage)
+                .match(LockRequestMessage.class, this::onLockRequestMessage)
+                .match(LockPrivilegeMessage.class, this::onLockPrivilegeMessage)
+                .match(LockCancelRequestMessage.class, this::onLockCancelRequestMessage)
+                .match(AcquireLock.class, this::onAcquireLock)
+                .match(ReleaseLock.class, this::onReleaseLock)
+                .match(CancelAcquire.class, this::onCancelAcquire)
+                .build();
+    }
+
+    /**
+     * Turns the effects of the state machine of the current lock into messages
+     * sent to the other nodes and into leases granted to the local clients.
+     */
+    private final class Effects implements ProtocolEffects {
+
+        @Override
+        public void sendRequest(int from, int to) {
+            peer(to).tell(new LockRequestMessage(id, current.lockId), getSelf());
+            metrics.messageSent(MessageType.REQUEST);
+        }
+
+        @Override
+        public void sendPrivilege(int from, int to) {
+            peer(to).tell(new LockPrivilegeMessage(id, current.lockId), getSelf());
+            metrics.messageSent(MessageType.PRIVILEGE);
+        }
+
+        @Override
+        public void sendInitialize(int from, int to) {
+            throw new IllegalStateException("The locks of a Multi Lock Node are initialized by shard");
+        }
+
+        @Override
+        public void sendRestart(int from, int to) {
+            throw new IllegalStateException("A Multi Lock Node does not crash");
+        }
+
+        @Override
+        public void sendAdvise(int from, int to, int flags) {
+            throw new IllegalStateException("A Multi Lock Node does not crash");
+        }
+
+        @Override
+        public void sendCancel(int from, int to) {
+            peer(to).tell(new LockCancelRequestMessage(id, current.lockId), getSelf());
+            metrics.messageSent(MessageType.CANCEL);
+        }
+
+        @Override
+        public void enterCriticalSection(int node) {
+            metrics.enteredCriticalSection(System.nanoTime());
+            log.trace("Node {} ENTER critical section of lock {}", id, current.lockId);
+
+            current.leaseId = nextLeaseId++;
+            current.clients.poll().complete(new LockLease(getSelf(), id, current.lockId, current.leaseId));
+        }
+
+        @Override
+        public void recoveryCompleted(int node, int holder) {
+            throw new IllegalStateException("A Multi Lock Node does not crash");
+        }
+    }
+}
@@ -3,23 +3,36 @@ package it.unitn.ds1.network;
 import akka.actor.AbstractActor;
 import akka.actor.ActorRef;
 import akka.actor.Props;
+import it.unitn.ds1.Settings;
+import it.unitn.ds1.lock.DistributedLock;
+import it.unitn.ds1.lock.LockLease;
+import it.unitn.ds1.logger.BinaryEventLog;
+import it.unitn.ds1.logger.EventType;
+import it.unitn.ds1.logger.ProtocolLogger;
 import it.unitn.ds1.messages.*;
+import it.unitn.ds1.metrics.MessageType;
+import it.unitn.ds1.metrics.MetricsRegistry;
+import it.unitn.ds1.metrics.NodeMetrics;
+import it.unitn.ds1.protocol.Phase;
+import it.unitn.ds1.protocol.ProtocolEffects;
+import it.unitn.ds1.protocol.RaymondStateMachine;
 import scala.concurrent.duration.Duration;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.logging.Level;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Logger;
 
-import static it.unitn.ds1.DistributedMutualExclusion.CRITICAL_SECTION_TIME;
-import static it.unitn.ds1.DistributedMutualExclusion.BOOTSTRAP_DELAY;
-import static it.unitn.ds1.DistributedMutualExclusion.CRASH_TIME;
 import static it.unitn.ds1.DistributedMutualExclusion.REQUEST_COMMAND;
 import static it.unitn.ds1.DistributedMutualExclusion.CRASH_COMMAND;
 
 /**
- * Represents a node of the computer network.
+ * Represents a node of the computer network. The protocol is run by a
+ * {@link RaymondStateMachine}: the actor turns the messages it receives into
+ * inputs of the state machine, and the effects of the state machine into
+ * messages, timers, logs and metrics.
  */
 public class Node extends AbstractActor {
 
@@ -28,115 +41,159 @@ public class Node extends AbstractActor {
      */
     private int id;
     /**
-     * List of neighbor nodes.
+     * Number of milliseconds the starter waits before beginning the
+     * initialization of the protocol.
      */
-    private List<ActorRef> neighbors = null;
+    private final long bootstrapDelay;
     /**
-     * Location of the privilege relative to the node itself.
+     * Number of milliseconds the node is within the critical section.
      */
-    private ActorRef holder = null;
+    private final long criticalSectionTime;
     /**
-     * Queue containing the neighbors that have sent a REQUEST message. to the
-     * node itself.
+     * Number of milliseconds between the crash and the recovery.
      */
-    private LinkedList<ActorRef> requestQ = new LinkedList<>();
+    private final long crashTime;
     /**
-     * Boolean that indicates if the node is executing the critical section.
+     * The state of the node in Raymond's algorithm, created when the node
+     * receives the Bootstrap message.
      */
-    private Boolean using = false;
+    private RaymondStateMachine protocol = null;
     /**
-     * Boolean that indicates if the node has sent a REQUEST message to the
-     * holder.
+     * The id of the neighbors in increasing order.
      */
-    private Boolean asked = false;
+    private int[] neighborIds = null;
     /**
-     * Boolean that indicates if the node is crashed.
+     * The neighbor nodes, in the same order as their ids.
      */
-    private Boolean isCrashed = false;
+    private ActorRef[] neighbors = null;
     /**
-     * Boolean that indicates if the node is in recovery phase.
+     * The local clients waiting for the critical section, one for each
+     * occurrence of the node itself in the request queue and in the same
+     * order. A null element is a REQUEST command of the user, which keeps the
+     * critical section for a fixed time.
      */
-    private Boolean isRecovering = false;
+    private LinkedList<CompletableFuture<LockLease>> localRequests = new LinkedList<>();
     /**
-     * Dictionary containing node and advise message pairs for which the node
-     * has received an advise message from.
+     * The id of the lease of the client in the critical section, or -1 if the
+     * node is not in the critical section on behalf of a client.
      */
-    private HashMap<ActorRef, AdviseMessage> adviseMessages = new HashMap<>();
+    private long leaseId = -1;
+    /**
+     * The id of the next lease granted by the node.
+     */
+    private long nextLeaseId = 0;
+    /**
+     * The length of the request queue and the phase last reported to the
+     * metrics.
+     */
+    private int reportedQueueLength = 0;
+    private Phase reportedPhase = Phase.IDLE;
+    /**
+     * The messages sent by the node. They are immutable and carry only the id
+     * of the node, so they are created once and reused.
+     */
+    private final RequestMessage requestMessage;
+    private final PrivilegeMessage privilegeMessage;
+    private final InitializeMessage initializeMessage;
+    private final RestartMessage restartMessage;
+    private final CancelRequestMessage cancelRequestMessage;
+    /**
+     * The ADVISE messages sent by the node, indexed by their flags and created
+     * on first use.
+     */
+    private final AdviseMessage[] adviseMessages = new AdviseMessage[8];
     /**
      * Object used to log messages for the application.
      */
     private final static Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+    /**
+     * Object used to log the events of the node.
+     */
+    private final ProtocolLogger log;
+    /**
+     * The binary log of the protocol events, or null if it is disabled.
+     */
+    private final BinaryEventLog events;
+    /**
+     * The peer id of the events that do not involve another node.
+     */
+    private static final int NO_PEER = -1;
+    /**
+     * The metrics of the node.
+     */
+    private final NodeMetrics metrics;
 
     /**
      * Creates a Node with the information about the id of the node.
      *
      * @param id The id of the node.
+     * @param settings The settings of the application.
      */
-    public Node(int id) {
+    public Node(int id, Settings settings) {
         super();
         this.id = id;
+        this.bootstrapDelay = settings.getBootstrapDelay();
+        this.criticalSectionTime = settings.getCriticalSectionTime();
+        this.crashTime = settings.getCrashTime();
+        this.log = new ProtocolLogger(LOGGER, Node.class, settings.isProtocolTracing());
+        this.events = BinaryEventLog.getInstance();
+        this.metrics = new NodeMetrics(id);
+        MetricsRegistry.getInstance().register(metrics);
+        this.requestMessage = new RequestMessage(id);
+        this.privilegeMessage = new PrivilegeMessage(id);
+        this.initializeMessage = new InitializeMessage(id);
+        this.restartMessage = new RestartMessage(id);
+        this.cancelRequestMessage = new CancelRequestMessage(id);
+    }
+
+    /**
+     * Appends an event of the node to the binary event log, if it is enabled.
+     *
+     * @param type The type of the event.
+     * @param peerId The id of the other node involved in the event, or
+     * NO_PEER.
+     */
+    private void event(EventType type, int peerId) {
+        if (events != null) {
+            events.append(type, id, peerId, protocol.getRequestQueueLength());
+        }
     }
 
     /**
      * Used by the system to create actors.
      *
      * @param id The id of the node.
+     * @param settings The settings of the application.
      * @return The actor that we want to create.
      */
-    static public Props props(int id) {
-        return Props.create(Node.class, () -> new Node(id));
+    static public Props props(int id, Settings settings) {
+        return Props.create(Node.class, () -> new Node(id, settings));
     }
 
     /**
-     * Sends the Privilege Message to one of its neighbors who has requested the
-     * privilege and sets the holder accordingly. The necessary requirement to
-     * send the Privilege Message is that the node must hold the privilege but
-     * is not using it, and the request queue is not empty. If the oldest
-     * request for the privilege has come from another node, then the privilege
-     * will be sent in its direction, otherwise the node will begin to use the
-     * privilege.
+     * Gets the actor of the node itself or of a neighbor.
+     *
+     * @param peerId The id of the node.
+     * @return The actor of the node.
      */
-    private void assignPrivilege() {
-
-        if (holder.equals(getSelf()) & !using & !requestQ.isEmpty()) {
-            holder = requestQ.remove();
-            asked = false;
-            if (holder.equals(getSelf())) {
-                using = true;
-
-                LOGGER.setLevel(Level.INFO);
-                LOGGER.info("Node " + this.id + " ENTER critical section...");
-
-                getContext().system().scheduler().scheduleOnce(Duration.create(CRITICAL_SECTION_TIME, TimeUnit.MILLISECONDS),
-                        getSelf(),
-                        new ExitCriticalSection(),
-                        getContext().system().dispatcher(), getSelf()
-                );
-
-            } else {
-                PrivilegeMessage m = new PrivilegeMessage(this.id);
-                holder.tell(m, getSelf());
-            }
-        }
+    private ActorRef peer(int peerId) {
+        return peerId == id ? getSelf() : neighbors[Arrays.binarySearch(neighborIds, peerId)];
     }
 
     /**
-     * Sends a Request Message to the holder because the node does not have the
-     * privilege, but wants it either for itself or others. If a Request Message
-     * has already been sent to the holder, the Request Message would not be
-     * sent again.
+     * Reports the length of the request queue and the phase to the metrics,
+     * if they have changed.
      */
-    private void makeRequest() {
-        LOGGER.setLevel(Level.INFO);
-
-        // A node can request the privilege only if it has received the INITIALIZE message
-        if (holder == null) {
-            LOGGER.severe("Node " + id + " is trying to request the PRIVILEGE but has not received the INITIALIZE message");
-        } else {
-            if (holder != getSelf() & !requestQ.isEmpty() & !asked) {
-                holder.tell(new RequestMessage(this.id), getSelf());
-                asked = true;
-            }
+    private void stateChanged() {
+        int length = protocol.getRequestQueueLength();
+        if (length != reportedQueueLength) {
+            reportedQueueLength = length;
+            metrics.requestQueueChanged(length);
+        }
+        Phase phase = protocol.getPhase();
+        if (phase != reportedPhase) {
+            reportedPhase = phase;
+            metrics.phaseChanged(phase);
         }
     }
 
@@ -148,9 +205,9 @@ public class Node extends AbstractActor {
         // We only schedule an init message to the starter itself to account
         // for setup time
         getContext().system().scheduler().scheduleOnce(
-                Duration.create(BOOTSTRAP_DELAY, TimeUnit.MILLISECONDS),
+                Duration.create(bootstrapDelay, TimeUnit.MILLISECONDS),
                 getSelf(),
-                new InitializeMessage(this.id),
+                initializeMessage,
                 getContext().system().dispatcher(), getSelf()
         );
     }
@@ -161,21 +218,26 @@ public class Node extends AbstractActor {
      * @param recoverIn Number of milliseconds between the crash and the
      * recovery.
      */
-    private void crash(int recoverIn) {
+    private void crash(long recoverIn) {
 
-        this.isCrashed = true;
-        LOGGER.setLevel(Level.INFO);
-        LOGGER.info("Node " + id + " CRASHED");
+        log.info("Node {} CRASHED", id);
+        event(EventType.CRASH, NO_PEER);
         // setting a timer to "recover"
 
-        this.holder = null;
-        this.using = null;
-        this.asked = null;
-        this.requestQ.clear();
+        protocol.crash();
+        reportedQueueLength = 0;
+        metrics.crashed();
+        stateChanged();
+        for (CompletableFuture<LockLease> client : localRequests) {
+            if (client != null) {
+                client.completeExceptionally(new IllegalStateException("Node " + id + " crashed"));
+            }
+        }
+        this.localRequests.clear();
 
         getContext().system().scheduler().scheduleOnce(Duration.create(recoverIn, TimeUnit.MILLISECONDS),
                 getSelf(),
-                new Recovery(), // message sent to myself
+                Recovery.getInstance(), // message sent to myself
                 getContext().system().dispatcher(), getSelf()
         );
     }
@@ -198,6 +260,10 @@ public class Node extends AbstractActor {
                 .match(Recovery.class, this::onRecovery)
                 .match(UserInput.class, this::onUserInput)
                 .match(ExitCriticalSection.class, this::onExitCriticalSection)
+                .match(AcquireLock.class, this::onAcquireLock)
+                .match(ReleaseLock.class, this::onReleaseLock)
+                .match(CancelAcquire.class, this::onCancelAcquire)
+                .match(CancelRequestMessage.class, this::onCancelRequestMessage)
                 .build();
     }
 
@@ -207,13 +273,27 @@ public class Node extends AbstractActor {
      * @param msg The incoming Boostrap message.
      */
     private void onBootstrap(Bootstrap msg) {
-        LOGGER.setLevel(Level.INFO);
-        LOGGER.info("BOOTSTRAP message received by node " + id + ". Node " + id + " has: " + msg.getNeighbors().size() + " neighbors");
-
-        this.neighbors = msg.getNeighbors();
+        log.trace("BOOTSTRAP message received by node {}. Node {} has: {} neighbors", id, id, msg.getNeighbors().size());
+
+        // The neighbors are sorted by id to look them up by binary search
+        List<ActorRef> refs = msg.getNeighbors();
+        int[] ids = msg.getNeighborIds();
+        Integer[] order = new Integer[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(ids[a], ids[b]));
+        this.neighborIds = new int[ids.length];
+        this.neighbors = new ActorRef[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            neighborIds[i] = ids[order[i]];
+            neighbors[i] = refs.get(order[i]);
+        }
+        this.protocol = new RaymondStateMachine(id, neighborIds, new Effects());
+        event(EventType.BOOTSTRAP_RECEIVED, NO_PEER);
 
         if (msg.isStarter()) {
-            LOGGER.info("STARTER of the protocol is node " + id);
+            log.info("STARTER of the protocol is node {}", id);
 
             initialize();
         }
@@ -225,20 +305,14 @@ public class Node extends AbstractActor {
      * @param msg The incoming Initialize Message.
      */
     private void onInitializeMessage(InitializeMessage msg) {
-        LOGGER.setLevel(Level.INFO);
-        LOGGER.info("INITIALIZE message received by node " + this.id + " from node " + msg.getSenderId());
+        log.trace("INITIALIZE message received by node {} from node {}", id, msg.getSenderId());
+        event(EventType.INITIALIZE_RECEIVED, msg.getSenderId());
 
-        ActorRef sender = getSender();
-        if (sender == null) {
-            LOGGER.severe("The sender of the INITIALIZE message received by node" + this.id + " is NULL");
-        }
-        holder = getSender();
-        for (ActorRef neighbor : neighbors) {
-            if (neighbor != holder) {
-                neighbor.tell(new InitializeMessage(this.id), getSelf());
-            }
+        if (msg.getSenderId() == id) {
+            metrics.privilegeAcquired(System.nanoTime());
         }
-
+        protocol.onInitialize(msg.getSenderId());
+        stateChanged();
     }
 
     /**
@@ -247,17 +321,14 @@ public class Node extends AbstractActor {
      * @param msg The incoming Request Message.
      */
     private void onRequestMessage(RequestMessage msg) {
-        // procedures assignPrivilege and makeRequest are not called during crash and recovery phase
-        if (!isCrashed) {
-            LOGGER.setLevel(Level.INFO);
-            LOGGER.info("REQUEST message received by node " + id + " from node " + msg.getSenderId());
-
-            requestQ.add(getSender());
-
-            if (!isRecovering) {
-                assignPrivilege();
-                makeRequest();
-            }
+        // the requests are not served during crash and recovery phase
+        if (!protocol.isCrashed()) {
+            log.trace("REQUEST message received by node {} from node {}", id, msg.getSenderId());
+            event(EventType.REQUEST_RECEIVED, msg.getSenderId());
+            metrics.messageReceived(MessageType.REQUEST);
+
+            protocol.onRequest(msg.getSenderId());
+            stateChanged();
         }
     }
 
@@ -267,15 +338,14 @@ public class Node extends AbstractActor {
      * @param msg The incoming Privilege Message.
      */
     private void onPrivilegeMessage(PrivilegeMessage msg) {
-        if (!isCrashed) {
-            LOGGER.setLevel(Level.INFO);
-            LOGGER.info("PRIVILEGE message received by node " + id + " from node " + msg.getSenderId());
-            this.holder = getSelf();
-
-            if (!isRecovering) {
-                assignPrivilege();
-                makeRequest();
-            }
+        if (!protocol.isCrashed()) {
+            log.trace("PRIVILEGE message received by node {} from node {}", id, msg.getSenderId());
+            event(EventType.PRIVILEGE_RECEIVED, msg.getSenderId());
+            metrics.messageReceived(MessageType.PRIVILEGE);
+            metrics.privilegeAcquired(System.nanoTime());
+
+            protocol.onPrivilege(msg.getSenderId());
+            stateChanged();
         }
     }
 
@@ -285,14 +355,12 @@ public class Node extends AbstractActor {
      * @param msg The incoming Restart Message.
      */
     private void onRestartMessage(RestartMessage msg) {
-        LOGGER.setLevel(Level.INFO);
-        LOGGER.info("RESTART message received by node " + id + " from node " + msg.getSenderId());
+        log.trace("RESTART message received by node {} from node {}", id, msg.getSenderId());
+        event(EventType.RESTART_RECEIVED, msg.getSenderId());
+        metrics.messageReceived(MessageType.RESTART);
 
         // DONE: send and ADVISE message informing the recovering node of the state of the relationship with the current node
-        boolean isXInRequestQ = this.requestQ.contains(getSender());
-        boolean isXHolder = this.holder == getSender();
-
-        getSender().tell(new AdviseMessage(id, isXHolder, isXInRequestQ, asked), getSelf());
+        protocol.onRestart(msg.getSenderId());
     }
 
     /**
@@ -301,85 +369,23 @@ public class Node extends AbstractActor {
      * @param msg The incoming Advise Message.
      */
     private void onAdviseMessage(AdviseMessage msg) {
-        LOGGER.setLevel(Level.INFO);
-        LOGGER.info("ADVISE message received by node " + id + " from node " + msg.getSenderId());
-
-        adviseMessages.put(getSender(), msg);
-
-        // the node is in recovery phase until all ADVISE messages from each neighbor are received
-        if (adviseMessages.keySet().containsAll(neighbors)) {
-            // All advise messages have been received
-            // Recovery procedure
-
-            String requestQIds = "[";
-            Integer holderId = id;
-            boolean holdsPrivilege = false;
-
-            // 1.determining holder, ASKED and USING
-            using = false;
-            asked = false;
-
-            // After the crash, if no PRIVILEGE message is received, holder is equal to null.
-            if (holder != null) {
-                // This means that this node holds the privilege. This happens because
-                // during the recovery a PRIVILEGE message, that was sent after an ADVISE message,
-                // was received before the ADVISE message itself. The outdated information contained
-                // in the ADVISE message will not be considered.
-                holdsPrivilege = true;
-            } else {
-                holder = getSelf();
-            }
+        log.trace("ADVISE message received by node {} from node {}", id, msg.getSenderId());
+        event(EventType.ADVISE_RECEIVED, msg.getSenderId());
+        metrics.messageReceived(MessageType.ADVISE);
 
-            for (ActorRef neighbor : adviseMessages.keySet()) {
-                AdviseMessage currentMsg = adviseMessages.get(neighbor);
-
-                if (!currentMsg.isXHolder()) {
-                    if (holdsPrivilege) {
-                        // In such a situation the ADVISE message contains outdated information.
-                        // The node has received the privilege from the current neighbor, meaning
-                        // that the node must have requested it, so asked must be true
-                        asked = true;
-                        requestQ.add(getSelf());
-                        requestQIds += id + ", ";
-                    } else {
-                        // It means that this node is not privileged
-                        this.holder = neighbor;
-                        holderId = currentMsg.getSenderId();
-                        if (currentMsg.isXInRequestQ()) {
-                            this.asked = true;
-                            requestQ.add(getSelf());
-                            requestQIds += id + ", ";
-                        }
-                    }
-                } else {
-                    // Reconstruct Request Queue
-                    if (currentMsg.isAskedY()) {
-                        // During recovery there is the possibility that a node Y will be placed in X's requestQ
-                        // twice. This check avoid for such a duplication
-                        if (!requestQ.contains(neighbor)) {
-                            requestQ.add(neighbor);
-                        }
-                        requestQIds += currentMsg.getSenderId() + ", ";
-                    }
-                }
-            }
-            if (!requestQ.isEmpty()) {
-                requestQIds = requestQIds.substring(0, requestQIds.length() - 2);
-            }
-            requestQIds += "]";
-            adviseMessages.clear();
-            isRecovering = false;
-
-            LOGGER.info("Node " + id + " has completed RECOVERY. "
-                    + "Holder: " + holderId + ", "
-                    + "Asked: " + asked + ", "
-                    + "RequestQ: " + requestQIds + ", "
-                    + "Using: " + using);
-
-            // After the recovery phase is completed, the node recommence its participation in the algorithm
-            assignPrivilege();
-            makeRequest();
+        int flags = 0;
+        if (msg.isXHolder()) {
+            flags |= RaymondStateMachine.X_HOLDER;
+        }
+        if (msg.isXInRequestQ()) {
+            flags |= RaymondStateMachine.X_IN_REQUEST_Q;
         }
+        if (msg.isAskedY()) {
+            flags |= RaymondStateMachine.ASKED_Y;
+        }
+        // the node is in recovery phase until all ADVISE messages from each neighbor are received
+        protocol.onAdvise(msg.getSenderId(), flags);
+        stateChanged();
     }
 
     /**
@@ -388,25 +394,21 @@ public class Node extends AbstractActor {
      * @param msg The incoming User Input message.
      */
     private void onUserInput(UserInput msg) {
-        LOGGER.setLevel(Level.INFO);
-
         switch (msg.getCommandId()) {
             case REQUEST_COMMAND:
-                if (!isCrashed) {
-                    LOGGER.info("REQUEST command received by node " + id + " from user");
-                    requestQ.add(self());
-                    if (!isRecovering) {
-                        assignPrivilege();
-                        makeRequest();
-                    }
+                if (!protocol.isCrashed()) {
+                    log.trace("REQUEST command received by node {} from user", id);
+                    event(EventType.USER_REQUEST, NO_PEER);
+                    localRequests.add(null);
+                    requestLocally();
                 } else {
                     System.out.println("WARNING: Node " + id + " is crashed. It cannot accept REQUEST commands");
                 }
                 break;
             case CRASH_COMMAND:
-                if (!isCrashed && !isRecovering && using != null && !using) {
-                    LOGGER.info("CRASH command received by node " + id + " from user");
-                    crash(CRASH_TIME);
+                if (protocol.canCrash()) {
+                    log.trace("CRASH command received by node {} from user", id);
+                    crash(crashTime);
                 } else {
                     System.out.println("WARNING: Node " + id + " is either crashed, recovering or in the critical section. It cannot accept CRASH commands");
                 }
@@ -414,18 +416,113 @@ public class Node extends AbstractActor {
         }
     }
 
+    /**
+     * Adds the node itself to the request queue on behalf of the last local
+     * request and asks for the privilege.
+     */
+    private void requestLocally() {
+        // A node can request the privilege only if it has received the INITIALIZE message
+        if (protocol.getHolder() == RaymondStateMachine.NONE && !protocol.isRecovering()) {
+            log.severe("Node {} is trying to request the PRIVILEGE but has not received the INITIALIZE message", id);
+        }
+        metrics.localRequest(System.nanoTime());
+        protocol.onLocalRequest();
+        stateChanged();
+    }
+
+    /**
+     * Exits the critical section and passes the privilege to the next request,
+     * if any.
+     */
+    private void exitCriticalSection() {
+        log.info("Node {} EXIT critical section...", id);
+        event(EventType.EXIT_CRITICAL_SECTION, NO_PEER);
+
+        this.leaseId = -1;
+        protocol.onExitCriticalSection();
+        stateChanged();
+    }
+
     /**
      * The reaction on an incoming Exit Critical Section message.
      *
      * @param msg The incoming Exit Critical Section message.
      */
     private void onExitCriticalSection(ExitCriticalSection msg) {
-        LOGGER.setLevel(Level.INFO);
-        LOGGER.info("Node " + this.id + " EXIT critical section...");
+        exitCriticalSection();
+    }
+
+    /**
+     * The reaction on an incoming Acquire Lock message.
+     *
+     * @param msg The incoming Acquire Lock message.
+     */
+    private void onAcquireLock(AcquireLock msg) {
+        if (msg.getLockId() != DistributedLock.DEFAULT_LOCK) {
+            msg.getGranted().completeExceptionally(new IllegalArgumentException("Node " + id
+                    + " grants only the default lock, use a MultiLockNode for lock " + msg.getLockId()));
+            return;
+        }
+        if (protocol.isCrashed()) {
+            msg.getGranted().completeExceptionally(new IllegalStateException("Node " + id + " is crashed"));
+            return;
+        }
+        log.trace("ACQUIRE request received by node {} from a client", id);
+        event(EventType.USER_REQUEST, NO_PEER);
+        localRequests.add(msg.getGranted());
+        requestLocally();
+    }
+
+    /**
+     * The reaction on an incoming Cancel Acquire message.
+     *
+     * @param msg The incoming Cancel Acquire message.
+     */
+    private void onCancelAcquire(CancelAcquire msg) {
+        // The acquisition may have been granted or failed in the meantime
+        int index = localRequests.indexOf(msg.getGranted());
+        if (index < 0) {
+            return;
+        }
+        localRequests.remove(index);
+        log.trace("CANCEL of an acquisition received by node {} from a client", id);
+        event(EventType.USER_CANCEL, NO_PEER);
+        msg.getGranted().completeExceptionally(new TimeoutException("Node " + id + " did not get the privilege in time"));
+
+        protocol.cancelLocalRequest();
+        metrics.localRequestCancelled(index);
+        stateChanged();
+    }
 
-        this.using = false;
-        assignPrivilege();
-        makeRequest();
+    /**
+     * The reaction on an incoming Cancel Request Message.
+     *
+     * @param msg The incoming Cancel Request Message.
+     */
+    private void onCancelRequestMessage(CancelRequestMessage msg) {
+        if (!protocol.isCrashed()) {
+            log.trace("CANCEL message received by node {} from node {}", id, msg.getSenderId());
+            event(EventType.CANCEL_RECEIVED, msg.getSenderId());
+            metrics.messageReceived(MessageType.CANCEL);
+
+            // The request is not in the queue if the privilege has already
+            // been sent to the neighbor
+            protocol.onCancelRequest(msg.getSenderId());
+            stateChanged();
+        }
+    }
+
+    /**
+     * The reaction on an incoming Release Lock message.
+     *
+     * @param msg The incoming Release Lock message.
+     */
+    private void onReleaseLock(ReleaseLock msg) {
+        if (leaseId < 0 || msg.getLeaseId() != leaseId) {
+            log.severe("Node {} received the RELEASE of a lease that is not in the critical section", id);
+            return;
+        }
+        exitCriticalSection();
     }
 
     /**
@@ -434,17 +531,104 @@ public class Node extends AbstractActor {
      * @param msg The incoming Recovery message.
      */
     private void onRecovery(Recovery msg) {
-        LOGGER.setLevel(Level.INFO);
-        LOGGER.info("Node " + this.id + " starts RECOVERY");
+        log.info("Node {} starts RECOVERY", id);
+        event(EventType.RECOVERY_START, NO_PEER);
+        metrics.recoveryStarted(System.nanoTime());
 
         /* We assume that the crash lasts long enough to guarantee that all
          * messages sent before crashing are received by all nodes.
          */
-        this.isCrashed = false;
-        this.isRecovering = true;
-        RestartMessage restartMessage = new RestartMessage(this.id);
-        for (ActorRef neighbor : neighbors) {
-            neighbor.tell(restartMessage, getSelf());
+        protocol.startRecovery();
+        stateChanged();
+    }
+
+    /**
+     * Turns the effects of the state machine into messages sent to the other
+     * nodes and into local actions.
+     */
+    private final class Effects implements ProtocolEffects {
+
+        @Override
+        public void sendRequest(int from, int to) {
+            peer(to).tell(requestMessage, getSelf());
+            metrics.messageSent(MessageType.REQUEST);
+        }
+
+        @Override
+        public void sendPrivilege(int from, int to) {
+            peer(to).tell(privilegeMessage, getSelf());
+            metrics.messageSent(MessageType.PRIVILEGE);
+            metrics.privilegeReleased(System.nanoTime());
+        }
+
+        @Override
+        public void sendInitialize(int from, int to) {
+            peer(to).tell(initializeMessage, getSelf());
+        }
+
+        @Override
+        public void sendRestart(int from, int to) {
+            peer(to).tell(restartMessage, getSelf());
+            metrics.messageSent(MessageType.RESTART);
+        }
+
+        @Override
+        public void sendAdvise(int from, int to, int flags) {
+            AdviseMessage advise = adviseMessages[flags];
+            if (advise == null) {
+                advise = new AdviseMessage(id,
+                        (flags & RaymondStateMachine.X_HOLDER) != 0,
+                        (flags & RaymondStateMachine.X_IN_REQUEST_Q) != 0,
+                        (flags & RaymondStateMachine.ASKED_Y) != 0);
+                adviseMessages[flags] = advise;
+            }
+            peer(to).tell(advise, getSelf());
+            metrics.messageSent(MessageType.ADVISE);
+        }
+
+        @Override
+        public void sendCancel(int from, int to) {
+            peer(to).tell(cancelRequestMessage, getSelf());
+            metrics.messageSent(MessageType.CANCEL);
+        }
+
+        @Override
+        public void enterCriticalSection(int node) {
+            metrics.enteredCriticalSection(System.nanoTime());
+
+            log.info("Node {} ENTER critical section...", id);
+            event(EventType.ENTER_CRITICAL_SECTION, NO_PEER);
+
+            // After a recovery the node may be in the request queue without
+            // a local client: it behaves as for a REQUEST command
+            CompletableFuture<LockLease> client = localRequests.poll();
+            if (client != null) {
+                leaseId = nextLeaseId++;
+                client.complete(new LockLease(getSelf(), id, DistributedLock.DEFAULT_LOCK, leaseId));
+            } else {
+                getContext().system().scheduler().scheduleOnce(Duration.create(criticalSectionTime, TimeUnit.MILLISECONDS),
+                        getSelf(),
+                        ExitCriticalSection.getInstance(),
+                        getContext().system().dispatcher(), getSelf()
+                );
+            }
+        }
+
+        @Override
+        public void recoveryCompleted(int node, int holderId) {
+            if (log.isInfoEnabled()) {
+                log.info("Node " + id + " has completed RECOVERY. "
+                        + "Holder: " + holderId + ", "
+                        + "Asked: " + protocol.isAsked() + ", "
+                        + "RequestQ: " + protocol.requestQueueToString() + ", "
+                        + "Using: " + protocol.isUsing());
+            }
+            event(EventType.RECOVERY_END, holderId);
+            long now = System.nanoTime();
+            if (holderId == id) {
+                metrics.privilegeAcquired(now);
+            }
+            metrics.recoveryCompleted(now);
         }
     }
 }
@@ -0,0 +1,367 @@
+package it.unitn.ds1.network;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.Props;
+import it.unitn.ds1.Settings;
+import it.unitn.ds1.lock.DistributedLock;
+import it.unitn.ds1.lock.LockLease;
+import it.unitn.ds1.logger.ProtocolLogger;
+import it.unitn.ds1.messages.*;
+import it.unitn.ds1.metrics.MessageType;
+import it.unitn.ds1.metrics.MetricsRegistry;
+import it.unitn.ds1.metrics.NodeMetrics;
+import it.unitn.ds1.protocol.ReaderWriterEffects;
+import it.unitn.ds1.protocol.ReaderWriterStateMachine;
+import scala.concurrent.duration.Duration;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Logger;
+
+/**
+ * Represents a node of a network running the reader-writer variant of the
+ * protocol, {@link ReaderWriterStateMachine}: the clients of the
+ * {@link DistributedLock} that ask for shared access with
+ * {@link DistributedLock#acquireShared(int)} are in the critical section
+ * together, on any number of nodes, while the other clients get exclusive
+ * access.
+ *
+ * The nodes do not crash, and a request cannot be withdrawn: when a client
+ * gives up, its acquisition fails with a TimeoutException but stays in the
+ * request queue, and the lease is released as soon as it is granted.
+ */
+public class ReaderWriterNode extends AbstractActor {
+
+    /**
+     * The id of the node.
+     */
+    private final int id;
+    /**
+     * Number of milliseconds the starter waits before beginning the
+     * initialization of the protocol.
+     */
+    private final long bootstrapDelay;
+    /**
+     * The id of the neighbors in increasing order.
+     */
+    private int[] neighborIds = null;
+    /**
+     * The neighbor nodes, in the same order as their ids.
+     */
+    private ActorRef[] neighbors = null;
+    /**
+     * The state of the protocol, created when the neighbors are known.
+     */
+    private ReaderWriterStateMachine protocol = null;
+    /**
+     * The local clients waiting for the critical section, one for each
+     * occurrence of the node itself in the request queue and in the same
+     * order.
+     */
+    private final ArrayDeque<CompletableFuture<LockLease>> localRequests = new ArrayDeque<>();
+    /**
+     * The id of the lease of the local writer, or -1.
+     */
+    private long writeLease = -1;
+    /**
+     * The id of the leases of the local readers.
+     */
+    private final Set<Long> readLeases = new HashSet<>();
+    /**
+     * The id of the next lease granted by the node.
+     */
+    private long nextLeaseId = 0;
+    /**
+     * The messages sent by the node, which carry only its id.
+     */
+    private final RequestMessage requestMessage;
+    private final SharedRequestMessage sharedRequestMessage;
+    private final PrivilegeMessage privilegeMessage;
+    private final ReadGrantMessage readGrantMessage;
+    private final ReadReleaseMessage readReleaseMessage;
+    private final InitializeMessage initializeMessage;
+    /**
+     * Object used to log messages for the application.
+     */
+    private final static Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+    /**
+     * Object used to log the events of the node.
+     */
+    private final ProtocolLogger log;
+    /**
+     * The metrics of the node.
+     */
+    private final NodeMetrics metrics;
+
+    /**
+     * Creates a Reader Writer Node with the information about the id of the
+     * node.
+     *
+     * @param id The id of the node.
+     * @param settings The settings of the application.
+     */
+    public ReaderWriterNode(int id, Settings settings) {
+        this.id = id;
+        this.bootstrapDelay = settings.getBootstrapDelay();
+        this.log = new ProtocolLogger(LOGGER, ReaderWriterNode.class, settings.isProtocolTracing());
+        this.metrics = new NodeMetrics(id);
+        MetricsRegistry.getInstance().register(metrics);
+        this.requestMessage = new RequestMessage(id);
+        this.sharedRequestMessage = new SharedRequestMessage(id);
+        this.privilegeMessage = new PrivilegeMessage(id);
+        this.readGrantMessage = new ReadGrantMessage(id);
+        this.readReleaseMessage = new ReadReleaseMessage(id);
+        this.initializeMessage = new InitializeMessage(id);
+    }
+
+    /**
+     * Used by the system to create actors.
+     *
+     * @param id The id of the node.
+     * @param settings The settings of the application.
+     * @return The actor that we want to create.
+     */
+    static public Props props(int id, Settings settings) {
+        return Props.create(ReaderWriterNode.class, () -> new ReaderWriterNode(id, settings));
+    }
+
+    /**
+     * Gets the actor of the node itself or of a neighbor.
+     *
+     * @param peerId The id of the node.
+     * @return The actor of the node.
+     */
+    private ActorRef peer(int peerId) {
+        return peerId == id ? getSelf() : neighbors[Arrays.binarySearch(neighborIds, peerId)];
+    }
+
+    /**
+     * The reaction on an incoming Boostrap message.
+     *
+     * @param msg The incoming Boostrap message.
+     */
+    private void onBootstrap(Bootstrap msg) {
+        log.trace("BOOTSTRAP message received by node {}. Node {} has: {} neighbors", id, id, msg.getNeighbors().size());
+
+        // The neighbors are sorted by id to look them up by binary search
+        List<ActorRef> refs = msg.getNeighbors();
+        int[] ids = msg.getNeighborIds();
+        Integer[] order = new Integer[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(ids[a], ids[b]));
+        this.neighborIds = new int[ids.length];
+        this.neighbors = new ActorRef[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            neighborIds[i] = ids[order[i]];
+            neighbors[i] = refs.get(order[i]);
+        }
+        this.protocol = new ReaderWriterStateMachine(id, neighborIds, new Effects());
+
+        if (msg.isStarter()) {
+            log.info("STARTER of the protocol is node {}", id);
+            getContext().system().scheduler().scheduleOnce(
+                    Duration.create(bootstrapDelay, TimeUnit.MILLISECONDS),
+                    getSelf(),
+                    initializeMessage,
+                    getContext().system().dispatcher(), getSelf()
+            );
+        }
+    }
+
+    /**
+     * The reaction on an incoming Initialize Message.
+     *
+     * @param msg The incoming Initialize Message.
+     */
+    private void onInitializeMessage(InitializeMessage msg) {
+        log.trace("INITIALIZE message received by node {} from node {}", id, msg.getSenderId());
+        protocol.onInitialize(msg.getSenderId());
+    }
+
+    /**
+     * The reaction on an incoming Request Message, for exclusive access.
+     *
+     * @param msg The incoming Request Message.
+     */
+    private void onRequestMessage(RequestMessage msg) {
+        log.trace("REQUEST message received by node {} from node {}", id, msg.getSenderId());
+        metrics.messageReceived(MessageType.REQUEST);
+        protocol.onRequest(msg.getSenderId(), false);
+    }
+
+    /**
+     * The reaction on an incoming Shared Request Message.
+     *
+     * @param msg The incoming Shared Request Message.
+     */
+    private void onSharedRequestMessage(SharedRequestMessage msg) {
+        log.trace("SHARED REQUEST message received by node {} from node {}", id, msg.getSenderId());
+        metrics.messageReceived(MessageType.REQUEST);
+        protocol.onRequest(msg.getSenderId(), true);
+    }
+
+    /**
+     * The reaction on an incoming Privilege Message.
+     *
+     * @param msg The incoming Privilege Message.
+     */
+    private void onPrivilegeMessage(PrivilegeMessage msg) {
+        log.trace("PRIVILEGE message received by node {} from node {}", id, msg.getSenderId());
+        metrics.messageReceived(MessageType.PRIVILEGE);
+        protocol.onPrivilege(msg.getSenderId());
+    }
+
+    /**
+     * The reaction on an incoming Read Grant Message.
+     *
+     * @param msg The incoming Read Grant Message.
+     */
+    private void onReadGrantMessage(ReadGrantMessage msg) {
+        log.trace("READ GRANT message received by node {} from node {}", id, msg.getSenderId());
+        metrics.messageReceived(MessageType.READ_GRANT);
+        protocol.onReadGrant(msg.getSenderId());
+    }
+
+    /**
+     * The reaction on an incoming Read Release Message.
+     *
+     * @param msg The incoming Read Release Message.
+     */
+    private void onReadReleaseMessage(ReadReleaseMessage msg) {
+        log.trace("READ RELEASE message received by node {} from node {}", id, msg.getSenderId());
+        metrics.messageReceived(MessageType.READ_RELEASE);
+        protocol.onReadRelease(msg.getSenderId());
+    }
+
+    /**
+     * The reaction on an incoming Acquire Lock message.
+     *
+     * @param msg The incoming Acquire Lock message.
+     */
+    private void onAcquireLock(AcquireLock msg) {
+        if (msg.getLockId() != DistributedLock.DEFAULT_LOCK) {
+            msg.getGranted().completeExceptionally(new IllegalArgumentException("Node " + id
+                    + " grants only the default lock"));
+            return;
+        }
+        log.trace("ACQUIRE request received by node {} from a client", id);
+        metrics.localRequest(System.nanoTime());
+        localRequests.add(msg.getGranted());
+        protocol.onLocalRequest(msg.isShared());
+    }
+
+    /**
+     * The reaction on an incoming Cancel Acquire message. The request stays
+     * in the queue, so the lease is released when it is granted.
+     *
+     * @param msg The incoming Cancel Acquire message.
+     */
+    private void onCancelAcquire(CancelAcquire msg) {
+        msg.getGranted().completeExceptionally(new TimeoutException("Node " + id
+                + " did not get the privilege in time"));
+    }
+
+    /**
+     * The reaction on an incoming Release Lock message.
+     *
+     * @param msg The incoming Release Lock message.
+     */
+    private void onReleaseLock(ReleaseLock msg) {
+        if (msg.getLeaseId() == writeLease) {
+            log.trace("Node {} EXIT critical section", id);
+            writeLease = -1;
+            protocol.onExitCriticalSection(false);
+        } else if (readLeases.remove(msg.getLeaseId())) {
+            log.trace("Node {} EXIT critical section as a reader", id);
+            protocol.onExitCriticalSection(true);
+        } else {
+            log.severe("Node {} received the RELEASE of a lease that is not in the critical section", id);
+        }
+    }
+
+    /**
+     * Define the mapping between incoming message classes and the methods of
+     * the actor.
+     *
+     * @return The reaction on the incoming message class.
+     */
+    @Override
+    public Receive createReceive() {
+        return receiveBuilder()
+                .match(Bootstrap.class, this::onBootstrap)
+                .match(InitializeMessage.class, this::onInitializeMessage)
+                .match(RequestMessage.class, this::onRequestMessage)
+                .match(SharedRequestMessage.class, this::onSharedRequestMessage)
+                .match(PrivilegeMessage.class, this::onPrivilegeMessage)
+                .match(ReadGrantMessage.class, this::onReadGrantMessage)
+                .match(ReadReleaseMessage.class, this::onReadReleaseMessage)
+                .match(AcquireLock.class, this::onAcquireLock)
+                .match(ReleaseLock.class, this::onReleaseLock)
+                .match(CancelAcquire.class, this::onCancelAcquire)
+                .build();
+    }
+
+    /**
+     * Turns the effects of the state machine into messages sent to the other
+     * nodes and into leases granted to the local clients.
+     */
+    private final class Effects implements ReaderWriterEffects {
+
+        @Override
+        public void sendRequest(int from, int to, boolean shared) {
+            peer(to).tell(shared ? sharedRequestMessage : requestMessage, getSelf());
+            metrics.messageSent(MessageType.REQUEST);
+        }
+
+        @Override
+        public void sendPrivilege(int from, int to) {
+            peer(to).tell(privilegeMessage, getSelf());
+            metrics.messageSent(MessageType.PRIVILEGE);
+        }
+
+        @Override
+        public void sendReadGrant(int from, int to) {
+            peer(to).tell(readGrantMessage, getSelf());
+            metrics.messageSent(MessageType.READ_GRANT);
+        }
+
+        @Override
+        public void sendReadRelease(int from, int to) {
+            peer(to).tell(readReleaseMessage, getSelf());
+            metrics.messageSent(MessageType.READ_RELEASE);
+        }
+
+        @Override
+        public void sendInitialize(int from, int to) {
+            peer(to).tell(initializeMessage, getSelf());
+        }
+
+        @Override
+        public void enterCriticalSection(int node, boolean shared) {
+            metrics.enteredCriticalSection(System.nanoTime());
+            log.trace(shared ? "Node {} ENTER critical section as a reader" : "Node {} ENTER critical section", id);
+
+            long leaseId = nextLeaseId++;
+            if (shared) {
+                readLeases.add(leaseId);
+            } else {
+                writeLease = leaseId;
+            }
+            LockLease lease = new LockLease(getSelf(), id, DistributedLock.DEFAULT_LOCK, leaseId);
+            if (!localRequests.poll().complete(lease)) {
+                // The client has given up: leave as soon as this input has
+                // been handled
+                lease.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package it.unitn.ds1.network;
+
+import java.util.Arrays;
+
+/**
+ * Splits a tree into parts made of whole subtrees of about the same size. A
+ * split is an array that gives the index of the part of each node, and an edge
+ * is cut when its endpoints are in different parts. The parts are used to
+ * assign the nodes to the processes of a deployment and to spread the roots of
+ * the shards of a lock over the tree.
+ */
+public class Subtrees {
+
+    /**
+     * The part of a node that has not been assigned yet, and the head of a
+     * part without nodes.
+     */
+    public static final int NONE = -1;
+    /**
+     * The parent of the root.
+     */
+    public static final int NO_PARENT = -1;
+    /**
+     * The fraction of its share of nodes a part may lack, so that it does not
+     * take many tiny subtrees to fill the gap.
+     */
+    private static final double TOLERANCE = 0.01;
+
+    private Subtrees() {
+    }
+
+    /**
+     * Splits the tree into parts of whole subtrees, so that few edges are cut
+     * and the parts have about the same number of nodes. The part of the root,
+     * 0, keeps what remains of the tree, which is connected. Each other part
+     * is filled in turn by taking, anywhere in what remains of the tree, the
+     * subtree whose size is the closest to the nodes the part still lacks
+     * without exceeding them, until the gap is within the tolerance. A part
+     * thus cuts one edge for each subtree it takes: a single one when the
+     * tree has a subtree of the right size, and it fills only the rest of the
+     * gap with smaller subtrees, down to single leaves, as in a star.
+     *
+     * @param g The graph describing the topology.
+     * @param nParts The number of parts.
+     * @param root The root of the tree.
+     * @return The index of the part of each node.
+     */
+    public static int[] split(Graph g, int nParts, int root) {
+        int nNodes = g.getNumberOfNodes();
+        int[] offsets = g.getOffsets();
+        int[] targets = g.getTargets();
+        int[] parent = new int[nNodes];
+        int[] order = visit(g, root, parent);
+        int[] size = new int[nNodes];
+        int[] part = new int[nNodes];
+        Arrays.fill(part, NONE);
+
+        long[] candidates = new long[nNodes];
+        int[] subtree = new int[nNodes];
+        int remaining = nNodes;
+        for (int p = nParts - 1; p > 0; p--) {
+            int need = remaining / (p + 1);
+            int slack = (int) (need * TOLERANCE);
+
+            // Size of the subtrees of what remains of the tree, and the nodes
+            // other than the root sorted by it
+            int m = 0;
+            for (int i = nNodes - 1; i >= 0; i--) {
+                int u = order[i];
+                if (part[u] != NONE) {
+                    continue;
+                }
+                size[u] = 1;
+                for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                    int v = targets[e];
+                    if (v != parent[u] && part[v] == NONE) {
+                        size[u] += size[v];
+                    }
+                }
+                if (u != root) {
+                    candidates[m++] = (long) size[u] << 31 | u;
+                }
+            }
+            Arrays.sort(candidates, 0, m);
+
+            // A single pass in decreasing size takes each time the largest
+            // subtree that fits: taking a subtree lowers the size of its
+            // ancestors only as much as the gap, so a subtree that was too
+            // large stays too large
+            for (int i = m - 1; i >= 0 && need > slack; i--) {
+                int u = (int) (candidates[i] & Integer.MAX_VALUE);
+                if (part[u] != NONE || size[u] > need) {
+                    continue;
+                }
+
+                // Take the subtree of u
+                int pending = 0;
+                subtree[pending++] = u;
+                part[u] = p;
+                while (pending > 0) {
+                    int w = subtree[--pending];
+                    for (int e = offsets[w]; e < offsets[w + 1]; e++) {
+                        int v = targets[e];
+                        if (v != parent[w] && part[v] == NONE) {
+                            part[v] = p;
+                            subtree[pending++] = v;
+                        }
+                    }
+                }
+                need -= size[u];
+                remaining -= size[u];
+            }
+        }
+        for (int u = 0; u < nNodes; u++) {
+            if (part[u] == NONE) {
+                part[u] = 0;
+            }
+        }
+        return part;
+    }
+
+    /**
+     * Finds the head of each part: the top node of its largest subtree, a
+     * subtree being a set of nodes of the part connected below a node whose
+     * parent is in another part. The head of the part of the root is the
+     * root.
+     *
+     * @param g The graph describing the topology.
+     * @param part The index of the part of each node.
+     * @param nParts The number of parts.
+     * @param root The root of the tree.
+     * @return The id of the head of each part, or NONE for a part without
+     * nodes.
+     */
+    public static int[] heads(Graph g, int[] part, int nParts, int root) {
+        int nNodes = g.getNumberOfNodes();
+        int[] parent = new int[nNodes];
+        int[] order = visit(g, root, parent);
+        int[] size = new int[nNodes];
+        for (int i = nNodes - 1; i >= 0; i--) {
+            int u = order[i];
+            size[u]++;
+            if (parent[u] != NO_PARENT && part[parent[u]] == part[u]) {
+                size[parent[u]] += size[u];
+            }
+        }
+        int[] heads = new int[nParts];
+        Arrays.fill(heads, NONE);
+        for (int u = 0; u < nNodes; u++) {
+            if (parent[u] == NO_PARENT || part[parent[u]] != part[u]) {
+                int p = part[u];
+                if (heads[p] == NONE || size[u] > size[heads[p]]) {
+                    heads[p] = u;
+                }
+            }
+        }
+        return heads;
+    }
+
+    /**
+     * Visits the tree depth-first from a root.
+     *
+     * @param g The graph describing the topology.
+     * @param root The node the visit starts from.
+     * @param parent Filled with the parent of each node, NO_PARENT for the
+     * root.
+     * @return The nodes in the order of the visit, each one before its
+     * children.
+     */
+    public static int[] visit(Graph g, int root, int[] parent) {
+        int nNodes = g.getNumberOfNodes();
+        int[] offsets = g.getOffsets();
+        int[] targets = g.getTargets();
+        int[] order = new int[nNodes];
+        int[] stack = new int[nNodes];
+        int top = 0;
+        int visited = 0;
+        stack[top++] = root;
+        parent[root] = NO_PARENT;
+        while (top > 0) {
+            int u = stack[--top];
+            order[visited++] = u;
+            for (int e = offsets[u + 1] - 1; e >= offsets[u]; e--) {
+                int v = targets[e];
+                if (v != parent[u]) {
+                    parent[v] = u;
+                    stack[top++] = v;
+                }
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Computes the number of nodes of the subtree of each node.
+     *
+     * @param order The nodes in the order of a visit from the root.
+     * @param parent The parent of each node, NO_PARENT for the root.
+     * @return The size of the subtree of each node, including the node.
+     */
+    public static int[] sizes(int[] order, int[] parent) {
+        int[] size = new int[order.length];
+        for (int i = order.length - 1; i >= 0; i--) {
+            int u = order[i];
+            size[u]++;
+            if (parent[u] != NO_PARENT) {
+                size[parent[u]] += size[u];
+            }
+        }
+        return size;
+    }
+}
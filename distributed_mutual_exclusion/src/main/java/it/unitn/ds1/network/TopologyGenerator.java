@@ -0,0 +1,153 @@
+package it.unitn.ds1.network;
+
+import java.util.SplittableRandom;
+
+/**
+ * Generates tree topologies of the network with an arbitrary number of nodes.
+ * The diameter of the tree bounds the number of hops a REQUEST and a PRIVILEGE
+ * message travel, so the generators cover both shallow and deep trees. Node 0
+ * is always the root of the generated tree.
+ */
+public class TopologyGenerator {
+
+    private TopologyGenerator() {
+    }
+
+    /**
+     * Creates a balanced k-ary tree, where the parent of node i is node
+     * (i - 1) / k.
+     *
+     * @param nNodes The number of nodes in the network.
+     * @param k The number of children of each internal node.
+     * @return The graph describing the topology.
+     */
+    public static Graph karyTree(int nNodes, int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("The branching factor must be positive");
+        }
+        Graph g = new Graph(nNodes);
+        for (int i = 1; i < nNodes; i++) {
+            g.addEdge((i - 1) / k, i);
+        }
+        return g;
+    }
+
+    /**
+     * Creates a random recursive tree, where each node i is attached to a node
+     * chosen uniformly at random among the nodes 0..i-1. The expected depth of
+     * a node is logarithmic in the number of nodes.
+     *
+     * @param nNodes The number of nodes in the network.
+     * @param seed The seed of the random generator.
+     * @return The graph describing the topology.
+     */
+    public static Graph randomRecursiveTree(int nNodes, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        Graph g = new Graph(nNodes);
+        for (int i = 1; i < nNodes; i++) {
+            g.addEdge(random.nextInt(i), i);
+        }
+        return g;
+    }
+
+    /**
+     * Creates a star, where every node is a neighbor of node 0.
+     *
+     * @param nNodes The number of nodes in the network.
+     * @return The graph describing the topology.
+     */
+    public static Graph star(int nNodes) {
+        Graph g = new Graph(nNodes);
+        for (int i = 1; i < nNodes; i++) {
+            g.addEdge(0, i);
+        }
+        return g;
+    }
+
+    /**
+     * Creates a caterpillar: a line of spineLength nodes (the spine) where
+     * each of the remaining nodes is a leaf attached to a spine node, in round
+     * robin order.
+     *
+     * @param nNodes The number of nodes in the network.
+     * @param spineLength The number of nodes of the spine. If it is not
+     * positive, the square root of the number of nodes is used.
+     * @return The graph describing the topology.
+     */
+    public static Graph caterpillar(int nNodes, int spineLength) {
+        if (spineLength <= 0) {
+            spineLength = Math.max(1, (int) Math.sqrt(nNodes));
+        }
+        spineLength = Math.min(spineLength, nNodes);
+
+        Graph g = new Graph(nNodes);
+        for (int i = 1; i < spineLength; i++) {
+            g.addEdge(i - 1, i);
+        }
+        for (int i = spineLength; i < nNodes; i++) {
+            g.addEdge((i - spineLength) % spineLength, i);
+        }
+        return g;
+    }
+
+    /**
+     * Creates a spanning tree of low diameter of a connected random graph. The
+     * random graph is a random recursive tree plus random edges, up to the
+     * given average degree. The spanning tree is the breadth-first tree rooted
+     * at the middle node of the path found with a double sweep, an
+     * approximation of the center of the graph. Its diameter is at most twice
+     * the eccentricity of the root, which is close to twice the radius of the
+     * graph but not bounded by it, and it is computed in linear time. The
+     * nodes are renumbered so that the root of the tree is node 0.
+     *
+     * @param nNodes The number of nodes in the network.
+     * @param degree The average degree of the random graph.
+     * @param seed The seed of the random generator.
+     * @return The graph describing the topology.
+     */
+    public static Graph lowDiameterSpanningTree(int nNodes, int degree, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+
+        // Random connected graph
+        long edges = Math.max(nNodes - 1, (long) nNodes * degree / 2);
+        if (edges > Integer.MAX_VALUE / 2) {
+            throw new IllegalArgumentException("Too many edges in the random graph");
+        }
+        Graph randomGraph = randomRecursiveTree(nNodes, random.nextLong());
+        for (long e = nNodes - 1; e < edges; e++) {
+            int u = random.nextInt(nNodes);
+            int v = random.nextInt(nNodes);
+            if (u == v) {
+                v = (v + 1) % nNodes;
+            }
+            randomGraph.addEdge(u, v);
+        }
+
+        // Double sweep: the middle of the path between two far nodes
+        int[] parent = new int[nNodes];
+        int[] order = new int[nNodes];
+        int a = order[randomGraph.bfs(0, parent, order) - 1];
+        int b = order[randomGraph.bfs(a, parent, order) - 1];
+        int pathLength = 0;
+        for (int v = b; v != a; v = parent[v]) {
+            pathLength++;
+        }
+        int center = b;
+        for (int i = 0; i < pathLength / 2; i++) {
+            center = parent[center];
+        }
+
+        // Breadth-first tree rooted at the center, renumbered in BFS order
+        randomGraph.bfs(center, parent, order);
+        int[] newId = new int[nNodes];
+        for (int i = 0; i < nNodes; i++) {
+            newId[order[i]] = i;
+        }
+        Graph g = new Graph(nNodes);
+        for (int i = 1; i < nNodes; i++) {
+            int v = order[i];
+            g.addEdge(newId[parent[v]], i);
+        }
+        return g;
+    }
+}
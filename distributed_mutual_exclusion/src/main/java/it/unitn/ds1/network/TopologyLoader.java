@@ -0,0 +1,205 @@
+package it.unitn.ds1.network;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Loads the topology of the network from a file. The file is memory-mapped and
+ * parsed byte by byte, without creating a string for each line.
+ *
+ * Each line of the file is either an edge "u v", or an adjacency list
+ * "u: v1 v2 ..." listing the neighbors of node u. In adjacency lists each edge
+ * appears twice, so the edge between u and v is added only from the line of
+ * the smaller node. Commas and square brackets are ignored, and everything
+ * after a '#' is a comment. The number of nodes is the largest id plus one.
+ */
+public class TopologyLoader {
+
+    /**
+     * Maximum number of bytes mapped at once.
+     */
+    private static final long REGION_SIZE = 1 << 30;
+    /**
+     * Number of bytes copied at once from the mapped region.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Ends of the edges read so far.
+     */
+    private int[] from = new int[1024];
+    private int[] to = new int[1024];
+    private int nEdges = 0;
+    private int maxId = -1;
+
+    /**
+     * State of the parser.
+     */
+    private int lineNumber = 1;
+    private int value = 0;
+    private boolean inNumber = false;
+    private boolean inComment = false;
+    /**
+     * Numbers read in the current line, and the first two of them.
+     */
+    private int numbersInLine = 0;
+    private int first;
+    private int second;
+    /**
+     * True if the current line is an adjacency list.
+     */
+    private boolean isAdjacency = false;
+
+    private TopologyLoader() {
+    }
+
+    /**
+     * Loads a tree topology from a file.
+     *
+     * @param path The path of the edge list or adjacency list file.
+     * @return The graph describing the topology.
+     * @throws IOException If the file cannot be read or it is malformed.
+     * @throws IllegalArgumentException If the topology is not a tree.
+     */
+    public static Graph load(Path path) throws IOException, IllegalArgumentException {
+        TopologyLoader loader = new TopologyLoader();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            for (long position = 0; position < size; position += REGION_SIZE) {
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(REGION_SIZE, size - position));
+                while (region.hasRemaining()) {
+                    int length = Math.min(buffer.length, region.remaining());
+                    region.get(buffer, 0, length);
+                    loader.parse(buffer, length);
+                }
+            }
+        }
+        loader.endOfLine();
+
+        Graph g = new Graph(loader.maxId + 1, loader.from, loader.to, loader.nEdges);
+        checkTree(g);
+        return g;
+    }
+
+    /**
+     * Checks that a graph is a tree, that is it is connected and it has
+     * exactly one edge less than its nodes.
+     *
+     * @param g The graph to check.
+     * @throws IllegalArgumentException If the graph is not a tree.
+     */
+    public static void checkTree(Graph g) throws IllegalArgumentException {
+        int V = g.getNumberOfNodes();
+        if (V == 0) {
+            throw new IllegalArgumentException("The topology has no nodes");
+        }
+        if (g.getNumberOfEdges() != V - 1) {
+            throw new IllegalArgumentException("The topology is not a tree: it has " + V + " nodes and "
+                    + g.getNumberOfEdges() + " edges");
+        }
+        int visited = g.bfs(0, new int[V], new int[V]);
+        if (visited != V) {
+            throw new IllegalArgumentException("The topology is not a tree: only " + visited + " of "
+                    + V + " nodes are reachable from node 0");
+        }
+    }
+
+    /**
+     * Parses a chunk of the file.
+     *
+     * @param buffer The bytes of the chunk.
+     * @param length The number of valid bytes in the buffer.
+     * @throws IOException If the file is malformed.
+     */
+    private void parse(byte[] buffer, int length) throws IOException {
+        for (int i = 0; i < length; i++) {
+            byte c = buffer[i];
+            if (c == '\n') {
+                endOfLine();
+                inComment = false;
+                lineNumber++;
+            } else if (inComment) {
+                continue;
+            } else if (c >= '0' && c <= '9') {
+                if (value > (Integer.MAX_VALUE - 9) / 10) {
+                    throw new IOException("Node id too large at line " + lineNumber);
+                }
+                value = value * 10 + (c - '0');
+                inNumber = true;
+            } else {
+                endOfNumber();
+                if (c == ':') {
+                    if (numbersInLine != 1 || isAdjacency) {
+                        throw new IOException("Unexpected ':' at line " + lineNumber);
+                    }
+                    isAdjacency = true;
+                } else if (c == '#') {
+                    inComment = true;
+                } else if (c != ' ' && c != '\t' && c != '\r' && c != ',' && c != '[' && c != ']') {
+                    throw new IOException("Unexpected character '" + (char) c + "' at line " + lineNumber);
+                }
+            }
+        }
+    }
+
+    /**
+     * Handles the end of a number, if one is being read.
+     */
+    private void endOfNumber() {
+        if (!inNumber) {
+            return;
+        }
+        if (numbersInLine == 0) {
+            first = value;
+        } else if (isAdjacency) {
+            if (first < value) {
+                addEdge(first, value);
+            }
+        } else {
+            second = value;
+        }
+        maxId = Math.max(maxId, value);
+        numbersInLine++;
+        value = 0;
+        inNumber = false;
+    }
+
+    /**
+     * Handles the end of a line.
+     *
+     * @throws IOException If the line is malformed.
+     */
+    private void endOfLine() throws IOException {
+        endOfNumber();
+        if (!isAdjacency && numbersInLine != 0) {
+            if (numbersInLine != 2) {
+                throw new IOException("Expected an edge \"u v\" at line " + lineNumber);
+            }
+            addEdge(first, second);
+        }
+        numbersInLine = 0;
+        isAdjacency = false;
+    }
+
+    /**
+     * Adds an edge to the edges read so far.
+     *
+     * @param u The id of a node in the network.
+     * @param v The id of a node in the network.
+     */
+    private void addEdge(int u, int v) {
+        if (nEdges == from.length) {
+            from = Arrays.copyOf(from, 2 * nEdges);
+            to = Arrays.copyOf(to, 2 * nEdges);
+        }
+        from[nEdges] = u;
+        to[nEdges] = v;
+        nEdges++;
+    }
+}
@@ -0,0 +1,32 @@
+package it.unitn.ds1.protocol;
+
+/**
+ * The phase of a node in Raymond's algorithm. The phases are mutually
+ * exclusive: a node that has asked for the privilege is not using it, and a
+ * node forgets whether it asked when it crashes.
+ */
+public enum Phase {
+
+    /**
+     * The node is not in the critical section and has no pending REQUEST
+     * message.
+     */
+    IDLE,
+    /**
+     * The node has sent a REQUEST message to its holder and waits for the
+     * privilege.
+     */
+    ASKED,
+    /**
+     * The node is in the critical section.
+     */
+    USING,
+    /**
+     * The node is crashed and ignores the protocol messages.
+     */
+    CRASHED,
+    /**
+     * The node waits for the ADVISE messages of its neighbors.
+     */
+    RECOVERING
+}
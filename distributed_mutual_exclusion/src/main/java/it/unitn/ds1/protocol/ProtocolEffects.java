@@ -0,0 +1,83 @@
+package it.unitn.ds1.protocol;
+
+/**
+ * The outbound effects of the state machines of the nodes: the messages they
+ * send and the events the runtime must react to. The runtime decides how the
+ * messages are delivered (actors, simulated links, direct calls).
+ *
+ * The effects are invoked while the state machine is handling an input, so an
+ * implementation must not feed a new input to the same state machine from
+ * within a callback.
+ */
+public interface ProtocolEffects {
+
+    /**
+     * Sends a REQUEST message.
+     *
+     * @param from The id of the sender.
+     * @param to The id of the receiver, the holder of the sender.
+     */
+    void sendRequest(int from, int to);
+
+    /**
+     * Sends a PRIVILEGE message.
+     *
+     * @param from The id of the sender.
+     * @param to The id of the receiver.
+     */
+    void sendPrivilege(int from, int to);
+
+    /**
+     * Sends an INITIALIZE message.
+     *
+     * @param from The id of the sender.
+     * @param to The id of the receiver.
+     */
+    void sendInitialize(int from, int to);
+
+    /**
+     * Sends a RESTART message.
+     *
+     * @param from The id of the recovering node.
+     * @param to The id of the receiver.
+     */
+    void sendRestart(int from, int to);
+
+    /**
+     * Sends an ADVISE message.
+     *
+     * @param from The id of the sender.
+     * @param to The id of the recovering node.
+     * @param flags The advice, a combination of
+     * {@link RaymondStateMachine#X_HOLDER},
+     * {@link RaymondStateMachine#X_IN_REQUEST_Q} and
+     * {@link RaymondStateMachine#ASKED_Y}.
+     */
+    void sendAdvise(int from, int to, int flags);
+
+    /**
+     * Sends a CANCEL message, withdrawing a REQUEST message.
+     *
+     * @param from The id of the sender.
+     * @param to The id of the receiver, the holder of the sender.
+     */
+    void sendCancel(int from, int to);
+
+    /**
+     * Notifies that a node entered the critical section on behalf of its
+     * oldest local request. The node stays there until
+     * {@link RaymondStateMachine#onExitCriticalSection()} is called.
+     *
+     * @param node The id of the node.
+     */
+    void enterCriticalSection(int node);
+
+    /**
+     * Notifies that a node completed its recovery, just before it resumes
+     * the protocol.
+     *
+     * @param node The id of the node.
+     * @param holder The id of the holder determined by the recovery.
+     */
+    void recoveryCompleted(int node, int holder);
+}
@@ -0,0 +1,531 @@
+package it.unitn.ds1.protocol;
+
+/**
+ * Raymond's algorithm for distributed mutual exclusion, as seen by a single
+ * node, with the crash and recovery procedure. The state machine consumes the
+ * messages received by the node and the local events (requests, exit from the
+ * critical section, crash and recovery), and produces its messages through a
+ * {@link ProtocolEffects}. It knows nothing about the runtime, so the same
+ * logic runs in the Akka actors, in the simulator and in the benchmarks.
+ *
+ * The nodes are identified by integers. The request queue holds the position
+ * of the neighbors in the array of neighbors, found by binary search, and the
+ * node itself appears in it once for each local request waiting for the
+ * privilege. Apart from the growth of the request queue and the first
+ * recovery, the state machine allocates nothing.
+ */
+public class RaymondStateMachine {
+
+    /**
+     * The holder of a node that has not been initialized, or that has crashed
+     * and has not received the privilege since.
+     */
+    public static final int NONE = -1;
+
+    /**
+     * ADVISE flag: the recovering node is the holder of the sender.
+     */
+    public static final int X_HOLDER = 1;
+    /**
+     * ADVISE flag: the recovering node is in the request queue of the sender.
+     */
+    public static final int X_IN_REQUEST_Q = 2;
+    /**
+     * ADVISE flag: the sender has sent a REQUEST message to its holder.
+     */
+    public static final int ASKED_Y = 4;
+
+    private final int id;
+    /**
+     * The neighbors of the node are neighbors[neighborsFrom] to
+     * neighbors[neighborsTo - 1], in increasing order.
+     */
+    private final int[] neighbors;
+    private final int neighborsFrom;
+    private final int neighborsTo;
+    private final ProtocolEffects effects;
+
+    /**
+     * Location of the privilege relative to the node itself.
+     */
+    private int holder = NONE;
+    /**
+     * The neighbors, or the node itself, that asked for the privilege.
+     */
+    private final RequestQueue requestQ;
+    /**
+     * Whether the node is using or waiting for the privilege, crashed or
+     * recovering.
+     */
+    private Phase phase = Phase.IDLE;
+    /**
+     * The ADVISE messages received during the recovery, in arrival order: the
+     * position of the sender and its flags.
+     */
+    private int[] adviseFrom = null;
+    private int[] adviseFlags = null;
+    private int advises = 0;
+
+    /**
+     * Creates a Raymond State Machine with the information about the node and
+     * its neighbors.
+     *
+     * @param id The id of the node.
+     * @param neighbors An array containing the id of the neighbors in
+     * increasing order, which is not copied.
+     * @param neighborsFrom The position of the first neighbor in the array.
+     * @param neighborsTo The position after the last neighbor in the array.
+     * @param effects The receiver of the messages and of the events of the
+     * node.
+     */
+    public RaymondStateMachine(int id, int[] neighbors, int neighborsFrom, int neighborsTo,
+                               ProtocolEffects effects) {
+        this.id = id;
+        this.neighbors = neighbors;
+        this.neighborsFrom = neighborsFrom;
+        this.neighborsTo = neighborsTo;
+        this.effects = effects;
+        this.requestQ = new RequestQueue(neighborsTo - neighborsFrom);
+    }
+
+    /**
+     * Creates a Raymond State Machine with the information about the node and
+     * its neighbors.
+     *
+     * @param id The id of the node.
+     * @param neighbors The id of the neighbors in increasing order, which is
+     * not copied.
+     * @param effects The receiver of the messages and of the events of the
+     * node.
+     */
+    public RaymondStateMachine(int id, int[] neighbors, ProtocolEffects effects) {
+        this(id, neighbors, 0, neighbors.length, effects);
+    }
+
+    /**
+     * Finds a neighbor. Nodes with a few neighbors scan them, the others use
+     * binary search.
+     *
+     * @param neighbor The id of the neighbor.
+     * @return The position of the neighbor among the neighbors of the node.
+     * @throws IllegalArgumentException If the node is not a neighbor.
+     */
+    private int positionOf(int neighbor) throws IllegalArgumentException {
+        if (neighborsTo - neighborsFrom <= 8) {
+            for (int i = neighborsFrom; i < neighborsTo; i++) {
+                if (neighbors[i] == neighbor) {
+                    return i - neighborsFrom;
+                }
+            }
+            throw notANeighbor(neighbor);
+        }
+        int low = neighborsFrom;
+        int high = neighborsTo - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int value = neighbors[middle];
+            if (value < neighbor) {
+                low = middle + 1;
+            } else if (value > neighbor) {
+                high = middle - 1;
+            } else {
+                return middle - neighborsFrom;
+            }
+        }
+        throw notANeighbor(neighbor);
+    }
+
+    /**
+     * Creates the exception thrown when a message comes from a node that is
+     * not a neighbor.
+     *
+     * @param node The id of the node.
+     * @return The exception.
+     */
+    private IllegalArgumentException notANeighbor(int node) {
+        return new IllegalArgumentException("Node " + node + " is not a neighbor of node " + id);
+    }
+
+    /**
+     * Gets the id of an element of the request queue.
+     *
+     * @param element A position among the neighbors, or RequestQueue.SELF.
+     * @return The id of the node.
+     */
+    private int idOf(int element) {
+        return element == RequestQueue.SELF ? id : neighbors[neighborsFrom + element];
+    }
+
+    /**
+     * Sends the privilege to the oldest request, or enters the critical
+     * section if the oldest request is local. The node must hold the
+     * privilege without using it, and the request queue must not be empty.
+     */
+    private void assignPrivilege() {
+        if (holder == id && phase != Phase.USING && !requestQ.isEmpty()) {
+            holder = idOf(requestQ.poll());
+            if (holder == id) {
+                phase = Phase.USING;
+                effects.enterCriticalSection(id);
+            } else {
+                phase = Phase.IDLE;
+                effects.sendPrivilege(id, holder);
+            }
+        }
+    }
+
+    /**
+     * Sends a request to the holder, if the node does not have the privilege
+     * but wants it either for itself or others, and it has not asked for it
+     * yet.
+     */
+    private void makeRequest() {
+        if (holder != NONE && holder != id && !requestQ.isEmpty() && phase == Phase.IDLE) {
+            phase = Phase.ASKED;
+            effects.sendRequest(id, holder);
+        }
+    }
+
+    /**
+     * Withdraws the request sent to the holder when the request queue has
+     * become empty.
+     */
+    private void cancelRequest() {
+        if (holder != NONE && holder != id && requestQ.isEmpty() && phase == Phase.ASKED) {
+            phase = Phase.IDLE;
+            effects.sendCancel(id, holder);
+        }
+    }
+
+    /**
+     * Resumes the protocol after the state has changed.
+     */
+    private void resume() {
+        if (phase != Phase.RECOVERING) {
+            assignPrivilege();
+            makeRequest();
+        }
+    }
+
+    /**
+     * Handles an INITIALIZE message, which points the holder towards the
+     * sender and is forwarded to the other neighbors. The starter receives it
+     * from itself.
+     *
+     * @param from The id of the sender.
+     */
+    public void onInitialize(int from) {
+        holder = from;
+        for (int i = neighborsFrom; i < neighborsTo; i++) {
+            if (neighbors[i] != holder) {
+                effects.sendInitialize(id, neighbors[i]);
+            }
+        }
+        // Serve the requests received before the initialization
+        resume();
+    }
+
+    /**
+     * Points the holder towards a neighbor, or the node itself, without
+     * sending INITIALIZE messages. The holder of a node changes only when the
+     * privilege passes through it, so when several locks share a tree that
+     * has been initialized once, the state machine of a lock the node has not
+     * seen yet starts from the holder of the initialization.
+     *
+     * @param initialHolder The id of the holder.
+     */
+    public void setInitialHolder(int initialHolder) {
+        holder = initialHolder;
+        resume();
+    }
+
+    /**
+     * Handles a REQUEST message. A neighbor already in the request queue is
+     * not added again.
+     *
+     * @param from The id of the sender.
+     */
+    public void onRequest(int from) {
+        // The requests are not served during the crash and the recovery
+        if (phase != Phase.CRASHED) {
+            requestQ.addNeighbor(positionOf(from));
+            resume();
+        }
+    }
+
+    /**
+     * Handles a PRIVILEGE message.
+     *
+     * @param from The id of the sender.
+     */
+    public void onPrivilege(int from) {
+        if (phase != Phase.CRASHED) {
+            holder = id;
+            resume();
+        }
+    }
+
+    /**
+     * Handles a local request for the critical section.
+     *
+     * @return True if the request has been accepted, false if the node is
+     * crashed.
+     */
+    public boolean onLocalRequest() {
+        if (phase == Phase.CRASHED) {
+            return false;
+        }
+        requestQ.addSelf();
+        resume();
+        return true;
+    }
+
+    /**
+     * Withdraws the most recent local request that has not been served yet.
+     * If no other request is waiting, the request sent to the holder is
+     * withdrawn too.
+     *
+     * @return True if a local request has been withdrawn, false otherwise.
+     */
+    public boolean cancelLocalRequest() {
+        if (!requestQ.removeLastSelf()) {
+            return false;
+        }
+        if (phase != Phase.RECOVERING) {
+            cancelRequest();
+        }
+        return true;
+    }
+
+    /**
+     * Handles a CANCEL message. If the request of the sender is still waiting
+     * it is removed, otherwise the privilege is already on its way to the
+     * sender.
+     *
+     * @param from The id of the sender.
+     */
+    public void onCancelRequest(int from) {
+        if (phase != Phase.CRASHED && requestQ.removeNeighbor(positionOf(from)) && phase != Phase.RECOVERING) {
+            cancelRequest();
+        }
+    }
+
+    /**
+     * Exits the critical section and passes the privilege to the next
+     * request, if any.
+     */
+    public void onExitCriticalSection() {
+        phase = Phase.IDLE;
+        assignPrivilege();
+        makeRequest();
+    }
+
+    /**
+     * Gets a boolean that describes if the node can crash, that is it is not
+     * crashed, recovering or in the critical section.
+     *
+     * @return True if the node can crash, false otherwise.
+     */
+    public boolean canCrash() {
+        return phase == Phase.IDLE || phase == Phase.ASKED;
+    }
+
+    /**
+     * Crashes the node, which loses its state.
+     */
+    public void crash() {
+        phase = Phase.CRASHED;
+        holder = NONE;
+        requestQ.clear();
+    }
+
+    /**
+     * Starts the recovery of a crashed node, which asks its neighbors about
+     * their relationship with it.
+     */
+    public void startRecovery() {
+        phase = Phase.RECOVERING;
+        for (int i = neighborsFrom; i < neighborsTo; i++) {
+            effects.sendRestart(id, neighbors[i]);
+        }
+    }
+
+    /**
+     * Handles a RESTART message, answering with the state of the
+     * relationship with the recovering sender.
+     *
+     * @param from The id of the recovering node.
+     */
+    public void onRestart(int from) {
+        int flags = 0;
+        if (holder == from) {
+            flags |= X_HOLDER;
+        }
+        if (requestQ.containsNeighbor(positionOf(from))) {
+            flags |= X_IN_REQUEST_Q;
+        }
+        if (phase == Phase.ASKED) {
+            flags |= ASKED_Y;
+        }
+        effects.sendAdvise(id, from, flags);
+    }
+
+    /**
+     * Handles an ADVISE message. When every neighbor has answered, the holder,
+     * asked, using and the request queue are rebuilt and the node resumes the
+     * protocol.
+     *
+     * @param from The id of the sender.
+     * @param flags The advice of the sender.
+     */
+    public void onAdvise(int from, int flags) {
+        int degree = neighborsTo - neighborsFrom;
+        if (adviseFrom == null) {
+            adviseFrom = new int[degree];
+            adviseFlags = new int[degree];
+        }
+        adviseFrom[advises] = positionOf(from);
+        adviseFlags[advises] = flags;
+        if (++advises < degree) {
+            return;
+        }
+        advises = 0;
+
+        boolean asked = false;
+        // After the crash, if no PRIVILEGE message is received, the holder is
+        // unknown. Otherwise the PRIVILEGE message, sent after an ADVISE
+        // message, was received before it and the outdated information of the
+        // ADVISE message is not considered
+        boolean holdsPrivilege = holder != NONE;
+        if (!holdsPrivilege) {
+            holder = id;
+        }
+        for (int i = 0; i < degree; i++) {
+            int neighbor = adviseFrom[i];
+            int f = adviseFlags[i];
+            if ((f & X_HOLDER) == 0) {
+                if (holdsPrivilege) {
+                    // The node received the privilege from this neighbor, so
+                    // it must have asked for it
+                    asked = true;
+                    requestQ.addSelf();
+                } else {
+                    holder = idOf(neighbor);
+                    if ((f & X_IN_REQUEST_Q) != 0) {
+                        asked = true;
+                        requestQ.addSelf();
+                    }
+                }
+            } else if ((f & ASKED_Y) != 0) {
+                // During the recovery a neighbor may have been added to the
+                // request queue already, and it is not added twice
+                requestQ.addNeighbor(neighbor);
+            }
+        }
+        phase = asked ? Phase.ASKED : Phase.IDLE;
+        effects.recoveryCompleted(id, holder);
+
+        assignPrivilege();
+        makeRequest();
+    }
+
+    /**
+     * Gets the id of the node.
+     *
+     * @return The id of the node.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Gets the location of the privilege relative to the node.
+     *
+     * @return The id of the holder, NONE if it is unknown.
+     */
+    public int getHolder() {
+        return holder;
+    }
+
+    /**
+     * Gets the number of requests waiting for the privilege.
+     *
+     * @return The length of the request queue.
+     */
+    public int getRequestQueueLength() {
+        return requestQ.size();
+    }
+
+    /**
+     * Gets a boolean that describes if a node is in the request queue.
+     *
+     * @param node The id of the node.
+     * @return True if the node is waiting for the privilege, false otherwise.
+     */
+    public boolean isInRequestQueue(int node) {
+        return node == id ? requestQ.containsSelf() : requestQ.containsNeighbor(positionOf(node));
+    }
+
+    /**
+     * Describes the request queue.
+     *
+     * @return The ids in the request queue, from the oldest.
+     */
+    public String requestQueueToString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < requestQ.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(idOf(requestQ.get(i)));
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * Gets a boolean that describes if the node is in the critical section.
+     *
+     * @return True if the node is in the critical section, false otherwise.
+     */
+    public boolean isUsing() {
+        return phase == Phase.USING;
+    }
+
+    /**
+     * Gets a boolean that describes if the node has sent a request to the
+     * holder.
+     *
+     * @return True if the node has asked for the privilege, false otherwise.
+     */
+    public boolean isAsked() {
+        return phase == Phase.ASKED;
+    }
+
+    /**
+     * Gets a boolean that describes if the node is crashed.
+     *
+     * @return True if the node is crashed, false otherwise.
+     */
+    public boolean isCrashed() {
+        return phase == Phase.CRASHED;
+    }
+
+    /**
+     * Gets a boolean that describes if the node is recovering.
+     *
+     * @return True if the node is waiting for the ADVISE messages, false
+     * otherwise.
+     */
+    public boolean isRecovering() {
+        return phase == Phase.RECOVERING;
+    }
+
+    /**
+     * Gets the phase of the node.
+     *
+     * @return The phase of the node.
+     */
+    public Phase getPhase() {
+        return phase;
+    }
+}
@@ -0,0 +1,66 @@
+package it.unitn.ds1.protocol;
+
+/**
+ * The outbound effects of the state machines of the reader-writer variant of
+ * the protocol: the messages they send and the events the runtime must react
+ * to.
+ *
+ * The effects are invoked while the state machine is handling an input, so an
+ * implementation must not feed a new input to the same state machine from
+ * within a callback.
+ */
+public interface ReaderWriterEffects {
+
+    /**
+     * Sends a REQUEST message.
+     *
+     * @param from The id of the sender.
+     * @param to The id of the receiver, the holder of the sender.
+     * @param shared True if the oldest request of the sender is for shared
+     * access, false if it is for exclusive access.
+     */
+    void sendRequest(int from, int to, boolean shared);
+
+    /**
+     * Sends a PRIVILEGE message, which gives exclusive access.
+     *
+     * @param from The id of the sender.
+     * @param to The id of the receiver.
+     */
+    void sendPrivilege(int from, int to);
+
+    /**
+     * Sends a READ GRANT message, which gives a read permit.
+     *
+     * @param from The id of the sender.
+     * @param to The id of the receiver.
+     */
+    void sendReadGrant(int from, int to);
+
+    /**
+     * Sends a READ RELEASE message, which returns a read permit.
+     *
+     * @param from The id of the sender.
+     * @param to The id of the receiver, the holder of the sender.
+     */
+    void sendReadRelease(int from, int to);
+
+    /**
+     * Sends an INITIALIZE message.
+     *
+     * @param from The id of the sender.
+     * @param to The id of the receiver.
+     */
+    void sendInitialize(int from, int to);
+
+    /**
+     * Notifies that a node entered the critical section on behalf of its
+     * oldest local request. The node stays there until
+     * {@link ReaderWriterStateMachine#onExitCriticalSection(boolean)} is
+     * called.
+     *
+     * @param node The id of the node.
+     * @param shared True if the access is shared, false if it is exclusive.
+     */
+    void enterCriticalSection(int node, boolean shared);
+}
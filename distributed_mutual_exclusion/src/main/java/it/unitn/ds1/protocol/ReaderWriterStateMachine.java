@@ -0,0 +1,355 @@
+package it.unitn.ds1.protocol;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * A reader-writer variant of Raymond's algorithm, as seen by a single node.
+ * Each request is either for shared (read) or exclusive (write) access, and
+ * the REQUEST message of a node carries the mode of its oldest request.
+ *
+ * The exclusive access is given by the privilege, as in Raymond's algorithm.
+ * The holder of the privilege gives shared access instead by keeping the
+ * privilege and handing out read permits: it serves every shared request at
+ * the head of its request queue at once, entering the critical section for
+ * its own ones and sending a READ GRANT message to the neighbors. A neighbor
+ * with a permit serves in turn the shared requests at the head of its queue
+ * and returns the permit with a READ RELEASE message when all the readers of
+ * its subtree have left. The holder counts the permits it has handed out, and
+ * passes the privilege to a writer only when they have all come back. A new
+ * shared request joins the readers only if no writer is waiting before it, so
+ * the writers are not starved.
+ *
+ * The nodes neither crash nor withdraw their requests.
+ */
+public class ReaderWriterStateMachine {
+
+    /**
+     * The holder of a node that has not been initialized.
+     */
+    public static final int NONE = -1;
+
+    private final int id;
+    /**
+     * The id of the neighbors in increasing order.
+     */
+    private final int[] neighbors;
+    private final ReaderWriterEffects effects;
+
+    /**
+     * Location of the privilege relative to the node itself.
+     */
+    private int holder = NONE;
+    /**
+     * The neighbors, or the node itself, that asked for access.
+     */
+    private final RequestQueue requestQ;
+    /**
+     * The mode of the request of each neighbor in the request queue, true if
+     * it is shared.
+     */
+    private final boolean[] sharedNeighbors;
+    /**
+     * The mode of each local request in the request queue, in the same order.
+     */
+    private final ArrayDeque<Boolean> localModes = new ArrayDeque<>();
+    /**
+     * Whether the node has sent a REQUEST message that has not been answered.
+     */
+    private boolean asked = false;
+    /**
+     * Whether the node is in the critical section with exclusive access.
+     */
+    private boolean writing = false;
+    /**
+     * Whether the node holds a read permit from its holder.
+     */
+    private boolean permit = false;
+    /**
+     * The readers the node is responsible for: the local ones plus the
+     * permits handed out to the neighbors.
+     */
+    private int readers = 0;
+
+    /**
+     * Creates a Reader Writer State Machine with the information about the
+     * node and its neighbors.
+     *
+     * @param id The id of the node.
+     * @param neighbors The id of the neighbors in increasing order, which is
+     * not copied.
+     * @param effects The receiver of the messages and of the events of the
+     * node.
+     */
+    public ReaderWriterStateMachine(int id, int[] neighbors, ReaderWriterEffects effects) {
+        this.id = id;
+        this.neighbors = neighbors;
+        this.effects = effects;
+        this.requestQ = new RequestQueue(neighbors.length);
+        this.sharedNeighbors = new boolean[neighbors.length];
+    }
+
+    /**
+     * Finds a neighbor.
+     *
+     * @param neighbor The id of the neighbor.
+     * @return The position of the neighbor among the neighbors of the node.
+     * @throws IllegalArgumentException If the node is not a neighbor.
+     */
+    private int positionOf(int neighbor) throws IllegalArgumentException {
+        int position = Arrays.binarySearch(neighbors, neighbor);
+        if (position < 0) {
+            throw new IllegalArgumentException("Node " + neighbor + " is not a neighbor of node " + id);
+        }
+        return position;
+    }
+
+    /**
+     * Gets the mode of the oldest request. The request queue must not be
+     * empty.
+     *
+     * @return True if the oldest request is for shared access.
+     */
+    private boolean isSharedHead() {
+        int e = requestQ.get(0);
+        return e == RequestQueue.SELF ? localModes.peek() : sharedNeighbors[e];
+    }
+
+    /**
+     * Removes the oldest request. The request queue must not be empty.
+     *
+     * @return The id of the node that made the request.
+     */
+    private int pollRequest() {
+        int e = requestQ.poll();
+        if (e == RequestQueue.SELF) {
+            localModes.poll();
+            return id;
+        }
+        return neighbors[e];
+    }
+
+    /**
+     * Serves the shared requests at the head of the request queue, entering
+     * the critical section for the local ones and handing out a read permit
+     * to the neighbors.
+     */
+    private void grantReads() {
+        while (!requestQ.isEmpty() && isSharedHead()) {
+            int reader = pollRequest();
+            readers++;
+            if (reader == id) {
+                effects.enterCriticalSection(id, true);
+            } else {
+                effects.sendReadGrant(id, reader);
+            }
+        }
+    }
+
+    /**
+     * Serves the oldest requests, if the node holds the privilege without
+     * using it: the shared requests at the head of the queue get a read
+     * permit, and an exclusive request gets the privilege once every permit
+     * has come back.
+     */
+    private void assignPrivilege() {
+        if (holder != id || writing) {
+            return;
+        }
+        grantReads();
+        if (!requestQ.isEmpty() && readers == 0) {
+            holder = pollRequest();
+            if (holder == id) {
+                writing = true;
+                effects.enterCriticalSection(id, false);
+            } else {
+                effects.sendPrivilege(id, holder);
+            }
+        }
+    }
+
+    /**
+     * Sends a request to the holder, if the node does not have the privilege
+     * or a read permit but wants access either for itself or others, and it
+     * has not asked for it yet.
+     */
+    private void makeRequest() {
+        if (holder != NONE && holder != id && !permit && !asked && !requestQ.isEmpty()) {
+            asked = true;
+            effects.sendRequest(id, holder, isSharedHead());
+        }
+    }
+
+    /**
+     * Counts a reader that has left, returning the read permit of the node
+     * when the last one leaves.
+     */
+    private void readerLeft() {
+        readers--;
+        if (readers == 0 && permit) {
+            permit = false;
+            effects.sendReadRelease(id, holder);
+        }
+    }
+
+    /**
+     * Resumes the protocol after the state has changed.
+     */
+    private void resume() {
+        assignPrivilege();
+        makeRequest();
+    }
+
+    /**
+     * Handles an INITIALIZE message, which points the holder towards the
+     * sender and is forwarded to the other neighbors. The starter receives it
+     * from itself.
+     *
+     * @param from The id of the sender.
+     */
+    public void onInitialize(int from) {
+        holder = from;
+        for (int neighbor : neighbors) {
+            if (neighbor != holder) {
+                effects.sendInitialize(id, neighbor);
+            }
+        }
+        // Serve the requests received before the initialization
+        resume();
+    }
+
+    /**
+     * Handles a REQUEST message. A neighbor asks again only after its previous
+     * request has been served.
+     *
+     * @param from The id of the sender.
+     * @param shared True if the sender asks for shared access.
+     */
+    public void onRequest(int from, boolean shared) {
+        int position = positionOf(from);
+        if (requestQ.addNeighbor(position)) {
+            sharedNeighbors[position] = shared;
+        }
+        resume();
+    }
+
+    /**
+     * Handles a PRIVILEGE message.
+     *
+     * @param from The id of the sender.
+     */
+    public void onPrivilege(int from) {
+        holder = id;
+        asked = false;
+        resume();
+    }
+
+    /**
+     * Handles a READ GRANT message. The node serves the shared requests at
+     * the head of its queue, and returns the permit at once if there are none.
+     *
+     * @param from The id of the sender, the holder of the node.
+     */
+    public void onReadGrant(int from) {
+        asked = false;
+        permit = true;
+        grantReads();
+        if (readers == 0) {
+            permit = false;
+            effects.sendReadRelease(id, holder);
+            makeRequest();
+        }
+    }
+
+    /**
+     * Handles a READ RELEASE message.
+     *
+     * @param from The id of the sender.
+     */
+    public void onReadRelease(int from) {
+        readerLeft();
+        resume();
+    }
+
+    /**
+     * Handles a local request for the critical section.
+     *
+     * @param shared True for shared access, false for exclusive access.
+     */
+    public void onLocalRequest(boolean shared) {
+        requestQ.addSelf();
+        localModes.add(shared);
+        resume();
+    }
+
+    /**
+     * Exits the critical section and serves the next requests, if any.
+     *
+     * @param shared True if the node was in the critical section with shared
+     * access, false if with exclusive access.
+     */
+    public void onExitCriticalSection(boolean shared) {
+        if (shared) {
+            readerLeft();
+        } else {
+            writing = false;
+        }
+        resume();
+    }
+
+    /**
+     * Gets the id of the node.
+     *
+     * @return The id of the node.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Gets the location of the privilege relative to the node.
+     *
+     * @return The id of the holder, NONE if it is unknown.
+     */
+    public int getHolder() {
+        return holder;
+    }
+
+    /**
+     * Gets the number of requests waiting for access.
+     *
+     * @return The length of the request queue.
+     */
+    public int getRequestQueueLength() {
+        return requestQ.size();
+    }
+
+    /**
+     * Gets the number of readers the node is responsible for.
+     *
+     * @return The local readers plus the read permits handed out to the
+     * neighbors.
+     */
+    public int getReaders() {
+        return readers;
+    }
+
+    /**
+     * Gets a boolean that describes if the node is in the critical section
+     * with exclusive access.
+     *
+     * @return True if the node is writing, false otherwise.
+     */
+    public boolean isWriting() {
+        return writing;
+    }
+
+    /**
+     * Gets a boolean that describes if the node holds a read permit.
+     *
+     * @return True if the node holds a read permit, false otherwise.
+     */
+    public boolean hasPermit() {
+        return permit;
+    }
+}
@@ -0,0 +1,244 @@
+package it.unitn.ds1.protocol;
+
+import java.util.Arrays;
+
+/**
+ * The request queue of a node: a FIFO queue of the neighbors, identified by
+ * their position among the neighbors of the node, and of the node itself,
+ * identified by SELF. The queue is a circular array whose capacity is a power
+ * of two, and a bitset tells in constant time whether a neighbor is in the
+ * queue. The bits of the first 64 neighbors are kept in a field, which covers
+ * most nodes of a tree without an array.
+ *
+ * A neighbor is in the queue at most once, while the node itself appears once
+ * for each of its local requests.
+ */
+final class RequestQueue {
+
+    /**
+     * The element that stands for the node itself.
+     */
+    static final int SELF = -1;
+
+    private int[] elements;
+    private int mask;
+    private int head = 0;
+    private int size = 0;
+    /**
+     * Bit i is set if the neighbor i is in the queue, for i lower than 64.
+     */
+    private long lowNeighbors = 0;
+    /**
+     * Bit i of word w is set if the neighbor 64 (w + 1) + i is in the queue,
+     * or null if the node has at most 64 neighbors.
+     */
+    private final long[] highNeighbors;
+    /**
+     * The number of occurrences of the node itself.
+     */
+    private int selfCount = 0;
+
+    /**
+     * Creates an empty Request Queue.
+     *
+     * @param degree The number of neighbors of the node.
+     */
+    RequestQueue(int degree) {
+        elements = new int[4];
+        mask = elements.length - 1;
+        highNeighbors = degree > 64 ? new long[(degree - 1) >>> 6] : null;
+    }
+
+    /**
+     * Gets a boolean that describes if the queue is empty.
+     *
+     * @return True if the queue is empty, false otherwise.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gets the number of elements in the queue.
+     *
+     * @return The size of the queue.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Gets an element of the queue.
+     *
+     * @param position The position of the element from the head.
+     * @return The neighbor, or SELF.
+     */
+    int get(int position) {
+        return elements[(head + position) & mask];
+    }
+
+    /**
+     * Adds a neighbor at the end of the queue, unless it is already there.
+     *
+     * @param neighbor The position of the neighbor.
+     * @return True if the neighbor has been added, false if it was already in
+     * the queue.
+     */
+    boolean addNeighbor(int neighbor) {
+        if (containsNeighbor(neighbor)) {
+            return false;
+        }
+        if (neighbor < 64) {
+            lowNeighbors |= 1L << neighbor;
+        } else {
+            highNeighbors[(neighbor >>> 6) - 1] |= 1L << neighbor;
+        }
+        append(neighbor);
+        return true;
+    }
+
+    /**
+     * Adds the node itself at the end of the queue.
+     */
+    void addSelf() {
+        selfCount++;
+        append(SELF);
+    }
+
+    /**
+     * Removes the first element. The queue must not be empty.
+     *
+     * @return The first element, a neighbor or SELF.
+     */
+    int poll() {
+        int e = elements[head];
+        head = (head + 1) & mask;
+        size--;
+        forget(e);
+        return e;
+    }
+
+    /**
+     * Gets a boolean that describes if a neighbor is in the queue.
+     *
+     * @param neighbor The position of the neighbor.
+     * @return True if the neighbor is in the queue, false otherwise.
+     */
+    boolean containsNeighbor(int neighbor) {
+        long word = neighbor < 64 ? lowNeighbors : highNeighbors[(neighbor >>> 6) - 1];
+        return (word & (1L << neighbor)) != 0;
+    }
+
+    /**
+     * Gets a boolean that describes if the node itself is in the queue.
+     *
+     * @return True if the node has a local request waiting, false otherwise.
+     */
+    boolean containsSelf() {
+        return selfCount > 0;
+    }
+
+    /**
+     * Removes a neighbor.
+     *
+     * @param neighbor The position of the neighbor.
+     * @return True if the neighbor was in the queue, false otherwise.
+     */
+    boolean removeNeighbor(int neighbor) {
+        if (!containsNeighbor(neighbor)) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (get(i) == neighbor) {
+                removeAt(i);
+                break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes the last occurrence of the node itself.
+     *
+     * @return True if the node itself was in the queue, false otherwise.
+     */
+    boolean removeLastSelf() {
+        if (selfCount == 0) {
+            return false;
+        }
+        for (int i = size - 1; i >= 0; i--) {
+            if (get(i) == SELF) {
+                removeAt(i);
+                break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes every element.
+     */
+    void clear() {
+        lowNeighbors = 0;
+        if (highNeighbors != null) {
+            Arrays.fill(highNeighbors, 0);
+        }
+        selfCount = 0;
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Appends an element, doubling the array if it is full.
+     *
+     * @param e The element.
+     */
+    private void append(int e) {
+        if (size == elements.length) {
+            grow();
+        }
+        elements[(head + size) & mask] = e;
+        size++;
+    }
+
+    /**
+     * Doubles the array, moving the head to the beginning.
+     */
+    private void grow() {
+        int[] grown = new int[2 * size];
+        for (int i = 0; i < size; i++) {
+            grown[i] = get(i);
+        }
+        elements = grown;
+        mask = grown.length - 1;
+        head = 0;
+    }
+
+    /**
+     * Updates the membership after an element has left the queue.
+     *
+     * @param e The element.
+     */
+    private void forget(int e) {
+        if (e == SELF) {
+            selfCount--;
+        } else if (e < 64) {
+            lowNeighbors &= ~(1L << e);
+        } else {
+            highNeighbors[(e >>> 6) - 1] &= ~(1L << e);
+        }
+    }
+
+    /**
+     * Removes an element, shifting the following ones towards the head.
+     *
+     * @param position The position of the element from the head.
+     */
+    private void removeAt(int position) {
+        forget(get(position));
+        for (int i = position; i < size - 1; i++) {
+            elements[(head + i) & mask] = elements[(head + i + 1) & mask];
+        }
+        size--;
+    }
+}
@@ -0,0 +1,124 @@
+package it.unitn.ds1.simulation;
+
+import java.util.Arrays;
+
+/**
+ * The pending events of the simulation, ordered by time. Events with the same
+ * time are taken in the order they were added, so the simulation is
+ * deterministic. The events are kept in a binary heap of parallel primitive
+ * arrays, so adding and taking an event allocates nothing.
+ */
+final class EventQueue {
+
+    private long[] time = new long[1024];
+    private long[] seq = new long[1024];
+    private int[] type = new int[1024];
+    private int[] node = new int[1024];
+    private int[] from = new int[1024];
+    private int[] flags = new int[1024];
+    private int size = 0;
+    private long nextSeq = 0;
+
+    /**
+     * The fields of the last event taken from the queue.
+     */
+    long polledTime;
+    int polledType;
+    int polledNode;
+    int polledFrom;
+    int polledFlags;
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds an event.
+     *
+     * @param t The time of the event.
+     * @param eventType The type of the event.
+     * @param eventNode The node the event happens at.
+     * @param eventFrom The node that caused the event.
+     * @param eventFlags Additional information about the event.
+     */
+    void add(long t, int eventType, int eventNode, int eventFrom, int eventFlags) {
+        if (size == time.length) {
+            int capacity = 2 * size;
+            time = Arrays.copyOf(time, capacity);
+            seq = Arrays.copyOf(seq, capacity);
+            type = Arrays.copyOf(type, capacity);
+            node = Arrays.copyOf(node, capacity);
+            from = Arrays.copyOf(from, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+        }
+        long s = nextSeq++;
+        int i = size++;
+        // Sift up
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!before(t, s, time[parent], seq[parent])) {
+                break;
+            }
+            move(parent, i);
+            i = parent;
+        }
+        set(i, t, s, eventType, eventNode, eventFrom, eventFlags);
+    }
+
+    /**
+     * Takes the first event and stores its fields in the polled fields. The
+     * queue must not be empty.
+     */
+    void poll() {
+        polledTime = time[0];
+        polledType = type[0];
+        polledNode = node[0];
+        polledFrom = from[0];
+        polledFlags = flags[0];
+
+        int last = --size;
+        if (last == 0) {
+            return;
+        }
+        long t = time[last];
+        long s = seq[last];
+        int i = 0;
+        // Sift down
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= last) {
+                break;
+            }
+            if (child + 1 < last && before(time[child + 1], seq[child + 1], time[child], seq[child])) {
+                child++;
+            }
+            if (!before(time[child], seq[child], t, s)) {
+                break;
+            }
+            move(child, i);
+            i = child;
+        }
+        set(i, t, s, type[last], node[last], from[last], flags[last]);
+    }
+
+    private static boolean before(long t1, long s1, long t2, long s2) {
+        return t1 < t2 || (t1 == t2 && s1 < s2);
+    }
+
+    private void move(int src, int dst) {
+        set(dst, time[src], seq[src], type[src], node[src], from[src], flags[src]);
+    }
+
+    private void set(int i, long t, long s, int eventType, int eventNode, int eventFrom, int eventFlags) {
+        time[i] = t;
+        seq[i] = s;
+        type[i] = eventType;
+        node[i] = eventNode;
+        from[i] = eventFrom;
+        flags[i] = eventFlags;
+    }
+}
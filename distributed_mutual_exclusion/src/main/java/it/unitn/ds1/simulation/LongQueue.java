@@ -0,0 +1,54 @@
+package it.unitn.ds1.simulation;
+
+/**
+ * A FIFO queue of longs backed by a circular array that grows when it is
+ * full.
+ */
+final class LongQueue {
+
+    private long[] elements;
+    private int head = 0;
+    private int size = 0;
+
+    LongQueue(int capacity) {
+        elements = new long[Math.max(2, capacity)];
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void add(long e) {
+        if (size == elements.length) {
+            long[] grown = new long[2 * size];
+            for (int i = 0; i < size; i++) {
+                grown[i] = elements[(head + i) % elements.length];
+            }
+            elements = grown;
+            head = 0;
+        }
+        elements[(head + size) % elements.length] = e;
+        size++;
+    }
+
+    /**
+     * Removes the first element. The queue must not be empty.
+     *
+     * @return The first element.
+     */
+    long poll() {
+        long e = elements[head];
+        head = (head + 1) % elements.length;
+        size--;
+        return e;
+    }
+
+    void clear() {
+        head = 0;
+        size = 0;
+    }
+}
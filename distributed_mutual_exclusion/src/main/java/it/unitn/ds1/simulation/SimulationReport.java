@@ -0,0 +1,106 @@
+package it.unitn.ds1.simulation;
+
+import it.unitn.ds1.metrics.LatencyReport;
+
+/**
+ * The results of a simulation: what happened in virtual time and how long the
+ * simulation took in real time.
+ */
+public class SimulationReport {
+
+    private final int nodes;
+    private final long virtualNanos;
+    private final long entries;
+    private final long messages;
+    private final long crashes;
+    private final long failedRequests;
+    private final long events;
+    private final long wallNanos;
+    private final LatencyReport latency;
+
+    /**
+     * Creates a Simulation Report with the information about a simulation.
+     *
+     * @param nodes The number of nodes in the network.
+     * @param virtualNanos The virtual time simulated, in nanoseconds.
+     * @param entries The number of critical section entries.
+     * @param messages The number of protocol messages sent.
+     * @param crashes The number of crashes.
+     * @param failedRequests The number of local requests lost in a crash or
+     * issued to a crashed node.
+     * @param events The number of events processed.
+     * @param wallNanos The real time of the simulation, in nanoseconds.
+     * @param latency The time from the local requests to the entries in the
+     * critical section, in virtual time.
+     */
+    public SimulationReport(int nodes, long virtualNanos, long entries, long messages, long crashes,
+                            long failedRequests, long events, long wallNanos, LatencyReport latency) {
+        this.nodes = nodes;
+        this.virtualNanos = virtualNanos;
+        this.entries = entries;
+        this.messages = messages;
+        this.crashes = crashes;
+        this.failedRequests = failedRequests;
+        this.events = events;
+        this.wallNanos = wallNanos;
+        this.latency = latency;
+    }
+
+    /**
+     * Gets the number of critical section entries.
+     *
+     * @return The number of entries.
+     */
+    public long getEntries() {
+        return entries;
+    }
+
+    /**
+     * Gets the number of protocol messages sent.
+     *
+     * @return The number of messages.
+     */
+    public long getMessages() {
+        return messages;
+    }
+
+    /**
+     * Gets the number of critical section entries per second of virtual time.
+     *
+     * @return The throughput of the critical section.
+     */
+    public double getThroughput() {
+        return virtualNanos == 0 ? 0 : entries * 1e9 / virtualNanos;
+    }
+
+    /**
+     * Gets the number of protocol messages sent for each critical section
+     * entry.
+     *
+     * @return The message complexity per entry, 0 if there were no entries.
+     */
+    public double getMessagesPerEntry() {
+        return entries == 0 ? 0 : (double) messages / entries;
+    }
+
+    /**
+     * Gets the latency of the local requests.
+     *
+     * @return The latency report, in virtual time.
+     */
+    public LatencyReport getLatency() {
+        return latency;
+    }
+
+    @Override
+    public String toString() {
+        double wallSeconds = wallNanos / 1e9;
+        return String.format("Simulated %d nodes for %.3f s: %d entries, %d messages, %d crashes, "
+                        + "%d failed requests%n"
+                        + "Throughput: %.1f entries/s, %.2f messages per entry%n%s%n"
+                        + "%d events in %.3f s (%.0f events/s)",
+                nodes, virtualNanos / 1e9, entries, messages, crashes, failedRequests,
+                getThroughput(), getMessagesPerEntry(), latency,
+                events, wallSeconds, events / wallSeconds);
+    }
+}
@@ -0,0 +1,425 @@
+package it.unitn.ds1.simulation;
+
+import it.unitn.ds1.DistributedMutualExclusion;
+import it.unitn.ds1.Settings;
+import it.unitn.ds1.metrics.LatencyReport;
+import it.unitn.ds1.network.Graph;
+import it.unitn.ds1.protocol.ProtocolEffects;
+import it.unitn.ds1.protocol.RaymondStateMachine;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs Raymond's algorithm as a single-threaded discrete-event simulation.
+ * The nodes run the same {@link RaymondStateMachine} as the actors of
+ * {@link it.unitn.ds1.network.Node}, but their messages are events on a
+ * virtual clock, so very large networks can be simulated quickly and every run
+ * with the same seed gives the same results.
+ *
+ * Every message takes a fixed delay plus an exponential jitter, and the
+ * messages between two nodes are delivered in the order they were sent, as in
+ * Akka. The load comes from closed-loop clients: each client asks a random
+ * node for the critical section, keeps it, waits an exponential think time
+ * and asks again. Random nodes can also crash and recover, one at a time in
+ * each neighborhood, as the recovery procedure assumes. The simulation fails
+ * if two nodes are ever in the critical section at once.
+ *
+ * The protocol starts with the privilege at the starter and the holder of
+ * every other node pointing towards it, as after the INITIALIZE messages.
+ */
+public class Simulator {
+
+    /**
+     * Types of the events.
+     */
+    private static final int REQUEST = 0;
+    private static final int PRIVILEGE = 1;
+    private static final int RESTART = 2;
+    private static final int ADVISE = 3;
+    private static final int LOCAL_REQUEST = 4;
+    private static final int EXIT_CRITICAL_SECTION = 5;
+    private static final int CRASH = 6;
+    private static final int RECOVERY = 7;
+
+    /**
+     * Flag of the EXIT_CRITICAL_SECTION events of the clients.
+     */
+    private static final int CLIENT = 1;
+
+    /**
+     * The sender of the events that are not messages.
+     */
+    private static final int NONE = RaymondStateMachine.NONE;
+
+    private final String topology;
+    private final int V;
+    private final int[] offsets;
+    private final int[] targets;
+    /**
+     * The parent of each node in the tree rooted at the starter.
+     */
+    private final int[] parent;
+
+    private final long messageDelay;
+    private final double messageJitter;
+    private final long criticalSectionTime;
+    private final double thinkTime;
+    private final int clients;
+    private final int[] hotspots;
+    private final double hotspotProbability;
+    private final double crashInterval;
+    private final long crashTime;
+    private final SplittableRandom random;
+
+    /**
+     * State of the nodes.
+     */
+    private final RaymondStateMachine[] nodes;
+    /**
+     * Times of the local requests of each node waiting for the privilege.
+     */
+    private final LongQueue[] localRequests;
+    /**
+     * Time when the last message sent on each link will be delivered: index
+     * 2u is the link from u to its parent, 2u + 1 the link from the parent
+     * to u.
+     */
+    private final long[] lastDelivery;
+
+    private final EventQueue events = new EventQueue();
+    private final Histogram latency = new Histogram(3);
+    private long now = 0;
+    private long entries = 0;
+    private long messages = 0;
+    private long crashes = 0;
+    private long failedRequests = 0;
+    private long processedEvents = 0;
+    /**
+     * The number of nodes in the critical section.
+     */
+    private int inCriticalSection = 0;
+
+    /**
+     * Creates a Simulator with the information about the network and the
+     * load.
+     *
+     * @param g The topology of the network, which must be a tree.
+     * @param settings The settings of the protocol, the load and the
+     * simulation.
+     * @throws IllegalArgumentException If the hotspot nodes are more than the
+     * nodes of the network.
+     */
+    public Simulator(Graph g, Settings settings) throws IllegalArgumentException {
+        this.topology = settings.getTopology();
+        this.V = g.getNumberOfNodes();
+        this.offsets = g.getOffsets();
+        // The state machines need the neighbors of each node in increasing order
+        this.targets = g.getTargets().clone();
+        for (int u = 0; u < V; u++) {
+            Arrays.sort(targets, offsets[u], offsets[u + 1]);
+        }
+        if (settings.getLoadHotspotNodes() > V) {
+            throw new IllegalArgumentException("The hotspot nodes cannot be more than the " + V + " nodes");
+        }
+        DistributedMutualExclusion.checkId(settings.getStarterId(), V);
+
+        this.messageDelay = TimeUnit.MICROSECONDS.toNanos(settings.getSimulationMessageDelay());
+        this.messageJitter = TimeUnit.MICROSECONDS.toNanos(settings.getSimulationMessageJitter());
+        this.criticalSectionTime = TimeUnit.MICROSECONDS.toNanos(settings.getLoadCriticalSectionTime());
+        this.thinkTime = TimeUnit.MICROSECONDS.toNanos(settings.getLoadThinkTime());
+        this.clients = settings.getLoadClients();
+        this.hotspotProbability = settings.getLoadHotspotProbability();
+        this.crashInterval = TimeUnit.MILLISECONDS.toNanos(settings.getSimulationCrashInterval());
+        this.crashTime = TimeUnit.MILLISECONDS.toNanos(settings.getCrashTime());
+        this.random = new SplittableRandom(settings.getSeed());
+
+        // The hotspots are the first nodes of a random permutation
+        int[] permutation = new int[V];
+        for (int i = 0; i < V; i++) {
+            int j = random.nextInt(i + 1);
+            permutation[i] = permutation[j];
+            permutation[j] = i;
+        }
+        this.hotspots = Arrays.copyOf(permutation, settings.getLoadHotspotNodes());
+
+        this.parent = parents(settings.getStarterId());
+        this.localRequests = new LongQueue[V];
+        this.lastDelivery = new long[2 * V];
+        this.nodes = new RaymondStateMachine[V];
+        Effects effects = new Effects();
+        for (int u = 0; u < V; u++) {
+            nodes[u] = new RaymondStateMachine(u, targets, offsets[u], offsets[u + 1], effects);
+            // The INITIALIZE messages are not simulated
+            nodes[u].onInitialize(parent[u]);
+        }
+    }
+
+    /**
+     * Visits the tree from a root.
+     *
+     * @param root The root of the tree.
+     * @return The parent of each node; the parent of the root is the root
+     * itself.
+     * @throws IllegalArgumentException If the network is not connected.
+     */
+    private int[] parents(int root) throws IllegalArgumentException {
+        int[] p = new int[V];
+        Arrays.fill(p, NONE);
+        int[] order = new int[V];
+        p[root] = root;
+        order[0] = root;
+        int head = 0;
+        int tail = 1;
+        while (head < tail) {
+            int u = order[head++];
+            for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                int v = targets[i];
+                if (p[v] == NONE) {
+                    p[v] = u;
+                    order[tail++] = v;
+                }
+            }
+        }
+        if (tail != V) {
+            throw new IllegalArgumentException("The network is not connected");
+        }
+        return p;
+    }
+
+    /**
+     * Runs the simulation until a number of critical section entries.
+     *
+     * @param maxEntries The number of critical section entries to simulate.
+     * @return The report of the simulation.
+     * @throws IllegalStateException If two nodes are in the critical section
+     * at once.
+     */
+    public SimulationReport run(long maxEntries) throws IllegalStateException {
+        long wallStart = System.nanoTime();
+        for (int i = 0; i < clients; i++) {
+            events.add(now + (long) exponential(thinkTime), LOCAL_REQUEST, randomNode(), NONE, 0);
+        }
+        if (crashInterval > 0) {
+            events.add(now + (long) exponential(crashInterval), CRASH, random.nextInt(V), NONE, 0);
+        }
+
+        while (entries < maxEntries && !events.isEmpty()) {
+            events.poll();
+            processedEvents++;
+            now = events.polledTime;
+            int u = events.polledNode;
+            int from = events.polledFrom;
+            switch (events.polledType) {
+                case REQUEST:
+                    nodes[u].onRequest(from);
+                    break;
+                case PRIVILEGE:
+                    nodes[u].onPrivilege(from);
+                    break;
+                case RESTART:
+                    nodes[u].onRestart(from);
+                    break;
+                case ADVISE:
+                    nodes[u].onAdvise(from, events.polledFlags);
+                    break;
+                case LOCAL_REQUEST:
+                    onLocalRequest(u);
+                    break;
+                case EXIT_CRITICAL_SECTION:
+                    onExitCriticalSection(u, events.polledFlags);
+                    break;
+                case CRASH:
+                    onCrash(u);
+                    break;
+                case RECOVERY:
+                    onRecovery(u);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown event " + events.polledType);
+            }
+        }
+
+        long wallNanos = System.nanoTime() - wallStart;
+        return new SimulationReport(V, now, entries, messages, crashes, failedRequests, processedEvents,
+                wallNanos, new LatencyReport(topology, latency));
+    }
+
+    /**
+     * Sends a message, delivering it after the delay of the link and after
+     * the messages sent before on the same link.
+     */
+    private void send(int type, int from, int to, int flags) {
+        int link = to == parent[from] ? 2 * from : 2 * to + 1;
+        long delivery = Math.max(now + messageDelay + (long) exponential(messageJitter), lastDelivery[link]);
+        lastDelivery[link] = delivery;
+        events.add(delivery, type, to, from, flags);
+        messages++;
+    }
+
+    private LongQueue localQueue(int u) {
+        LongQueue q = localRequests[u];
+        if (q == null) {
+            q = new LongQueue(2);
+            localRequests[u] = q;
+        }
+        return q;
+    }
+
+    private void onLocalRequest(int u) {
+        if (nodes[u].isCrashed()) {
+            // The client gives up and asks another node
+            failedRequests++;
+            nextRequest();
+            return;
+        }
+        // The node may enter the critical section right away
+        localQueue(u).add(now);
+        nodes[u].onLocalRequest();
+    }
+
+    private void onExitCriticalSection(int u, int flags) {
+        inCriticalSection--;
+        nodes[u].onExitCriticalSection();
+        if ((flags & CLIENT) != 0) {
+            nextRequest();
+        }
+    }
+
+    /**
+     * Schedules the next request of a client after its think time.
+     */
+    private void nextRequest() {
+        events.add(now + (long) exponential(thinkTime), LOCAL_REQUEST, randomNode(), NONE, 0);
+    }
+
+    private void onCrash(int u) {
+        events.add(now + (long) exponential(crashInterval), CRASH, random.nextInt(V), NONE, 0);
+        // As for the CRASH command, a node in the critical section does not
+        // crash. The recovery assumes that the neighbors of the node work, so
+        // a node does not crash either while a neighbor is crashed, recovering
+        // or in the critical section
+        if (!nodes[u].canCrash()) {
+            return;
+        }
+        for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+            if (!nodes[targets[i]].canCrash()) {
+                return;
+            }
+        }
+        crashes++;
+        nodes[u].crash();
+        if (localRequests[u] != null) {
+            while (!localRequests[u].isEmpty()) {
+                localRequests[u].poll();
+                failedRequests++;
+                nextRequest();
+            }
+        }
+        events.add(now + crashTime, RECOVERY, u, u, 0);
+    }
+
+    private void onRecovery(int u) {
+        nodes[u].startRecovery();
+    }
+
+    /**
+     * Chooses the node of a request.
+     *
+     * @return The id of the node.
+     */
+    private int randomNode() {
+        if (hotspots.length > 0 && random.nextDouble() < hotspotProbability) {
+            return hotspots[random.nextInt(hotspots.length)];
+        }
+        return random.nextInt(V);
+    }
+
+    /**
+     * Draws from an exponential distribution.
+     *
+     * @param mean The mean of the distribution.
+     * @return A random value with the given mean, 0 if the mean is 0.
+     */
+    private double exponential(double mean) {
+        return mean == 0 ? 0 : -mean * Math.log(1 - random.nextDouble());
+    }
+
+    /**
+     * Turns the messages of the nodes into events and schedules the end of
+     * the critical sections.
+     */
+    private final class Effects implements ProtocolEffects {
+
+        @Override
+        public void sendRequest(int from, int to) {
+            send(REQUEST, from, to, 0);
+        }
+
+        @Override
+        public void sendPrivilege(int from, int to) {
+            send(PRIVILEGE, from, to, 0);
+        }
+
+        @Override
+        public void sendInitialize(int from, int to) {
+            // The simulation starts after the initialization
+        }
+
+        @Override
+        public void sendRestart(int from, int to) {
+            send(RESTART, from, to, 0);
+        }
+
+        @Override
+        public void sendAdvise(int from, int to, int flags) {
+            send(ADVISE, from, to, flags);
+        }
+
+        @Override
+        public void sendCancel(int from, int to) {
+            throw new IllegalStateException("The simulated clients do not cancel their requests");
+        }
+
+        @Override
+        public void enterCriticalSection(int node) {
+            if (++inCriticalSection > 1) {
+                throw new IllegalStateException("Node " + node + " entered the critical section at "
+                        + TimeUnit.NANOSECONDS.toMicros(now) + " us while another node was in it");
+            }
+            entries++;
+            int flags = 0;
+            // After a recovery the node may be in the request queue without a
+            // local request
+            if (localRequests[node] != null && !localRequests[node].isEmpty()) {
+                latency.recordValue(now - localRequests[node].poll());
+                flags = CLIENT;
+            }
+            events.add(now + criticalSectionTime, EXIT_CRITICAL_SECTION, node, node, flags);
+        }
+
+        @Override
+        public void recoveryCompleted(int node, int holder) {
+            // Nothing to do: the node resumes the protocol by itself
+        }
+    }
+
+    /**
+     * Simulates the protocol on the topology described by the settings and
+     * prints the report.
+     *
+     * @param args Flags of the form --key=value overriding the settings in
+     * application.conf
+     */
+    public static void main(String[] args) throws IOException {
+        Settings settings = Settings.load(args);
+        Graph g = DistributedMutualExclusion.createStructure(settings);
+        System.out.println("Topology " + settings.getTopology() + " with " + g.getNumberOfNodes()
+                + " nodes and diameter " + g.getDiameter());
+        Simulator simulator = new Simulator(g, settings);
+        System.out.println(simulator.run(settings.getSimulationEntries()));
+    }
+}